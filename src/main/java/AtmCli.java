@@ -1,134 +1,313 @@
 import account.AccountService;
 import account.AccountServiceImpl;
+import account.CachingAccountServiceImpl;
+import account.ConcurrentAccountServiceImpl;
+import account.MappedAccountServiceImpl;
+import command.CommandHandler;
+import command.CommandProcessor;
 import command.CommandService;
 import command.CommandServiceImpl;
+import enums.RepaymentOrder;
+import event.AsyncEventSink;
+import event.ConsoleEventSink;
+import event.EventSink;
+import event.FileEventSink;
+import event.NoopEventSink;
+import event.ScopedEventSink;
+import journal.FileJournal;
+import journal.Journal;
+import journal.NoopJournal;
+import journal.SnapshotStore;
+import server.AtmServer;
+import server.SessionExecutors;
+import server.ThreadPerSessionAtmServer;
 import service.BankService;
 import service.BankServiceImpl;
+import service.RingBufferBankService;
+import service.ShardedBankService;
+import session.ScopedSessionService;
 import session.SessionService;
 import session.SessionServiceImpl;
 
-import java.math.BigDecimal;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
 
 public class AtmCli {
 
-    private final CommandService commandService;
-    private final SessionService sessionService;
+    private static final int SCRIPT_BUFFER_SIZE = 1 << 20;
+    private static final int EVENT_QUEUE_CAPACITY = 8192;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5_000;
+
     private final Scanner scanner;
+    private final CommandProcessor processor;
 
     public AtmCli(CommandService commandService, SessionService sessionService, Scanner scanner) {
-        this.commandService = commandService;
-        this.sessionService = sessionService;
+        this(commandService, sessionService, scanner, null);
+    }
+
+    /**
+     * @param out where prompts and errors go; null means whatever {@code System.out} is at the time
+     */
+    public AtmCli(CommandService commandService, SessionService sessionService, Scanner scanner, PrintStream out) {
         this.scanner = scanner;
+        this.processor = new CommandProcessor(commandService, sessionService, out);
     }
 
     public static void main(String[] args) {
-        AccountService accountService = new AccountServiceImpl();
-        SessionService sessionService = new SessionServiceImpl();
-        BankService bankService = new BankServiceImpl(accountService, sessionService);
-        CommandService commandService = new CommandServiceImpl(bankService, sessionService);
-        Scanner scanner = new Scanner(System.in);
-
-        AtmCli atmCli = new AtmCli(commandService, sessionService, scanner);
-        atmCli.start();
-    }
+        String journalPath = null;
+        long snapshotEvery = 100_000;
+        String accountStorePath = null;
+        long accountCapacity = 1_000_000;
+        int accountCache = 0;
+        RepaymentOrder repaymentOrder = RepaymentOrder.OLDEST_FIRST;
+        String scriptPath = null;
+        boolean quiet = false;
+        String outputPath = null;
+        Integer servePort = null;
+        String sessionThreads = null;
+        int pipelineWorkers = 0;
+        String engine = "locks";
+        int shardCount = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--journal") && i + 1 < args.length) {
+                journalPath = args[++i];
+            } else if (args[i].equals("--snapshot-every") && i + 1 < args.length) {
+                snapshotEvery = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--account-store") && i + 1 < args.length) {
+                accountStorePath = args[++i];
+            } else if (args[i].equals("--account-capacity") && i + 1 < args.length) {
+                accountCapacity = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--account-cache") && i + 1 < args.length) {
+                accountCache = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--script") && i + 1 < args.length) {
+                scriptPath = args[++i];
+            } else if (args[i].equals("--quiet")) {
+                quiet = true;
+            } else if (args[i].equals("--output") && i + 1 < args.length) {
+                outputPath = args[++i];
+            } else if (args[i].equals("--serve") && i + 1 < args.length) {
+                servePort = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--session-threads") && i + 1 < args.length) {
+                sessionThreads = args[++i];
+                if (sessionThreads.equals("virtual") && !SessionExecutors.virtualThreadsAvailable()) {
+                    System.err.println("Error: --session-threads virtual needs Java 21 or later, this is Java "
+                            + Runtime.version().feature());
+                    return;
+                }
+            } else if (args[i].equals("--pipeline-workers") && i + 1 < args.length) {
+                pipelineWorkers = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--engine") && i + 1 < args.length) {
+                engine = args[++i];
+            } else if (args[i].equals("--shards") && i + 1 < args.length) {
+                shardCount = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--repay") && i + 1 < args.length) {
+                String order = args[++i];
+                if (order.equalsIgnoreCase("oldest")) {
+                    repaymentOrder = RepaymentOrder.OLDEST_FIRST;
+                } else if (order.equalsIgnoreCase("newest")) {
+                    repaymentOrder = RepaymentOrder.NEWEST_FIRST;
+                } else {
+                    System.err.println("Error: --repay must be oldest or newest, not " + order);
+                    return;
+                }
+            }
+        }
+        boolean ringEngine = engine.equals("ring");
+        boolean shardedEngine = engine.equals("sharded");
+        if (shardedEngine && (journalPath != null || accountStorePath != null)) {
+            System.err.println("Error: The sharded engine keeps accounts in memory and cannot use --journal or --account-store");
+            return;
+        }
 
-    public void start() {
-        printWelcomeMessage();
+        Journal journal = journalPath != null ? new FileJournal(Paths.get(journalPath)) : new NoopJournal();
+        SnapshotStore snapshotStore = journalPath != null ? new SnapshotStore(Paths.get(journalPath), journal) : null;
+        MappedAccountServiceImpl mappedStore = accountStorePath != null
+                ? new MappedAccountServiceImpl(Paths.get(accountStorePath), accountCapacity)
+                : null;
+        CachingAccountServiceImpl cache = mappedStore != null && accountCache > 0
+                ? new CachingAccountServiceImpl(mappedStore, accountCache)
+                : null;
+        AccountService accountService = cache != null ? cache
+                : mappedStore != null ? mappedStore
+                : servePort != null && !ringEngine && !shardedEngine ? new ConcurrentAccountServiceImpl()
+                : new AccountServiceImpl();
+        ScopedSessionService sessions = new ScopedSessionService();
+        ScopedEventSink scopedEvents = new ScopedEventSink();
+        SessionService sessionService = servePort != null ? sessions : new SessionServiceImpl();
+        EventSink events = servePort != null ? scopedEvents
+                : quiet && scriptPath != null ? new NoopEventSink()
+                : outputPath != null ? new AsyncEventSink(new FileEventSink(Paths.get(outputPath)), EVENT_QUEUE_CAPACITY)
+                : new ConsoleEventSink();
+        BankService bankService;
+        RingBufferBankService ring = null;
+        ShardedBankService sharded = null;
+        // In server mode no connection is bound yet, so send the recovery report to the console
+        scopedEvents.bind(new ConsoleEventSink());
+        if (ringEngine) {
+            ring = new RingBufferBankService(accountService, sessionService, journal, events);
+            ring.setRepaymentOrder(repaymentOrder);
+            if (snapshotStore != null) {
+                ring.enableSnapshots(snapshotStore, snapshotEvery);
+            }
+            ring.recover();
+            bankService = ring;
+        } else if (shardedEngine) {
+            sharded = new ShardedBankService(shardCount, sessionService, events);
+            sharded.setRepaymentOrder(repaymentOrder);
+            bankService = sharded;
+        } else {
+            BankServiceImpl locking = new BankServiceImpl(accountService, sessionService, journal, events);
+            locking.setRepaymentOrder(repaymentOrder);
+            if (snapshotStore != null) {
+                locking.enableSnapshots(snapshotStore, snapshotEvery);
+            }
+            locking.recover();
+            bankService = locking;
+        }
+        scopedEvents.unbind();
+        reportSnapshotFailure(snapshotStore);
 
-        while (true) {
-            String input = scanner.nextLine().trim();
-            if (input.equals("exit")) break;
+        if (servePort != null) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), servePort);
+            if (sessionThreads == null && pipelineWorkers > 0) {
+                AtmServer server = new AtmServer(bankService, sessions, scopedEvents, address,
+                        SessionExecutors.platformPool(pipelineWorkers));
+                serve(server, server.getPort());
+            } else if (sessionThreads == null) {
+                AtmServer server = new AtmServer(bankService, sessions, scopedEvents, address);
+                serve(server, server.getPort());
+            } else {
+                ExecutorService executor = sessionThreads.equals("virtual")
+                        ? SessionExecutors.virtualThreadPerSession()
+                        : SessionExecutors.platformPool(Integer.parseInt(sessionThreads));
+                ThreadPerSessionAtmServer server = new ThreadPerSessionAtmServer(bankService, sessions, scopedEvents,
+                        address, executor);
+                serve(server, server.getPort());
+            }
+        } else {
+            CommandService commandService = new CommandServiceImpl(bankService, sessionService);
+            AtmCli atmCli = new AtmCli(commandService, sessionService, new Scanner(System.in));
+            if (scriptPath != null) {
+                runScript(atmCli, Paths.get(scriptPath), quiet);
+            } else {
+                atmCli.start();
+            }
+        }
+        if (ring != null) {
+            ring.close();
+        }
+        if (sharded != null) {
+            sharded.close();
+        }
+        events.close();
+        if (snapshotStore != null) {
+            snapshotStore.close();
+            reportSnapshotFailure(snapshotStore);
+        }
+        journal.close();
+        if (cache != null) {
+            cache.flush();
+        }
+        if (mappedStore != null) {
+            mappedStore.close();
+        }
+    }
 
+    private static void reportSnapshotFailure(SnapshotStore snapshotStore) {
+        if (snapshotStore != null) {
+            snapshotStore.getFailure().ifPresent(e -> System.err.print("Warning: " + e.getMessage()));
+        }
+    }
+
+    // Serves until the process is interrupted, then lets main close the journal and stores
+    private static <T extends Runnable & Closeable> void serve(T server, int port) {
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Error: Cannot stop server: " + e.getMessage());
+            }
             try {
-                processCommand(input);
-            } catch (Exception e) {
-                System.out.println("Error: " + e.getMessage());
+                mainThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+        }));
+        System.out.println("Serving on 127.0.0.1:" + port);
+        server.run();
+    }
+
+    private static void runScript(AtmCli atmCli, Path script, boolean quiet) {
+        PrintStream console = System.out;
+        PrintStream results = quiet
+                ? new PrintStream(OutputStream.nullOutputStream())
+                : new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), SCRIPT_BUFFER_SIZE));
+        System.setOut(results);
+        try (BufferedReader reader = Files.newBufferedReader(script)) {
+            atmCli.runScript(reader, console);
+        } catch (IOException e) {
+            console.println("Error: Cannot read script " + script + ": " + e.getMessage());
+        } finally {
+            results.flush();
+            System.setOut(console);
         }
-        scanner.close();
     }
 
-    private void printWelcomeMessage() {
-        System.out.println("Welcome to ATM CLI");
-        System.out.println("* `login [name]` - Logs in as this customer and creates the customer if not exist");
-        System.out.println("* `deposit [amount]` - Deposits this amount to the logged in customer");
-        System.out.println("* `withdraw [amount]` - Withdraws this amount from the logged in customer");
-        System.out.println("* `transfer [target] [amount]` - Transfers this amount from the logged in customer to the target customer");
-        System.out.println("* `logout` - Logs out of the current customer");
-        System.out.println("Please type command!\n");
+    public void start() {
+        processor.printWelcomeMessage();
+
+        while (processor.handleLine(scanner.nextLine())) {
+            // Keep reading commands until exit
+        }
+        scanner.close();
     }
 
-    private void processCommand(String input) {
-        String[] parts = input.split(" ");
-        switch (parts[0]) {
-            case "login":
-                if (parts.length < 2) {
-                    throw new IllegalArgumentException("Error: login requires amount (usage: login <name>)\n");
-                }
-                commandService.login(parts[1]);
-                break;
-            case "deposit":
-                if (parts.length < 2) {
-                    throw new IllegalArgumentException("Error: Deposit requires amount (usage: deposit <amount>)\n");
-                } else {
-                    try {
-                        BigDecimal amount = new BigDecimal(parts[1]);
-                        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                            System.out.println("Error: Amount must be positive\n");
-                        } else {
-                            commandService.deposit(amount);
-                        }
-                    } catch (NumberFormatException e) {
-                        System.out.println("Error: Invalid amount format\n");
-                    }
-                }
-                break;
-            case "withdraw":
-                if (parts.length < 2) {
-                    throw new IllegalArgumentException("Error: Withdraw requires amount (usage: withdraw <amount>)\n");
-                } else {
-                    try {
-                        BigDecimal amount = new BigDecimal(parts[1]);
-                        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                            System.out.println("Error: Amount must be positive\n");
-                            return;
-                        }
-                        commandService.withdraw(amount);
-                    } catch (NumberFormatException e) {
-                        System.out.println("Error: Invalid amount format\n");
-                    }
-                }
-                break;
-            case "transfer":
-                if (parts.length < 3) {
-                    throw new IllegalArgumentException("Error: Transfer requires recipient account and amount (usage: transfer <account> <amount>)\n");
-                } else {
-                    String targetAccount = parts[1].toLowerCase();
-                    String currentUser = sessionService.getCurrentUser();
-
-                    if (targetAccount.equals(currentUser)) {
-                        System.out.println("Error: Cannot transfer money to yourself\n");
-                        return;
-                    }
-
-                    try {
-                        BigDecimal amount = new BigDecimal(parts[2]);
-                        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                            System.out.println("Error: Amount must be positive\n");
-                            return;
-                        }
-                        commandService.transfer(parts[1], amount);
-                    } catch (NumberFormatException e) {
-                        System.out.println("Error: Invalid amount format\n");
-                    }
-                }
-                break;
-            case "logout":
-                commandService.logout();
-                break;
-            default:
-                System.out.println("Invalid command\n");
+    /**
+     * Runs every command from the reader without prompts until it ends or reads {@code exit}, then
+     * prints the number of commands, errors and commands per second to {@code report}. Command
+     * results go to {@code System.out} as usual, so point it at a large buffered stream first.
+     */
+    public void runScript(BufferedReader reader, PrintStream report) throws IOException {
+        long start = System.nanoTime();
+        long commands = 0;
+        long errorsBefore = processor.getErrorCount();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String input = line.trim();
+            if (input.isEmpty()) {
+                continue;
+            }
+            if (!processor.handleLine(input)) break;
+            commands++;
         }
+        System.out.flush();
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        long commandsPerSecond = commands * 1_000_000_000L / elapsedNanos;
+        long errors = processor.getErrorCount() - errorsBefore;
+        report.println("Processed " + commands + " commands with " + errors + " errors in "
+                + elapsedNanos / 1_000_000 + " ms (" + commandsPerSecond + " commands/sec)");
+    }
+
+    /**
+     * Adds a command, or replaces the handler of an existing one.
+     */
+    public void registerCommand(String name, CommandHandler handler) {
+        processor.registerCommand(name, handler);
     }
-}
\ No newline at end of file
+}
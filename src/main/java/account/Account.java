@@ -3,8 +3,7 @@ package account;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
-
-import java.math.BigDecimal;
+import utils.NameCodec;
 
 @Getter
 @Setter
@@ -13,11 +12,6 @@ public class Account extends BaseAccount {
     private String name;
 
     public Account(String name) {
-        this.name = name.toLowerCase();
-        this.balance = BigDecimal.ZERO;
-    }
-
-    public BigDecimal getBalance() {
-        return balance;
+        this.name = NameCodec.foldCase(name);
     }
 }
@@ -0,0 +1,96 @@
+package account;
+
+import utils.NameCodec;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that accounts map onto by their packed name, so operations on different
+ * accounts rarely share one. An operation that needs several accounts locks their stripes in
+ * ascending index order, the one global order, which rules out deadlock between operations that
+ * lock overlapping sets. Stores may hand out a fresh {@link Account} object per lookup, so locking
+ * by name rather than on the object is what makes two operations on one account exclude each other.
+ * The locks are {@link ReentrantLock}s: a virtual thread waiting for one does not pin its carrier.
+ */
+public class AccountLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * @param stripes number of locks, rounded up to a power of two
+     */
+    public AccountLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * The stripe of an account name. Names that are not valid all share stripe 0; no account can
+     * exist under them.
+     */
+    public int stripe(String name) {
+        return NameCodec.isValid(name) ? stripe(NameCodec.high(name), NameCodec.low(name)) : 0;
+    }
+
+    public int stripe(long high, long low) {
+        long hash = (high * 0x9E3779B97F4A7C15L) ^ low;
+        hash ^= hash >>> 32;
+        return (int) hash & mask;
+    }
+
+    public void lock(int stripe) {
+        stripes[stripe].lock();
+    }
+
+    public void unlock(int stripe) {
+        stripes[stripe].unlock();
+    }
+
+    /**
+     * Locks two stripes in the global order, or one if they are the same.
+     */
+    public void lock(int first, int second) {
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    public void unlock(int first, int second) {
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    /**
+     * Locks the first {@code count} stripes of the array in the global order. Sorts them and drops
+     * duplicates in place, and returns how many distinct stripes were locked; pass the same array
+     * and that count to {@link #unlockAll}.
+     */
+    public int lockAll(int[] stripeIndexes, int count) {
+        Arrays.sort(stripeIndexes, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || stripeIndexes[distinct - 1] != stripeIndexes[i]) {
+                stripeIndexes[distinct++] = stripeIndexes[i];
+            }
+        }
+        for (int i = 0; i < distinct; i++) {
+            stripes[stripeIndexes[i]].lock();
+        }
+        return distinct;
+    }
+
+    public void unlockAll(int[] stripeIndexes, int distinct) {
+        for (int i = distinct - 1; i >= 0; i--) {
+            stripes[stripeIndexes[i]].unlock();
+        }
+    }
+}
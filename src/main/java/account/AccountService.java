@@ -1,7 +1,12 @@
 package account;
 
+import java.util.Collection;
+
 public interface AccountService {
     Account createAccount(String name);
     Account getAccount(String name);
+    /** Returns the account, or null if it does not exist. Never creates one. */
+    Account findAccount(String name);
     void updateAccount(Account account);
-}
\ No newline at end of file
+    Collection<Account> getAccounts();
+}
@@ -1,27 +1,69 @@
 package account;
 
-import utils.AccountValidationUtils;
+import utils.BloomFilter;
+import utils.NameCodec;
+import utils.PackedNameMap;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collection;
 
 public class AccountServiceImpl implements AccountService {
-    private final Map<String, Account> accounts = new HashMap<>();
+    private static final long INITIAL_FILTER_SIZE = 1024;
+
+    private final PackedNameMap<Account> accounts = new PackedNameMap<>();
+    // Lets findAccount reject unknown names without probing the map; rebuilt larger as accounts grow
+    private BloomFilter knownNames = new BloomFilter(INITIAL_FILTER_SIZE);
 
     @Override
     public Account createAccount(String name) {
-        AccountValidationUtils.validateAccountName(name);
-        return accounts.computeIfAbsent(name.toLowerCase(), Account::new);
+        // Packing the name rejects an invalid one, so it is not checked separately first
+        return getAccount(name);
     }
 
     @Override
     public Account getAccount(String name) {
-        return accounts.computeIfAbsent(name.toLowerCase(), Account::new);
+        long high = NameCodec.high(name);
+        long low = NameCodec.low(name);
+        Account account = accounts.get(high, low);
+        if (account == null) {
+            account = new Account(name);
+            insert(high, low, account);
+        }
+        return account;
+    }
+
+    @Override
+    public Account findAccount(String name) {
+        if (!NameCodec.isValid(name)) {
+            return null;
+        }
+        long high = NameCodec.high(name);
+        long low = NameCodec.low(name);
+        if (!knownNames.mightContain(high, low)) {
+            return null;
+        }
+        return accounts.get(high, low);
     }
 
     @Override
     public void updateAccount(Account account) {
-        accounts.put(account.getName().toLowerCase(), account);
+        insert(NameCodec.high(account.getName()), NameCodec.low(account.getName()), account);
     }
 
-}
\ No newline at end of file
+    @Override
+    public Collection<Account> getAccounts() {
+        return accounts.values();
+    }
+
+    private void insert(long high, long low, Account account) {
+        if (accounts.put(high, low, account) != null) {
+            return;
+        }
+        if (accounts.size() > knownNames.getExpectedInsertions()) {
+            BloomFilter larger = new BloomFilter(knownNames.getExpectedInsertions() * 4);
+            accounts.forEach((knownHigh, knownLow, known) -> larger.add(knownHigh, knownLow));
+            knownNames = larger;
+        } else {
+            knownNames.add(high, low);
+        }
+    }
+}
@@ -1,23 +1,202 @@
 package account;
 
+import utils.Amount;
+import utils.MoneyUtils;
+
 import java.math.BigDecimal;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Balance state guarded by a {@link ReentrantLock} per account rather than its monitor, so a virtual
+ * thread waiting for a busy account releases its carrier thread instead of pinning it.
+ */
 public abstract class BaseAccount {
-    protected BigDecimal balance;
+    // Orders the locks of two accounts whose identity hashes collide
+    private static final ReentrantLock TIE_LOCK = new ReentrantLock();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Balance in minor units at MoneyUtils.SCALE, guarded by lock
+    protected long balance;
+    // Largest scale the caller has used so far, so printed balances keep the input's precision
+    protected int displayScale;
+
+    public long getBalanceMinorUnits() {
+        lock.lock();
+        try {
+            return balance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public BigDecimal getBalance() {
+        lock.lock();
+        try {
+            return MoneyUtils.toBigDecimal(balance, displayScale);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The balance with the decimal places {@link #getBalance()} prints, without a {@link BigDecimal}.
+     */
+    public Amount getBalanceAmount() {
+        lock.lock();
+        try {
+            return Amount.ofMinorUnits(balance, displayScale);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Amounts in minor units widen the printed precision as far as they need, so {@code deposit(150)}
+     * prints as 1.5 rather than being cut to 1.
+     *
+     * @throws IllegalArgumentException if the amount is negative
+     */
+    public void deposit(long amount) {
+        deposit(amount, MoneyUtils.displayScale(amount));
+    }
+
+    public void withdraw(long amount) {
+        withdraw(amount, MoneyUtils.displayScale(amount));
+    }
+
+    /**
+     * Moves the amount atomically: both accounts stay locked from the withdrawal to the deposit,
+     * and they are locked in one global order so opposite transfers cannot deadlock.
+     */
+    public void transfer(Account target, long amount) {
+        requireNotNegative(amount);
+        transfer(target, amount, MoneyUtils.displayScale(amount));
+    }
+
+    /**
+     * Widens the printed precision to the amount's scale, so depositing 2.50 prints balances as 2.50.
+     */
+    public void deposit(Amount amount) {
+        deposit(amount.getMinorUnits(), amount.getScale());
+    }
+
+    public void withdraw(Amount amount) {
+        withdraw(amount.getMinorUnits(), amount.getScale());
+    }
+
+    public void transfer(Account target, Amount amount) {
+        requireNotNegative(amount.getMinorUnits());
+        transfer(target, amount.getMinorUnits(), amount.getScale());
+    }
 
     public void deposit(BigDecimal amount) {
-        this.balance = this.balance.add(amount);
+        deposit(Amount.of(amount));
     }
 
     public void withdraw(BigDecimal amount) {
-        if (balance.compareTo(amount) < 0) {
-            throw new IllegalStateException("Insufficient funds\n");
-        }
-        this.balance = this.balance.subtract(amount);
+        withdraw(Amount.of(amount));
     }
 
     public void transfer(Account target, BigDecimal amount) {
-        this.withdraw(amount);
-        target.deposit(amount);
+        transfer(target, Amount.of(amount));
+    }
+
+    /**
+     * Replaces the balance outright, used when rebuilding state from the journal.
+     */
+    public void restoreBalance(Amount balance) {
+        load(balance.getMinorUnits(), balance.getScale());
+    }
+
+    public void restoreBalance(BigDecimal balance) {
+        restoreBalance(Amount.of(balance));
+    }
+
+    // Used by stores that keep the balance outside the object and hand out transient accounts
+    void load(long balance, int displayScale) {
+        lock.lock();
+        try {
+            this.balance = balance;
+            this.displayScale = displayScale;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getDisplayScale() {
+        lock.lock();
+        try {
+            return displayScale;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deposit(long amount, int scale) {
+        requireNotNegative(amount);
+        lock.lock();
+        try {
+            this.balance = MoneyUtils.add(this.balance, amount);
+            displayScale = Math.max(displayScale, scale);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void withdraw(long amount, int scale) {
+        requireNotNegative(amount);
+        lock.lock();
+        try {
+            if (balance < amount) {
+                throw new IllegalStateException("Insufficient funds\n");
+            }
+            this.balance = MoneyUtils.subtract(this.balance, amount);
+            displayScale = Math.max(displayScale, scale);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void transfer(BaseAccount target, long amount, int scale) {
+        int thisHash = System.identityHashCode(this);
+        int targetHash = System.identityHashCode(target);
+        if (this == target || thisHash != targetHash) {
+            BaseAccount first = thisHash <= targetHash ? this : target;
+            BaseAccount second = first == this ? target : this;
+            lockBoth(first, second, target, amount, scale);
+        } else {
+            TIE_LOCK.lock();
+            try {
+                lockBoth(this, target, target, amount, scale);
+            } finally {
+                TIE_LOCK.unlock();
+            }
+        }
+    }
+
+    private void lockBoth(BaseAccount first, BaseAccount second, BaseAccount target, long amount, int scale) {
+        first.lock.lock();
+        try {
+            second.lock.lock();
+            try {
+                move(target, amount, scale);
+            } finally {
+                second.lock.unlock();
+            }
+        } finally {
+            first.lock.unlock();
+        }
+    }
+
+    // Caller holds both locks
+    private void move(BaseAccount target, long amount, int scale) {
+        withdraw(amount, scale);
+        target.deposit(amount, scale);
+    }
+
+    private static void requireNotNegative(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative\n");
+        }
     }
 }
@@ -0,0 +1,267 @@
+package account;
+
+import lombok.Getter;
+import utils.FrequencySketch;
+import utils.NameCodec;
+import utils.PackedNameMap;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the hot accounts of a slower backing {@link AccountService} on the heap, evicting with
+ * W-TinyLFU.
+ * <p>
+ * New accounts enter a small LRU window (1% of the cache). When the window overflows its oldest
+ * entry competes with the oldest entry of the main segment and whichever a {@link FrequencySketch}
+ * says was used less often is evicted, so a burst of one-off lookups cannot flush the regulars. The
+ * main segment is a segmented LRU: entries hit again while on probation are promoted to the
+ * protected part (80% of the main segment).
+ * <p>
+ * {@link #updateAccount} only marks the cached account dirty; it is written to the backing store
+ * when evicted or on {@link #flush()}. Queues, index and counters share one
+ * lock.
+ */
+public class CachingAccountServiceImpl implements AccountService {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final AccountService backingStore;
+    private final PackedNameMap<Node> index = new PackedNameMap<>();
+    private final FrequencySketch sketch;
+    private final Node[] queues = {new Node(), new Node(), new Node()};
+    private final int[] queueSizes = new int[3];
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final int mainCapacity;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Getter
+    private long hitCount;
+    @Getter
+    private long missCount;
+    @Getter
+    private long evictionCount;
+
+    public CachingAccountServiceImpl(AccountService backingStore, int maximumSize) {
+        if (maximumSize < 2) {
+            throw new IllegalArgumentException("Cache size must be at least 2\n");
+        }
+        this.backingStore = backingStore;
+        this.sketch = new FrequencySketch(maximumSize);
+        this.windowCapacity = Math.max(1, maximumSize / 100);
+        this.mainCapacity = maximumSize - windowCapacity;
+        this.protectedCapacity = mainCapacity * 4 / 5;
+        for (Node head : queues) {
+            head.previous = head;
+            head.next = head;
+        }
+    }
+
+    @Override
+    public Account createAccount(String name) {
+        lock.lock();
+        try {
+            Node node = lookup(name);
+            if (node != null) {
+                return node.account;
+            }
+            return admit(backingStore.createAccount(name), false).account;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Account getAccount(String name) {
+        lock.lock();
+        try {
+            Node node = lookup(name);
+            if (node != null) {
+                return node.account;
+            }
+            return admit(backingStore.getAccount(name), false).account;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Account findAccount(String name) {
+        lock.lock();
+        try {
+            if (!NameCodec.isValid(name)) {
+                return null;
+            }
+            Node node = lookup(name);
+            if (node != null) {
+                return node.account;
+            }
+            Account account = backingStore.findAccount(name);
+            return account == null ? null : admit(account, false).account;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateAccount(Account account) {
+        lock.lock();
+        try {
+            Node node = index.get(account.getName());
+            if (node == null) {
+                admit(account, true);
+                return;
+            }
+            node.account = account;
+            node.dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes dirty accounts back first, so the backing store's view is complete.
+     */
+    @Override
+    public Collection<Account> getAccounts() {
+        lock.lock();
+        try {
+            flush();
+            return backingStore.getAccounts();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void flush() {
+        lock.lock();
+        try {
+            for (Node head : queues) {
+                for (Node node = head.next; node != head; node = node.next) {
+                    writeBack(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Node lookup(String name) {
+        long high = NameCodec.high(name);
+        long low = NameCodec.low(name);
+        sketch.increment(hash(high, low));
+
+        Node node = index.get(high, low);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        onHit(node);
+        return node;
+    }
+
+    private void onHit(Node node) {
+        if (node.queue == PROBATION) {
+            // Used again while on probation: promote, demoting the oldest protected entry if full
+            unlink(node);
+            link(node, PROTECTED);
+            if (queueSizes[PROTECTED] > protectedCapacity) {
+                Node demoted = queues[PROTECTED].next;
+                unlink(demoted);
+                link(demoted, PROBATION);
+            }
+        } else {
+            unlink(node);
+            link(node, node.queue);
+        }
+    }
+
+    private Node admit(Account account, boolean dirty) {
+        Node node = new Node();
+        node.high = NameCodec.high(account.getName());
+        node.low = NameCodec.low(account.getName());
+        node.account = account;
+        node.dirty = dirty;
+        index.put(node.high, node.low, node);
+        link(node, WINDOW);
+
+        if (queueSizes[WINDOW] > windowCapacity) {
+            Node candidate = queues[WINDOW].next;
+            unlink(candidate);
+            link(candidate, PROBATION);
+            if (queueSizes[PROBATION] + queueSizes[PROTECTED] > mainCapacity) {
+                evictLoser(candidate);
+            }
+        }
+        return node;
+    }
+
+    // The window's oldest entry and the main segment's oldest entry compete; the less frequent one goes
+    private void evictLoser(Node candidate) {
+        Node victim = queues[PROBATION].next;
+        if (victim == candidate) {
+            victim = queues[PROTECTED].next;
+        }
+        int candidateFrequency = sketch.frequency(hash(candidate.high, candidate.low));
+        int victimFrequency = sketch.frequency(hash(victim.high, victim.low));
+        evict(candidateFrequency > victimFrequency ? victim : candidate);
+    }
+
+    private void evict(Node node) {
+        unlink(node);
+        index.remove(node.high, node.low);
+        writeBack(node);
+        evictionCount++;
+    }
+
+    private void writeBack(Node node) {
+        if (node.dirty) {
+            backingStore.updateAccount(node.account);
+            node.dirty = false;
+        }
+    }
+
+    private void link(Node node, int queue) {
+        Node head = queues[queue];
+        node.queue = queue;
+        node.previous = head.previous;
+        node.next = head;
+        head.previous.next = node;
+        head.previous = node;
+        queueSizes[queue]++;
+    }
+
+    private void unlink(Node node) {
+        node.previous.next = node.next;
+        node.next.previous = node.previous;
+        queueSizes[node.queue]--;
+    }
+
+    private static long hash(long high, long low) {
+        return high * 0x9E3779B97F4A7C15L ^ low;
+    }
+
+    // Entry in one of the three access-ordered lists; each list's head is a sentinel, oldest first
+    private static class Node {
+        private long high;
+        private long low;
+        private Account account;
+        private boolean dirty;
+        private int queue;
+        private Node previous;
+        private Node next;
+    }
+}
@@ -0,0 +1,140 @@
+package account;
+
+import utils.BloomFilter;
+import utils.NameCodec;
+import utils.PackedNameMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe {@link AccountService} for several terminals sharing one bank.
+ * Accounts are keyed by their {@link NameCodec} packing, like {@link AccountServiceImpl}, in a fixed
+ * set of {@link PackedNameMap} stripes. Each stripe has its own read/write lock, so lookups share
+ * it and only creating an account in the same stripe makes them wait; balance updates lock only the
+ * account being changed. As there, a Bloom filter per stripe lets {@link #findAccount} reject
+ * unknown names without probing the map.
+ */
+public class ConcurrentAccountServiceImpl implements AccountService {
+    private static final int STRIPE_BITS = 6;
+    private static final long INITIAL_FILTER_SIZE = 1024;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    public ConcurrentAccountServiceImpl() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public Account createAccount(String name) {
+        // Packing the name rejects an invalid one, so it is not checked separately first
+        return getAccount(name);
+    }
+
+    @Override
+    public Account getAccount(String name) {
+        long high = NameCodec.high(name);
+        long low = NameCodec.low(name);
+        Stripe stripe = stripe(high, low);
+        // Shared lock first: most lookups find an existing account
+        Account account = stripe.get(high, low);
+        if (account != null) {
+            return account;
+        }
+        stripe.lock.writeLock().lock();
+        try {
+            account = stripe.accounts.get(high, low);
+            if (account == null) {
+                account = new Account(name);
+                stripe.insert(high, low, account);
+            }
+            return account;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Account findAccount(String name) {
+        if (!NameCodec.isValid(name)) {
+            return null;
+        }
+        long high = NameCodec.high(name);
+        long low = NameCodec.low(name);
+        Stripe stripe = stripe(high, low);
+        stripe.lock.readLock().lock();
+        try {
+            return stripe.knownNames.mightContain(high, low) ? stripe.accounts.get(high, low) : null;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAccount(Account account) {
+        long high = NameCodec.high(account.getName());
+        long low = NameCodec.low(account.getName());
+        Stripe stripe = stripe(high, low);
+        stripe.lock.writeLock().lock();
+        try {
+            stripe.insert(high, low, account);
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A copy of the accounts at the time of the call; accounts created meanwhile may be missing.
+     */
+    @Override
+    public Collection<Account> getAccounts() {
+        List<Account> accounts = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.readLock().lock();
+            try {
+                accounts.addAll(stripe.accounts.values());
+            } finally {
+                stripe.lock.readLock().unlock();
+            }
+        }
+        return accounts;
+    }
+
+    private Stripe stripe(long high, long low) {
+        return stripes[(int) ((high * 0x9E3779B97F4A7C15L ^ low) >>> (Long.SIZE - STRIPE_BITS))];
+    }
+
+    private static final class Stripe {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final PackedNameMap<Account> accounts = new PackedNameMap<>();
+        // Rebuilt larger as the stripe's accounts grow
+        private BloomFilter knownNames = new BloomFilter(INITIAL_FILTER_SIZE);
+
+        private Account get(long high, long low) {
+            lock.readLock().lock();
+            try {
+                return accounts.get(high, low);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Caller holds the write lock
+        private void insert(long high, long low, Account account) {
+            if (accounts.put(high, low, account) != null) {
+                return;
+            }
+            if (accounts.size() > knownNames.getExpectedInsertions()) {
+                BloomFilter larger = new BloomFilter(knownNames.getExpectedInsertions() * 4);
+                accounts.forEach((knownHigh, knownLow, known) -> larger.add(knownHigh, knownLow));
+                knownNames = larger;
+            } else {
+                knownNames.add(high, low);
+            }
+        }
+    }
+}
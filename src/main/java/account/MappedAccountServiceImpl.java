@@ -0,0 +1,319 @@
+package account;
+
+import utils.AccountValidationUtils;
+import utils.NameCodec;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link AccountService} that keeps every account in a memory-mapped file instead of on the heap.
+ * <p>
+ * The file is an open-addressing hash table of fixed-size records: names are at most 20 ASCII letters,
+ * so a record is the lowercased name, the balance in minor units and its display scale. The slot is
+ * found by hashing the name and probing linearly, so the index lives in the same mapped pages as the
+ * data and survives restarts with it. Heap usage does not grow with the number of accounts.
+ * <p>
+ * Accounts returned by {@link #getAccount} are transient copies of a record; changes are written
+ * back by {@link #updateAccount}, which every {@code BankService} operation already calls. The table
+ * and its record count are guarded by one lock.
+ */
+public class MappedAccountServiceImpl implements AccountService, AutoCloseable {
+
+    private static final int MAGIC = 0x41544D41;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+
+    private static final int NAME_LENGTH = 20;
+    private static final int RECORD_SIZE = 32;
+    private static final int LENGTH_OFFSET = 0;
+    private static final int SCALE_OFFSET = 1;
+    private static final int NAME_OFFSET = 2;
+    private static final int BALANCE_OFFSET = 24;
+
+    // 2^25 records of 32 bytes is a 1 GB mapping, safely below the 2 GB limit of one buffer
+    private static final int CHUNK_SHIFT = 25;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] chunks;
+    private final long capacity;
+    private final long mask;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long count;
+
+    /**
+     * Opens the store at {@code file}, creating it with room for at least {@code capacity} accounts
+     * if it does not exist. An existing file keeps the capacity it was created with.
+     */
+    public MappedAccountServiceImpl(Path file, long capacity) {
+        try {
+            boolean exists = Files.exists(file) && Files.size(file) >= HEADER_SIZE;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+            if (exists) {
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IllegalStateException("Not an account store: " + file + "\n");
+                }
+                this.capacity = header.getLong(CAPACITY_OFFSET);
+                this.count = header.getLong(COUNT_OFFSET);
+            } else {
+                // Keep the table at most 3/4 full so probe sequences stay short
+                this.capacity = Long.highestOneBit(Math.max(16, capacity * 4 / 3) * 2 - 1);
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(CAPACITY_OFFSET, this.capacity);
+                header.putLong(COUNT_OFFSET, 0);
+            }
+            this.mask = this.capacity - 1;
+
+            int chunkCount = (int) ((this.capacity + CHUNK_MASK) >>> CHUNK_SHIFT);
+            this.chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long records = Math.min(1L << CHUNK_SHIFT, this.capacity - ((long) i << CHUNK_SHIFT));
+                long position = HEADER_SIZE + ((long) i << CHUNK_SHIFT) * RECORD_SIZE;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, records * RECORD_SIZE);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open account store " + file + "\n", e);
+        }
+    }
+
+    @Override
+    public Account createAccount(String name) {
+        lock.lock();
+        try {
+            AccountValidationUtils.validateAccountName(name);
+            return load(name, findOrInsert(name));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Account getAccount(String name) {
+        lock.lock();
+        try {
+            AccountValidationUtils.validateAccountName(name);
+            return load(name, findOrInsert(name));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Account findAccount(String name) {
+        lock.lock();
+        try {
+            if (!NameCodec.isValid(name)) {
+                return null;
+            }
+            long slot = probe(name);
+            return chunk(slot).get(offset(slot) + LENGTH_OFFSET) == 0 ? null : load(name, slot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateAccount(Account account) {
+        lock.lock();
+        try {
+            long slot = findOrInsert(account.getName());
+            MappedByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            chunk.putLong(offset + BALANCE_OFFSET, account.getBalanceMinorUnits());
+            chunk.put(offset + SCALE_OFFSET, (byte) account.getDisplayScale());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Iterates the mapped records, creating one transient {@link Account} per step.
+     */
+    @Override
+    public Collection<Account> getAccounts() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Account> iterator() {
+                return new RecordIterator();
+            }
+
+            @Override
+            public int size() {
+                lock.lock();
+                try {
+                    return (int) Math.min(Integer.MAX_VALUE, count);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    public long size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces mapped pages to disk. Without it, data survives a process crash but not a power loss.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+            header.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot close account store\n", e);
+        }
+    }
+
+    private long findOrInsert(String name) {
+        long slot = probe(name);
+        if (chunk(slot).get(offset(slot) + LENGTH_OFFSET) == 0) {
+            insert(chunk(slot), offset(slot), name);
+        }
+        return slot;
+    }
+
+    // Returns the slot holding the name, or the empty slot where it would be inserted
+    private long probe(String name) {
+        long slot = hash(name) & mask;
+        while (true) {
+            MappedByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            int length = chunk.get(offset + LENGTH_OFFSET);
+            if (length == 0 || (length == name.length() && nameEquals(chunk, offset, name))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insert(MappedByteBuffer chunk, int offset, String name) {
+        if (count >= capacity - capacity / 4) {
+            throw new IllegalStateException("Account store is full\n");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            chunk.put(offset + NAME_OFFSET + i, (byte) Character.toLowerCase(name.charAt(i)));
+        }
+        chunk.putLong(offset + BALANCE_OFFSET, 0);
+        chunk.put(offset + SCALE_OFFSET, (byte) 0);
+        // Length last: a non-zero length marks the slot as used
+        chunk.put(offset + LENGTH_OFFSET, (byte) name.length());
+        count++;
+        header.putLong(COUNT_OFFSET, count);
+    }
+
+    private Account load(String name, long slot) {
+        MappedByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        Account account = new Account(name);
+        account.load(chunk.getLong(offset + BALANCE_OFFSET), chunk.get(offset + SCALE_OFFSET));
+        return account;
+    }
+
+    private static boolean nameEquals(MappedByteBuffer chunk, int offset, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (chunk.get(offset + NAME_OFFSET + i) != Character.toLowerCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the lowercased name, then a final mix so linear probing sees well spread slots
+    private static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= Character.toLowerCase(name.charAt(i));
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        return hash ^ (hash >>> 33);
+    }
+
+    private MappedByteBuffer chunk(long slot) {
+        return chunks[(int) (slot >>> CHUNK_SHIFT)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & CHUNK_MASK) * RECORD_SIZE;
+    }
+
+    private class RecordIterator implements Iterator<Account> {
+        private long next = advance(0);
+
+        @Override
+        public boolean hasNext() {
+            return next < capacity;
+        }
+
+        @Override
+        public Account next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lock.lock();
+            try {
+                long slot = next;
+                MappedByteBuffer chunk = chunk(slot);
+                int offset = offset(slot);
+                char[] name = new char[chunk.get(offset + LENGTH_OFFSET)];
+                for (int i = 0; i < name.length; i++) {
+                    name[i] = (char) chunk.get(offset + NAME_OFFSET + i);
+                }
+                next = advance(slot + 1);
+                return load(new String(name), slot);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long advance(long from) {
+            lock.lock();
+            try {
+                long candidate = from;
+                while (candidate < capacity && chunk(candidate).get(offset(candidate) + LENGTH_OFFSET) == 0) {
+                    candidate++;
+                }
+                return candidate;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package command;
 
 import session.SessionService;
+import utils.Amount;
 
 import java.math.BigDecimal;
 
@@ -28,4 +29,10 @@ public abstract class BaseCommand {
             throw new IllegalArgumentException("Amount must be positive\n");
         }
     }
+
+    protected void validateAmount(Amount amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive\n");
+        }
+    }
 }
\ No newline at end of file
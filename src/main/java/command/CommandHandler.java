@@ -0,0 +1,6 @@
+package command;
+
+@FunctionalInterface
+public interface CommandHandler {
+    void handle(CommandLine commandLine);
+}
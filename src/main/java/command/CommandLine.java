@@ -0,0 +1,88 @@
+package command;
+
+import utils.Amount;
+
+import java.util.Arrays;
+
+/**
+ * One input line split into space-separated tokens in place. Tokens are kept as offsets into the
+ * line, so reading a command and checking its arguments allocates nothing; only {@link #token}
+ * and {@link #amount} create objects, for values handed on to the services. Reuse one instance per
+ * input source with {@link #reset}.
+ */
+public class CommandLine {
+
+    private String line = "";
+    private int[] starts = new int[4];
+    private int[] ends = new int[4];
+    private int tokenCount;
+
+    public CommandLine reset(String line) {
+        this.line = line;
+        tokenCount = 0;
+        int length = line.length();
+        int position = 0;
+        while (position < length) {
+            while (position < length && Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+            if (position == length) {
+                break;
+            }
+            int start = position;
+            while (position < length && !Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+            addToken(start, position);
+        }
+        return this;
+    }
+
+    public int tokenCount() {
+        return tokenCount;
+    }
+
+    public String line() {
+        return line;
+    }
+
+    public int tokenStart(int index) {
+        return starts[index];
+    }
+
+    public int tokenLength(int index) {
+        return ends[index] - starts[index];
+    }
+
+    public String token(int index) {
+        return line.substring(starts[index], ends[index]);
+    }
+
+    /**
+     * Whether the token equals {@code other} ignoring case, e.g. a transfer target and the current user.
+     */
+    public boolean tokenEqualsIgnoreCase(int index, String other) {
+        return other != null && other.length() == tokenLength(index)
+                && line.regionMatches(true, starts[index], other, 0, other.length());
+    }
+
+    /**
+     * Parses the token with {@link Amount#parse}, e.g. {@code 100}, {@code -5} or {@code 12.50}.
+     *
+     * @throws NumberFormatException    if the token is not a plain decimal
+     * @throws IllegalArgumentException if it has too many decimal places or is out of range
+     */
+    public Amount amount(int index) {
+        return Amount.parse(line, starts[index], ends[index]);
+    }
+
+    private void addToken(int start, int end) {
+        if (tokenCount == starts.length) {
+            starts = Arrays.copyOf(starts, tokenCount * 2);
+            ends = Arrays.copyOf(ends, tokenCount * 2);
+        }
+        starts[tokenCount] = start;
+        ends[tokenCount] = end;
+        tokenCount++;
+    }
+}
@@ -0,0 +1,186 @@
+package command;
+
+import service.TransferLeg;
+import session.SessionService;
+import utils.Amount;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs text commands for one terminal: looks each line up in a {@link CommandRegistry}, checks the
+ * arguments and calls the {@link CommandService}. Errors are printed rather than thrown. The console
+ * CLI and every server connection each own one.
+ */
+public class CommandProcessor {
+
+    private final CommandService commandService;
+    private final SessionService sessionService;
+    // Null means whatever System.out is when something is printed
+    private final PrintStream out;
+    private final CommandRegistry commands = new CommandRegistry();
+    private final CommandLine commandLine = new CommandLine();
+    private long errorCount;
+
+    public CommandProcessor(CommandService commandService, SessionService sessionService, PrintStream out) {
+        this.commandService = commandService;
+        this.sessionService = sessionService;
+        this.out = out;
+        registerBuiltInCommands();
+    }
+
+    /**
+     * Runs one input line as a command, printing any error. Returns false if the line is {@code exit}.
+     */
+    public boolean handleLine(String line) {
+        String input = line.trim();
+        if (input.equals("exit")) {
+            return false;
+        }
+        execute(input);
+        return true;
+    }
+
+    /**
+     * Number of errors printed so far.
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public void printWelcomeMessage() {
+        PrintStream out = out();
+        out.println("Welcome to ATM CLI");
+        out.println("* `login [name]` - Logs in as this customer and creates the customer if not exist");
+        out.println("* `deposit [amount]` - Deposits this amount to the logged in customer");
+        out.println("* `withdraw [amount]` - Withdraws this amount from the logged in customer");
+        out.println("* `transfer [target] [amount]` - Transfers this amount from the logged in customer to the target customer");
+        out.println("* `batch [target] [amount] ...` - Transfers to each target in turn as one command");
+        out.println("* `logout` - Logs out of the current customer");
+        out.println("* `net` - Cancels out circular debts between customers");
+        out.println("Please type command!\n");
+    }
+
+    /**
+     * Adds a command, or replaces the handler of an existing one.
+     */
+    public void registerCommand(String name, CommandHandler handler) {
+        commands.register(name, handler);
+    }
+
+    private PrintStream out() {
+        return out != null ? out : System.out;
+    }
+
+    private void execute(String input) {
+        try {
+            processCommand(input);
+        } catch (Exception e) {
+            printError("Error: " + e.getMessage());
+        }
+    }
+
+    private void printError(String message) {
+        errorCount++;
+        out().println(message);
+    }
+
+    private void registerBuiltInCommands() {
+        commands.register("login", this::login);
+        commands.register("deposit", this::deposit);
+        commands.register("withdraw", this::withdraw);
+        commands.register("transfer", this::transfer);
+        commands.register("batch", this::batch);
+        commands.register("logout", line -> commandService.logout());
+        commands.register("net", line -> commandService.netDebts());
+    }
+
+    private void processCommand(String input) {
+        CommandHandler handler = commands.lookup(commandLine.reset(input));
+        if (handler == null) {
+            printError("Invalid command\n");
+            return;
+        }
+        handler.handle(commandLine);
+    }
+
+    private void login(CommandLine line) {
+        if (line.tokenCount() < 2) {
+            throw new IllegalArgumentException("Error: login requires amount (usage: login <name>)\n");
+        }
+        commandService.login(line.token(1));
+    }
+
+    private void deposit(CommandLine line) {
+        if (line.tokenCount() < 2) {
+            throw new IllegalArgumentException("Error: Deposit requires amount (usage: deposit <amount>)\n");
+        }
+        Amount amount = parsePositiveAmount(line, 1);
+        if (amount != null) {
+            commandService.deposit(amount);
+        }
+    }
+
+    private void withdraw(CommandLine line) {
+        if (line.tokenCount() < 2) {
+            throw new IllegalArgumentException("Error: Withdraw requires amount (usage: withdraw <amount>)\n");
+        }
+        Amount amount = parsePositiveAmount(line, 1);
+        if (amount != null) {
+            commandService.withdraw(amount);
+        }
+    }
+
+    private void transfer(CommandLine line) {
+        if (line.tokenCount() < 3) {
+            throw new IllegalArgumentException("Error: Transfer requires recipient account and amount (usage: transfer <account> <amount>)\n");
+        }
+        String currentUser = sessionService.getCurrentUser();
+        if (line.tokenEqualsIgnoreCase(1, currentUser)) {
+            printError("Error: Cannot transfer money to yourself\n");
+            return;
+        }
+        Amount amount = parsePositiveAmount(line, 2);
+        if (amount != null) {
+            commandService.transfer(line.token(1), amount);
+        }
+    }
+
+    private void batch(CommandLine line) {
+        if (line.tokenCount() < 3 || line.tokenCount() % 2 == 0) {
+            throw new IllegalArgumentException("Error: Batch requires recipient and amount pairs (usage: batch <account> <amount> [<account> <amount>]...)\n");
+        }
+        String currentUser = sessionService.getCurrentUser();
+        List<TransferLeg> legs = new ArrayList<>(line.tokenCount() / 2);
+        for (int i = 1; i < line.tokenCount(); i += 2) {
+            if (line.tokenEqualsIgnoreCase(i, currentUser)) {
+                printError("Error: Cannot transfer money to yourself\n");
+                return;
+            }
+            Amount amount = parsePositiveAmount(line, i + 1);
+            if (amount == null) {
+                return;
+            }
+            legs.add(new TransferLeg(line.token(i), amount));
+        }
+        commandService.transferBatch(legs);
+    }
+
+    // Prints the error and returns null if the token is not a positive amount. Too many decimal
+    // places or an amount out of range throw, so they are reported before any service is called.
+    private Amount parsePositiveAmount(CommandLine line, int index) {
+        Amount amount;
+        try {
+            amount = line.amount(index);
+        } catch (NumberFormatException e) {
+            printError("Error: Invalid amount format\n");
+            return null;
+        }
+        if (amount.signum() <= 0) {
+            printError("Error: Amount must be positive\n");
+            return null;
+        }
+        return amount;
+    }
+}
@@ -0,0 +1,75 @@
+package command;
+
+/**
+ * Maps command words to handlers. Lookups hash the first token of a {@link CommandLine} where it
+ * sits in the line, so finding the handler allocates nothing. Command words are case-sensitive.
+ */
+public class CommandRegistry {
+
+    private String[] names = new String[16];
+    private CommandHandler[] handlers = new CommandHandler[16];
+    private int size;
+
+    public void register(String name, CommandHandler handler) {
+        if (name == null || name.isEmpty() || name.indexOf(' ') >= 0) {
+            throw new IllegalArgumentException("Command name must be a single word\n");
+        }
+        if ((size + 1) * 2 > names.length) {
+            grow();
+        }
+        int slot = slotFor(name, 0, name.length());
+        if (names[slot] == null) {
+            size++;
+        }
+        names[slot] = name;
+        handlers[slot] = handler;
+    }
+
+    /**
+     * Returns the handler for the line's first token, or null if the line is blank or the command unknown.
+     */
+    public CommandHandler lookup(CommandLine commandLine) {
+        if (commandLine.tokenCount() == 0) {
+            return null;
+        }
+        String line = commandLine.line();
+        int slot = slotFor(line, commandLine.tokenStart(0), commandLine.tokenLength(0));
+        return handlers[slot];
+    }
+
+    // Slot holding this name, or the empty slot where it would go
+    private int slotFor(String text, int start, int length) {
+        int mask = names.length - 1;
+        int slot = hash(text, start, length) & mask;
+        while (names[slot] != null) {
+            String name = names[slot];
+            if (name.length() == length && text.regionMatches(start, name, 0, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(String text, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        String[] oldNames = names;
+        CommandHandler[] oldHandlers = handlers;
+        names = new String[oldNames.length * 2];
+        handlers = new CommandHandler[oldNames.length * 2];
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int slot = slotFor(oldNames[i], 0, oldNames[i].length());
+                names[slot] = oldNames[i];
+                handlers[slot] = oldHandlers[i];
+            }
+        }
+    }
+}
@@ -1,11 +1,28 @@
 package command;
 
+import service.TransferLeg;
+import utils.Amount;
+
 import java.math.BigDecimal;
+import java.util.List;
 
 public interface CommandService {
     void login(String name);
     void deposit(BigDecimal amount);
     void withdraw(BigDecimal amount);
     void transfer(String target, BigDecimal amount);
+
+    /**
+     * Deposits an amount already parsed where it was read. It stays in minor units through the bank
+     * to the account, with no {@link BigDecimal} in between.
+     */
+    void deposit(Amount amount);
+
+    void withdraw(Amount amount);
+
+    void transfer(String target, Amount amount);
+
+    void transferBatch(List<TransferLeg> legs);
+    void netDebts();
     void logout();
 }
@@ -1,17 +1,30 @@
 package command;
 
-import enums.TransferMode;
-import lombok.RequiredArgsConstructor;
 import service.BankService;
+import service.TransferLeg;
 import session.SessionService;
+import utils.Amount;
 import utils.AccountValidationUtils;
 
+import java.io.PrintStream;
 import java.math.BigDecimal;
+import java.util.List;
 
-@RequiredArgsConstructor
 public class CommandServiceImpl extends BaseCommand implements CommandService {
     private final BankService bankService;
     private final SessionService sessionService;
+    // Null means whatever System.out is when a message is printed
+    private final PrintStream out;
+
+    public CommandServiceImpl(BankService bankService, SessionService sessionService) {
+        this(bankService, sessionService, null);
+    }
+
+    public CommandServiceImpl(BankService bankService, SessionService sessionService, PrintStream out) {
+        this.bankService = bankService;
+        this.sessionService = sessionService;
+        this.out = out;
+    }
 
     @Override
     public void login(String name) {
@@ -50,15 +63,58 @@ public class CommandServiceImpl extends BaseCommand implements CommandService {
         validateArgs(target);
         AccountValidationUtils.validateAccountName(target);
         validateAmount(amount);
-        bankService.setTransferMode(TransferMode.PARTIAL_ALLOWED);
         bankService.transfer(target, amount);
     }
 
+    @Override
+    public void deposit(Amount amount) {
+        checkLoggedIn(sessionService);
+        validateAmount(amount);
+        bankService.deposit(sessionService.getCurrentUser(), amount);
+    }
+
+    @Override
+    public void withdraw(Amount amount) {
+        checkLoggedIn(sessionService);
+        validateAmount(amount);
+        bankService.withdraw(sessionService.getCurrentUser(), amount);
+    }
+
+    @Override
+    public void transfer(String target, Amount amount) {
+        checkLoggedIn(sessionService);
+        // The one full check of the target; past here the bank and the stores only pack the name
+        validateArgs(target);
+        AccountValidationUtils.validateAccountName(target);
+        validateAmount(amount);
+        bankService.transfer(sessionService.getCurrentUser(), target, amount);
+    }
+
+    @Override
+    public void transferBatch(List<TransferLeg> legs) {
+        checkLoggedIn(sessionService);
+        if (legs == null || legs.isEmpty()) {
+            throw new IllegalArgumentException("Arguments cannot be null or empty\n");
+        }
+        for (TransferLeg leg : legs) {
+            validateArgs(leg.getTarget());
+            AccountValidationUtils.validateAccountName(leg.getTarget());
+            validateAmount(leg.getAmount());
+        }
+        bankService.transferBatch(legs);
+    }
+
+    @Override
+    public void netDebts() {
+        checkLoggedIn(sessionService);
+        bankService.netDebts();
+    }
+
     @Override
     public void logout() {
         checkLoggedIn(sessionService);
         String currentUser = sessionService.getCurrentUser();
         sessionService.logout();
-        System.out.println("Goodbye, " + currentUser + "!");
+        (out != null ? out : System.out).println("Goodbye, " + currentUser + "!");
     }
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package enums;
+
+public enum JournalOperation {
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    DEBT,
+    BATCH
+}
@@ -0,0 +1,6 @@
+package enums;
+
+public enum RepaymentOrder {
+    OLDEST_FIRST,
+    NEWEST_FIRST
+}
@@ -0,0 +1,7 @@
+package enums;
+
+public enum TransferOutcome {
+    TRANSFERRED,
+    PARTIAL,
+    INSUFFICIENT_FUNDS
+}
@@ -0,0 +1,157 @@
+package event;
+
+import utils.Amount;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Hands events to a background thread that passes them on to another sink, so the caller never
+ * waits on the delegate's I/O. Blocks the caller only when the queue is full. Events reach the
+ * delegate in the order they were emitted. A failure in the delegate is rethrown by the next
+ * {@link #flush()} or {@link #close()}.
+ */
+public class AsyncEventSink implements EventSink {
+
+    private static final Runnable STOP = () -> { };
+
+    private final EventSink delegate;
+    private final BlockingQueue<Runnable> queue;
+    private final Thread worker;
+    private volatile RuntimeException failure;
+
+    public AsyncEventSink(EventSink delegate, int capacity) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(this::drain, "event-sink");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return delegate.isEnabled();
+    }
+
+    @Override
+    public void greeted(String name) {
+        enqueue(() -> delegate.greeted(name));
+    }
+
+    @Override
+    public void balance(Amount balance) {
+        enqueue(() -> delegate.balance(balance));
+    }
+
+    @Override
+    public void transferred(Amount amount, String target) {
+        enqueue(() -> delegate.transferred(amount, target));
+    }
+
+    @Override
+    public void owedTo(long creditorHigh, long creditorLow, Amount amount) {
+        enqueue(() -> delegate.owedTo(creditorHigh, creditorLow, amount));
+    }
+
+    @Override
+    public void owedFrom(long debtorHigh, long debtorLow, Amount amount) {
+        enqueue(() -> delegate.owedFrom(debtorHigh, debtorLow, amount));
+    }
+
+    @Override
+    public void insufficientFunds(Amount balance) {
+        enqueue(() -> delegate.insufficientFunds(balance));
+    }
+
+    @Override
+    public void insufficientFundsForFullTransfer(Amount required, Amount available) {
+        enqueue(() -> delegate.insufficientFundsForFullTransfer(required, available));
+    }
+
+    @Override
+    public void debtsNetted(long cycles, long debtsSettled, Amount valueNetted) {
+        enqueue(() -> delegate.debtsNetted(cycles, debtsSettled, valueNetted));
+    }
+
+    @Override
+    public void recovered(int snapshotAccounts, long journalRecords, long elapsedMillis) {
+        enqueue(() -> delegate.recovered(snapshotAccounts, journalRecords, elapsedMillis));
+    }
+
+    @Override
+    public void commandCompleted() {
+        enqueue(delegate::commandCompleted);
+    }
+
+    /**
+     * Waits until every event emitted so far has reached the delegate, then flushes it.
+     */
+    @Override
+    public void flush() {
+        CountDownLatch drained = new CountDownLatch(1);
+        enqueue(() -> {
+            try {
+                delegate.flush();
+            } finally {
+                drained.countDown();
+            }
+        });
+        try {
+            drained.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while flushing output\n", e);
+        }
+        rethrowFailure();
+    }
+
+    /**
+     * Delivers the queued events, stops the worker and closes the delegate.
+     */
+    @Override
+    public void close() {
+        enqueue(STOP);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while closing output\n", e);
+        }
+        delegate.close();
+        rethrowFailure();
+    }
+
+    private void enqueue(Runnable event) {
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing output\n", e);
+        }
+    }
+
+    private void rethrowFailure() {
+        RuntimeException error = failure;
+        if (error != null) {
+            failure = null;
+            throw error;
+        }
+    }
+
+    private void drain() {
+        try {
+            for (Runnable event = queue.take(); event != STOP; event = queue.take()) {
+                try {
+                    event.run();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
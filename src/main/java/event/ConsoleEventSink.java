@@ -0,0 +1,17 @@
+package event;
+
+/**
+ * Prints to whatever {@code System.out} is at the time of each event.
+ */
+public class ConsoleEventSink extends TextEventSink {
+
+    @Override
+    protected void writeLine(CharSequence line) {
+        System.out.println(line);
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+}
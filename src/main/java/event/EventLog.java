@@ -0,0 +1,76 @@
+package event;
+
+import utils.Amount;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Keeps events in order so that another thread can pass them to the right sink later. Not
+ * thread-safe: one thread records, and the log is handed over before it is replayed.
+ */
+public class EventLog implements EventSink {
+
+    private final List<Consumer<EventSink>> events = new ArrayList<>();
+
+    public void replayTo(EventSink sink) {
+        for (Consumer<EventSink> event : events) {
+            event.accept(sink);
+        }
+    }
+
+    public void clear() {
+        events.clear();
+    }
+
+    @Override
+    public void greeted(String name) {
+        events.add(sink -> sink.greeted(name));
+    }
+
+    @Override
+    public void balance(Amount balance) {
+        events.add(sink -> sink.balance(balance));
+    }
+
+    @Override
+    public void transferred(Amount amount, String target) {
+        events.add(sink -> sink.transferred(amount, target));
+    }
+
+    @Override
+    public void owedTo(long creditorHigh, long creditorLow, Amount amount) {
+        events.add(sink -> sink.owedTo(creditorHigh, creditorLow, amount));
+    }
+
+    @Override
+    public void owedFrom(long debtorHigh, long debtorLow, Amount amount) {
+        events.add(sink -> sink.owedFrom(debtorHigh, debtorLow, amount));
+    }
+
+    @Override
+    public void insufficientFunds(Amount balance) {
+        events.add(sink -> sink.insufficientFunds(balance));
+    }
+
+    @Override
+    public void insufficientFundsForFullTransfer(Amount required, Amount available) {
+        events.add(sink -> sink.insufficientFundsForFullTransfer(required, available));
+    }
+
+    @Override
+    public void debtsNetted(long cycles, long debtsSettled, Amount valueNetted) {
+        events.add(sink -> sink.debtsNetted(cycles, debtsSettled, valueNetted));
+    }
+
+    @Override
+    public void recovered(int snapshotAccounts, long journalRecords, long elapsedMillis) {
+        events.add(sink -> sink.recovered(snapshotAccounts, journalRecords, elapsedMillis));
+    }
+
+    @Override
+    public void commandCompleted() {
+        events.add(EventSink::commandCompleted);
+    }
+}
@@ -0,0 +1,41 @@
+package event;
+
+import utils.Amount;
+
+/**
+ * Receives the results of bank operations as they happen. Events carry values rather than text, so
+ * a sink that discards them costs the caller nothing and each sink decides how to render them.
+ * Names of debt counterparties arrive packed with {@link utils.NameCodec} and are only decoded by
+ * sinks that print them.
+ */
+public interface EventSink extends AutoCloseable {
+    void greeted(String name);
+    void balance(Amount balance);
+    void transferred(Amount amount, String target);
+    void owedTo(long creditorHigh, long creditorLow, Amount amount);
+    void owedFrom(long debtorHigh, long debtorLow, Amount amount);
+    void insufficientFunds(Amount balance);
+    void insufficientFundsForFullTransfer(Amount required, Amount available);
+    void debtsNetted(long cycles, long debtsSettled, Amount valueNetted);
+    void recovered(int snapshotAccounts, long journalRecords, long elapsedMillis);
+
+    /**
+     * Marks the end of one command's results.
+     */
+    void commandCompleted();
+
+    /**
+     * False if every event is discarded, so callers can skip computing what only the sink would see,
+     * such as a balance or the debts of an account.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+    }
+}
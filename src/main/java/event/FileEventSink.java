@@ -0,0 +1,61 @@
+package event;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends events as text to a file through a large buffer. Lines reach the file when the buffer
+ * fills, on {@link #flush()} and on {@link #close()}.
+ */
+public class FileEventSink extends TextEventSink {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final BufferedWriter writer;
+
+    public FileEventSink(Path file) {
+        try {
+            this.writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open output file " + file + "\n", e);
+        }
+    }
+
+    @Override
+    protected void writeLine(CharSequence line) {
+        try {
+            writer.append(line).append('\n');
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write output\n", e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write output\n", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot close output\n", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package event;
+
+import utils.Amount;
+
+public class NoopEventSink implements EventSink {
+
+    @Override
+    public void greeted(String name) {
+    }
+
+    @Override
+    public void balance(Amount balance) {
+    }
+
+    @Override
+    public void transferred(Amount amount, String target) {
+    }
+
+    @Override
+    public void owedTo(long creditorHigh, long creditorLow, Amount amount) {
+    }
+
+    @Override
+    public void owedFrom(long debtorHigh, long debtorLow, Amount amount) {
+    }
+
+    @Override
+    public void insufficientFunds(Amount balance) {
+    }
+
+    @Override
+    public void insufficientFundsForFullTransfer(Amount required, Amount available) {
+    }
+
+    @Override
+    public void debtsNetted(long cycles, long debtsSettled, Amount valueNetted) {
+    }
+
+    @Override
+    public void recovered(int snapshotAccounts, long journalRecords, long elapsedMillis) {
+    }
+
+    @Override
+    public void commandCompleted() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+}
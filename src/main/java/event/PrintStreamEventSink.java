@@ -0,0 +1,22 @@
+package event;
+
+import java.io.PrintStream;
+
+public class PrintStreamEventSink extends TextEventSink {
+
+    private final PrintStream out;
+
+    public PrintStreamEventSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    protected void writeLine(CharSequence line) {
+        out.println(line);
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+}
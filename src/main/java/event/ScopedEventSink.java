@@ -0,0 +1,89 @@
+package event;
+
+import utils.Amount;
+
+/**
+ * Passes each event to the sink bound to the calling thread, so a bank shared by many terminals
+ * answers each one on its own connection. Events emitted with no sink bound are dropped.
+ */
+public class ScopedEventSink implements EventSink {
+
+    private static final EventSink NONE = new NoopEventSink();
+
+    private final ThreadLocal<EventSink> current = new ThreadLocal<>();
+
+    public void bind(EventSink sink) {
+        current.set(sink);
+    }
+
+    public void unbind() {
+        current.remove();
+    }
+
+    /**
+     * The sink bound to the calling thread, or one that drops every event.
+     */
+    public EventSink current() {
+        return sink();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return sink().isEnabled();
+    }
+
+    @Override
+    public void greeted(String name) {
+        sink().greeted(name);
+    }
+
+    @Override
+    public void balance(Amount balance) {
+        sink().balance(balance);
+    }
+
+    @Override
+    public void transferred(Amount amount, String target) {
+        sink().transferred(amount, target);
+    }
+
+    @Override
+    public void owedTo(long creditorHigh, long creditorLow, Amount amount) {
+        sink().owedTo(creditorHigh, creditorLow, amount);
+    }
+
+    @Override
+    public void owedFrom(long debtorHigh, long debtorLow, Amount amount) {
+        sink().owedFrom(debtorHigh, debtorLow, amount);
+    }
+
+    @Override
+    public void insufficientFunds(Amount balance) {
+        sink().insufficientFunds(balance);
+    }
+
+    @Override
+    public void insufficientFundsForFullTransfer(Amount required, Amount available) {
+        sink().insufficientFundsForFullTransfer(required, available);
+    }
+
+    @Override
+    public void debtsNetted(long cycles, long debtsSettled, Amount valueNetted) {
+        sink().debtsNetted(cycles, debtsSettled, valueNetted);
+    }
+
+    @Override
+    public void recovered(int snapshotAccounts, long journalRecords, long elapsedMillis) {
+        sink().recovered(snapshotAccounts, journalRecords, elapsedMillis);
+    }
+
+    @Override
+    public void commandCompleted() {
+        sink().commandCompleted();
+    }
+
+    private EventSink sink() {
+        EventSink sink = current.get();
+        return sink != null ? sink : NONE;
+    }
+}
@@ -0,0 +1,131 @@
+package event;
+
+import utils.Amount;
+import utils.NameCodec;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Renders events as the lines the CLI prints, one reused buffer per sink, writing amounts straight
+ * from their minor units. Subclasses decide where the lines go. Guarded by a {@link ReentrantLock}
+ * rather than {@code synchronized}, so a virtual thread blocked writing a line does not pin its
+ * carrier thread.
+ */
+public abstract class TextEventSink implements EventSink {
+
+    protected final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder line = new StringBuilder(128);
+
+    protected abstract void writeLine(CharSequence line);
+
+    @Override
+    public void greeted(String name) {
+        lock.lock();
+        try {
+            writeLine(start().append("Hello, ").append(name).append('!'));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void balance(Amount balance) {
+        lock.lock();
+        try {
+            writeLine(balance.appendTo(start().append("Your balance is $")));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void transferred(Amount amount, String target) {
+        lock.lock();
+        try {
+            writeLine(amount.appendTo(start().append("Transferred $")).append(" to ").append(target));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void owedTo(long creditorHigh, long creditorLow, Amount amount) {
+        lock.lock();
+        try {
+            StringBuilder text = amount.appendTo(start().append("Owed $"));
+            writeLine(text.append(" to ").append(NameCodec.decode(creditorHigh, creditorLow)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void owedFrom(long debtorHigh, long debtorLow, Amount amount) {
+        lock.lock();
+        try {
+            StringBuilder text = amount.appendTo(start().append("Owed $"));
+            writeLine(text.append(" from ").append(NameCodec.decode(debtorHigh, debtorLow)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void insufficientFunds(Amount balance) {
+        lock.lock();
+        try {
+            writeLine(balance.appendTo(start().append("Insufficient funds. Your balance is $")));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void insufficientFundsForFullTransfer(Amount required, Amount available) {
+        lock.lock();
+        try {
+            StringBuilder text = required.appendTo(start().append("Insufficient funds for full transfer. Required: $"));
+            writeLine(available.appendTo(text.append(", Available: $")));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void debtsNetted(long cycles, long debtsSettled, Amount valueNetted) {
+        lock.lock();
+        try {
+            StringBuilder text = start().append("Netted ").append(cycles).append(" debt cycles, settling ")
+                    .append(debtsSettled).append(" debts worth $");
+            writeLine(valueNetted.appendTo(text).append(" in total"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void recovered(int snapshotAccounts, long journalRecords, long elapsedMillis) {
+        lock.lock();
+        try {
+            writeLine(start().append("Recovered ").append(snapshotAccounts).append(" accounts from snapshot and ")
+                    .append(journalRecords).append(" journal records in ").append(elapsedMillis).append(" ms"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void commandCompleted() {
+        lock.lock();
+        try {
+            writeLine(start());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private StringBuilder start() {
+        line.setLength(0);
+        return line;
+    }
+}
@@ -0,0 +1,360 @@
+package journal;
+
+import enums.JournalOperation;
+import utils.Amount;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal with group commit, stored as a directory of numbered segment files.
+ * <p>
+ * {@link #append} only encodes the record into an in-memory batch. {@link #sync} makes every record
+ * appended so far durable: the first caller to arrive writes and fsyncs the whole batch while
+ * concurrent callers wait for it, so one fsync covers every operation that was in flight.
+ * <p>
+ * Each record is framed as {@code [length][crc32][payload]}; a torn or corrupt tail left by a crash
+ * is dropped by {@link #replay}, which must run before the first append. {@link #rotate} starts a new
+ * segment so that a snapshot can cover everything before it and the old segments can be deleted.
+ */
+public class FileJournal implements Journal {
+
+    private static final int INITIAL_BATCH_SIZE = 64 * 1024;
+    private static final int HEADER_SIZE = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+
+    // All fields below are guarded by lock
+    private FileChannel channel;
+    private long segment;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BATCH_SIZE);
+    private long writePosition;
+    private long appendedCount;
+    private long durableCount;
+    private boolean flushing;
+    private IOException failure;
+
+    public FileJournal(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            List<Long> segments = listSegments();
+            this.segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+            this.channel = openSegment(segment);
+            this.writePosition = channel.size();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open journal " + directory + "\n", e);
+        }
+    }
+
+    @Override
+    public void append(JournalRecord record) {
+        byte[] payload = encode(record);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        lock.lock();
+        try {
+            checkHealthy();
+            ensureCapacity(HEADER_SIZE + payload.length);
+            pending.putInt(payload.length);
+            pending.putInt((int) crc.getValue());
+            pending.put(payload);
+            appendedCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sync() {
+        lock.lock();
+        try {
+            long target = appendedCount;
+            while (durableCount < target) {
+                checkHealthy();
+                if (flushing) {
+                    // Another caller is writing a batch; ours may already be in it
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushBatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with lock held; releases it while writing so appends can fill the next batch
+    private void flushBatch() {
+        flushing = true;
+        FileChannel target = channel;
+        ByteBuffer batch = pending;
+        pending = spare;
+        spare = null;
+        long batchCount = appendedCount;
+        long position = writePosition;
+        writePosition += batch.position();
+
+        lock.unlock();
+        IOException error = null;
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                position += target.write(batch, position);
+            }
+            target.force(false);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            lock.lock();
+        }
+
+        batch.clear();
+        spare = batch;
+        flushing = false;
+        if (error != null) {
+            failure = error;
+        } else {
+            durableCount = batchCount;
+        }
+        flushed.signalAll();
+    }
+
+    @Override
+    public long rotate() {
+        lock.lock();
+        try {
+            // Everything appended so far must land in the segment being closed
+            while (flushing || pending.position() > 0) {
+                checkHealthy();
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                } else {
+                    flushBatch();
+                }
+            }
+            checkHealthy();
+            FileChannel next = openSegment(segment + 1);
+            channel.close();
+            channel = next;
+            segment++;
+            writePosition = 0;
+            return segment;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot rotate journal\n", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSegmentsBefore(long firstKept) {
+        try {
+            for (long old : listSegments()) {
+                if (old < firstKept) {
+                    Files.deleteIfExists(segmentPath(old));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot compact journal\n", e);
+        }
+    }
+
+    @Override
+    public void replay(long fromSegment, Consumer<JournalRecord> consumer) {
+        lock.lock();
+        try {
+            for (long replayed : listSegments()) {
+                if (replayed < fromSegment) {
+                    continue;
+                }
+                if (replayed == segment) {
+                    writePosition = replaySegment(channel, consumer);
+                } else {
+                    try (FileChannel old = openSegment(replayed)) {
+                        replaySegment(old, consumer);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read journal\n", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long replaySegment(FileChannel channel, Consumer<JournalRecord> consumer) throws IOException {
+        long validLength = 0;
+        InputStream input = Channels.newInputStream(channel.position(0));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        CRC32 crc = new CRC32();
+        while (true) {
+            int length;
+            int checksum;
+            byte[] payload;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length <= 0 || validLength + HEADER_SIZE + length > channel.size()) {
+                    break;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            consumer.accept(decode(payload));
+            validLength += HEADER_SIZE + length;
+        }
+
+        // Drop a torn tail so new records are not appended after garbage
+        channel.truncate(validLength);
+        return validLength;
+    }
+
+    @Override
+    public void close() {
+        sync();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot close journal\n", e);
+        }
+    }
+
+    private FileChannel openSegment(long id) throws IOException {
+        return FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        String glob = SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+                segments.add(Long.parseLong(number));
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private void ensureCapacity(int size) {
+        if (pending.remaining() < size) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    private void checkHealthy() {
+        if (failure != null) {
+            throw new IllegalStateException("Journal write failed\n", failure);
+        }
+    }
+
+    static byte[] encode(JournalRecord record) {
+        if (record.getOperation() == JournalOperation.BATCH) {
+            return encodeBatch(record);
+        }
+        byte[] account = record.getAccount().getBytes(StandardCharsets.UTF_8);
+        byte[] counterparty = record.getCounterparty().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 + account.length + 2 + counterparty.length + 3 * 9);
+        buffer.put((byte) record.getOperation().ordinal());
+        buffer.putShort((short) account.length).put(account);
+        buffer.putShort((short) counterparty.length).put(counterparty);
+        putAmount(buffer, record.getAmount());
+        putAmount(buffer, record.getBalance());
+        putAmount(buffer, record.getCounterpartyBalance());
+        return buffer.array();
+    }
+
+    // [BATCH][count] then each entry as [length][payload], all under the one frame checksum
+    private static byte[] encodeBatch(JournalRecord batch) {
+        List<byte[]> entries = new ArrayList<>(batch.getEntries().size());
+        int size = 1 + 4;
+        for (JournalRecord entry : batch.getEntries()) {
+            byte[] payload = encode(entry);
+            entries.add(payload);
+            size += 4 + payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) JournalOperation.BATCH.ordinal());
+        buffer.putInt(entries.size());
+        for (byte[] payload : entries) {
+            buffer.putInt(payload.length).put(payload);
+        }
+        return buffer.array();
+    }
+
+    static JournalRecord decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        JournalOperation operation = JournalOperation.values()[buffer.get()];
+        if (operation == JournalOperation.BATCH) {
+            int count = buffer.getInt();
+            List<JournalRecord> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] entry = new byte[buffer.getInt()];
+                buffer.get(entry);
+                entries.add(decode(entry));
+            }
+            return JournalRecord.batch(entries);
+        }
+        String account = getString(buffer);
+        String counterparty = getString(buffer);
+        return JournalRecord.of(operation, account, counterparty, getAmount(buffer), getAmount(buffer),
+                getAmount(buffer));
+    }
+
+    private static void putAmount(ByteBuffer buffer, Amount amount) {
+        buffer.putLong(amount.unscaledValue());
+        buffer.put((byte) amount.getScale());
+    }
+
+    private static Amount getAmount(ByteBuffer buffer) {
+        long unscaled = buffer.getLong();
+        return Amount.ofUnscaled(unscaled, buffer.get());
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,18 @@
+package journal;
+
+import java.util.function.Consumer;
+
+public interface Journal extends AutoCloseable {
+    void append(JournalRecord record);
+    void sync();
+    /** Starts a new segment and returns its number; earlier segments receive no more records. */
+    long rotate();
+    void deleteSegmentsBefore(long segment);
+    void replay(long fromSegment, Consumer<JournalRecord> consumer);
+    @Override
+    void close();
+
+    default void replay(Consumer<JournalRecord> consumer) {
+        replay(0, consumer);
+    }
+}
@@ -0,0 +1,58 @@
+package journal;
+
+import enums.JournalOperation;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import utils.Amount;
+
+import java.util.List;
+
+/**
+ * One durable mutation. Records carry the balances (or owed amount) after the change,
+ * so replaying a record sets state rather than re-applying a delta. A batch record holds the records
+ * of several changes that are written, and replayed, as one.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class JournalRecord {
+    private final JournalOperation operation;
+    private final String account;
+    private final String counterparty;
+    private final Amount amount;
+    private final Amount balance;
+    private final Amount counterpartyBalance;
+    private final List<JournalRecord> entries;
+
+    public static JournalRecord deposit(String account, Amount amount, Amount balance) {
+        return new JournalRecord(JournalOperation.DEPOSIT, account, "", amount, balance, Amount.ZERO, List.of());
+    }
+
+    public static JournalRecord withdraw(String account, Amount amount, Amount balance) {
+        return new JournalRecord(JournalOperation.WITHDRAW, account, "", amount, balance, Amount.ZERO, List.of());
+    }
+
+    public static JournalRecord transfer(String source, String target, Amount amount,
+                                         Amount sourceBalance, Amount targetBalance) {
+        return new JournalRecord(JournalOperation.TRANSFER, source, target, amount, sourceBalance, targetBalance, List.of());
+    }
+
+    public static JournalRecord debt(String debtor, String creditor, Amount owedAmount) {
+        return new JournalRecord(JournalOperation.DEBT, debtor, creditor, owedAmount, Amount.ZERO, Amount.ZERO,
+                List.of());
+    }
+
+    public static JournalRecord batch(List<JournalRecord> entries) {
+        return new JournalRecord(JournalOperation.BATCH, "", "", Amount.ZERO, Amount.ZERO, Amount.ZERO,
+                List.copyOf(entries));
+    }
+
+    static JournalRecord of(JournalOperation operation, String account, String counterparty, Amount amount,
+                            Amount balance, Amount counterpartyBalance) {
+        return new JournalRecord(operation, account, counterparty, amount, balance, counterpartyBalance, List.of());
+    }
+}
@@ -0,0 +1,34 @@
+package journal;
+
+import java.util.function.Consumer;
+
+/**
+ * Journal that keeps nothing, for an in-memory bank that starts empty on every run.
+ */
+public class NoopJournal implements Journal {
+
+    @Override
+    public void append(JournalRecord record) {
+    }
+
+    @Override
+    public void sync() {
+    }
+
+    @Override
+    public long rotate() {
+        return 0;
+    }
+
+    @Override
+    public void deleteSegmentsBefore(long segment) {
+    }
+
+    @Override
+    public void replay(long fromSegment, Consumer<JournalRecord> consumer) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
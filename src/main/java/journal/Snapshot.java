@@ -0,0 +1,19 @@
+package journal;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import utils.Amount;
+
+import java.util.Map;
+
+/**
+ * Point-in-time copy of every balance and debt. Replaying the journal from
+ * {@code journalSegment} onwards on top of it yields the current state.
+ */
+@Getter
+@RequiredArgsConstructor
+public class Snapshot {
+    private final long journalSegment;
+    private final Map<String, Amount> balances;
+    private final Map<String, Map<String, Amount>> owedAmounts;
+}
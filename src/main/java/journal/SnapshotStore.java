@@ -0,0 +1,264 @@
+package journal;
+
+import utils.Amount;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot files kept next to the journal segments.
+ * <p>
+ * Snapshots are written on a background thread to a temporary file, fsynced and renamed into place,
+ * so command processing never waits on the disk. Once a snapshot is in place the journal segments
+ * and snapshots it supersedes are deleted. Problems met in the background are kept for
+ * {@link #getFailure()} rather than thrown at whichever command happens to run next.
+ */
+public class SnapshotStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x41544D53;
+    private static final byte VERSION = 1;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final Journal journal;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean writing = new AtomicBoolean();
+    // The last problem met writing, loading or cleaning up snapshots
+    private final AtomicReference<IllegalStateException> failure = new AtomicReference<>();
+
+    public SnapshotStore(Path directory, Journal journal) {
+        this.directory = directory;
+        this.journal = journal;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open snapshot directory " + directory + "\n", e);
+        }
+    }
+
+    /**
+     * Writes the snapshot on the background thread. Returns false, without writing, if the previous
+     * snapshot is still being written.
+     */
+    public boolean writeInBackground(Snapshot snapshot) {
+        if (!writing.compareAndSet(false, true)) {
+            return false;
+        }
+        writer.execute(() -> {
+            try {
+                write(snapshot);
+            } catch (RuntimeException e) {
+                failure.set(new IllegalStateException("Snapshot of segment " + snapshot.getJournalSegment() + " failed\n", e));
+            } finally {
+                writing.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isWriting() {
+        return writing.get();
+    }
+
+    /**
+     * The last problem met writing, loading or cleaning up snapshots, so the application can report
+     * it. Cleared once a later snapshot is in place; a failed write leaves the journal it would have
+     * replaced untouched, so no state is lost.
+     */
+    public Optional<IllegalStateException> getFailure() {
+        return Optional.ofNullable(failure.get());
+    }
+
+    public void write(Snapshot snapshot) {
+        Path target = snapshotPath(snapshot.getJournalSegment());
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temp)) {
+                CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                writeSnapshot(out, snapshot);
+                out.flush();
+                out.writeLong(checked.getChecksum().getValue());
+                out.flush();
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write snapshot\n", e);
+        }
+        failure.set(null);
+
+        journal.deleteSegmentsBefore(snapshot.getJournalSegment());
+        deleteSnapshotsBefore(snapshot.getJournalSegment());
+    }
+
+    /**
+     * Loads the newest snapshot that reads back intact, or empty when there is none.
+     */
+    public Optional<Snapshot> loadLatest() {
+        List<Long> segments = listSnapshots();
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            try {
+                return Optional.of(read(snapshotPath(segments.get(i))));
+            } catch (IOException | IllegalStateException e) {
+                failure.set(new IllegalStateException("Skipped unreadable snapshot " + snapshotPath(segments.get(i)) + "\n", e));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeSnapshot(DataOutputStream out, Snapshot snapshot) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(snapshot.getJournalSegment());
+
+        out.writeInt(snapshot.getBalances().size());
+        for (Map.Entry<String, Amount> balance : snapshot.getBalances().entrySet()) {
+            writeName(out, balance.getKey());
+            writeAmount(out, balance.getValue());
+        }
+
+        out.writeInt(snapshot.getOwedAmounts().size());
+        for (Map.Entry<String, Map<String, Amount>> debtor : snapshot.getOwedAmounts().entrySet()) {
+            writeName(out, debtor.getKey());
+            out.writeInt(debtor.getValue().size());
+            for (Map.Entry<String, Amount> debt : debtor.getValue().entrySet()) {
+                writeName(out, debt.getKey());
+                writeAmount(out, debt.getValue());
+            }
+        }
+    }
+
+    private static Snapshot read(Path path) throws IOException {
+        try (InputStream file = Files.newInputStream(path)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IllegalStateException("Not a snapshot file\n");
+            }
+            long segment = in.readLong();
+
+            int accountCount = in.readInt();
+            Map<String, Amount> balances = new LinkedHashMap<>(accountCount * 2);
+            for (int i = 0; i < accountCount; i++) {
+                balances.put(readName(in), readAmount(in));
+            }
+
+            int debtorCount = in.readInt();
+            Map<String, Map<String, Amount>> owedAmounts = new HashMap<>(debtorCount * 2);
+            for (int i = 0; i < debtorCount; i++) {
+                String debtor = readName(in);
+                int creditorCount = in.readInt();
+                Map<String, Amount> debts = new LinkedHashMap<>(creditorCount * 2);
+                for (int j = 0; j < creditorCount; j++) {
+                    debts.put(readName(in), readAmount(in));
+                }
+                owedAmounts.put(debtor, debts);
+            }
+
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IllegalStateException("Snapshot checksum mismatch\n");
+            }
+            return new Snapshot(segment, balances, owedAmounts);
+        }
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readName(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedByte()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeAmount(DataOutputStream out, Amount amount) throws IOException {
+        out.writeLong(amount.unscaledValue());
+        out.writeByte(amount.getScale());
+    }
+
+    private static Amount readAmount(DataInputStream in) throws IOException {
+        long unscaled = in.readLong();
+        return Amount.ofUnscaled(unscaled, in.readByte());
+    }
+
+    private void deleteSnapshotsBefore(long segment) {
+        for (long old : listSnapshots()) {
+            if (old < segment) {
+                try {
+                    Files.deleteIfExists(snapshotPath(old));
+                } catch (IOException e) {
+                    failure.set(new IllegalStateException("Cannot delete old snapshot " + snapshotPath(old) + "\n", e));
+                }
+            }
+        }
+    }
+
+    private Path snapshotPath(long segment) {
+        return directory.resolve(String.format("%s%019d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+    }
+
+    private List<Long> listSnapshots() {
+        List<Long> segments = new ArrayList<>();
+        String glob = SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String number = name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length());
+                segments.add(Long.parseLong(number));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot list snapshots\n", e);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+}
@@ -0,0 +1,93 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Blocking client for the server's line protocol, for tests and load drivers on the same machine.
+ */
+public class AtmClient implements AutoCloseable {
+
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final OutputStream output;
+
+    public AtmClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(10_000);
+        this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.output = socket.getOutputStream();
+    }
+
+    public void send(String command) throws IOException {
+        output.write((command + "\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    /**
+     * Next line from the server, or null once it has closed the connection.
+     */
+    public String readLine() throws IOException {
+        return reader.readLine();
+    }
+
+    /**
+     * Reads lines up to and including the first one containing {@code text} and returns them.
+     *
+     * @throws IOException if the server closes the connection first or nothing arrives in time
+     */
+    public String readUntil(String text) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.append(line).append('\n');
+            if (line.contains(text)) {
+                return lines.toString();
+            }
+        }
+        throw new IOException("Connection closed before \"" + text + "\" arrived; got:\n" + lines);
+    }
+
+    /**
+     * Reads pipelined answers until {@code count} of them are complete, skipping untagged lines.
+     * Returns the lines of each answer, without the tag, by tag in the order the answers completed.
+     *
+     * @throws IOException if the server closes the connection first or nothing arrives in time
+     */
+    public Map<String, List<String>> readAnswers(int count) throws IOException {
+        Map<String, List<String>> partial = new LinkedHashMap<>();
+        Map<String, List<String>> complete = new LinkedHashMap<>();
+        while (complete.size() < count) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Connection closed after " + complete.size() + " of " + count + " answers");
+            }
+            if (!line.startsWith("#")) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space < 0) {
+                complete.put(line, partial.getOrDefault(line, new ArrayList<>()));
+                partial.remove(line);
+            } else {
+                partial.computeIfAbsent(line.substring(0, space), tag -> new ArrayList<>()).add(line.substring(space + 1));
+            }
+        }
+        return complete;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,536 @@
+package server;
+
+import command.CommandProcessor;
+import command.CommandServiceImpl;
+import event.EventSink;
+import event.PrintStreamEventSink;
+import event.ScopedEventSink;
+import service.BankService;
+import session.ScopedSessionService;
+import session.SessionRegistry;
+import session.SessionServiceImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Serves the CLI's line protocol over TCP to many terminals from a single selector thread.
+ * <p>
+ * Each connection has its own session, command processor and output buffer; all of them share one
+ * bank. The bank must have been built with the same {@link ScopedSessionService} and
+ * {@link ScopedEventSink}: around each command the connection's session and output are bound to
+ * the worker thread running it. The selector thread only reads, parses and writes; commands run on
+ * the workers, so one connection waiting for the journal to sync does not hold up the others, and
+ * the bank must be thread-safe, such as a {@link service.BankServiceImpl} over a thread-safe account
+ * store. A connection runs one command at a time and is not read while it does, so its commands are
+ * answered in the order sent. A connection gets the welcome text on connect and is closed after
+ * {@code exit}.
+ * <p>
+ * A client may also pipeline: send {@code #<tag> <session> <command>} lines without waiting for
+ * answers. {@code <session>} names one of any number of sessions the connection keeps, each with its
+ * own login. Every line a tagged command prints comes back as {@code #<tag> <line>}, followed by a
+ * line holding only {@code #<tag>}. Commands of one session run, and are answered, in the order
+ * sent; answers of different sessions may interleave, as the sessions run in parallel on the
+ * workers. {@code exit} in a tagged command logs that session out and leaves the connection open.
+ * {@code exit} and {@code logout} also end the session, so its name starts a new one; a connection
+ * keeps at most {@value #MAX_PIPELINED_SESSIONS} sessions at once.
+ * <p>
+ * After the text command {@value BinaryProtocol#SWITCH_COMMAND} the connection speaks
+ * {@link BinaryProtocol} frames instead of lines, keeping its session.
+ */
+public class AtmServer implements Runnable, Closeable {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int BACKLOG = 1024;
+    private static final int MAX_TAG_LENGTH = 64;
+    // Tagged commands a connection may have queued or running before it stops being read
+    private static final int MAX_IN_FLIGHT = 1024;
+    private static final int MAX_PIPELINED_SESSIONS = 256;
+    // Workers of a server given none; most of their time goes to waiting for journal syncs, not to the CPU
+    private static final int DEFAULT_WORKERS = 16;
+
+    private final BankService bankService;
+    private final ScopedSessionService sessions;
+    private final ScopedEventSink events;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final ExecutorService workers;
+    // Whether the workers were made by this server, which then shuts them down
+    private final boolean ownsWorkers;
+    // Connections whose untagged command or frame has finished on a worker
+    private final Queue<SelectionKey> finished = new ConcurrentLinkedQueue<>();
+    // Connections with tagged answers waiting to be moved to their write queues
+    private final Queue<SelectionKey> answered = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = true;
+
+    public AtmServer(BankService bankService, ScopedSessionService sessions, ScopedEventSink events,
+                     InetSocketAddress address) {
+        this(bankService, sessions, events, address, SessionExecutors.platformPool(DEFAULT_WORKERS), true);
+    }
+
+    /**
+     * Runs commands on {@code workers}, which the caller shuts down once the server has stopped.
+     */
+    public AtmServer(BankService bankService, ScopedSessionService sessions, ScopedEventSink events,
+                     InetSocketAddress address, ExecutorService workers) {
+        this(bankService, sessions, events, address, workers, false);
+    }
+
+    private AtmServer(BankService bankService, ScopedSessionService sessions, ScopedEventSink events,
+                      InetSocketAddress address, ExecutorService workers, boolean ownsWorkers) {
+        this.bankService = bankService;
+        this.sessions = sessions;
+        this.events = events;
+        this.workers = workers;
+        this.ownsWorkers = ownsWorkers;
+        try {
+            this.selector = Selector.open();
+            this.serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(address, BACKLOG);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start server on " + address + "\n", e);
+        }
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Serves connections until {@link #close()} is called.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                finishCommands();
+                sendAnswers();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isValid() && key.isAcceptable()) {
+                            accept();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
+                    } catch (IOException e) {
+                        closeConnection(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Server stopped\n", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            closeQuietly(selector);
+            if (ownsWorkers) {
+                workers.shutdown();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        closeQuietly(serverChannel);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection();
+        connection.processor.printWelcomeMessage();
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+        connection.key = key;
+        flushOutput(key, connection);
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        readBuffer.clear();
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            closeConnection(key);
+            return;
+        }
+        readBuffer.flip();
+        parse(connection, readBuffer);
+        flushOutput(key, connection);
+    }
+
+    // Runs the commands in input until one has gone to a worker; the rest waits in the connection
+    private void parse(Connection connection, ByteBuffer input) {
+        while (input.hasRemaining() && !connection.closing && !connection.busy) {
+            if (connection.binary != null) {
+                readFrames(connection, input);
+                continue;
+            }
+            byte b = input.get();
+            if (b == '\n') {
+                runLine(connection);
+            } else if (b != '\r') {
+                if (connection.line.size() == MAX_LINE_LENGTH) {
+                    connection.out.println("Error: Line too long");
+                    connection.closing = true;
+                    break;
+                }
+                connection.line.write(b);
+            }
+        }
+        if (connection.busy && input.hasRemaining() && input != connection.unread) {
+            connection.unread = ByteBuffer.allocate(input.remaining()).put(input).flip();
+        }
+    }
+
+    private void runLine(Connection connection) {
+        String line = connection.line.toString(StandardCharsets.UTF_8);
+        connection.line.reset();
+        if (line.startsWith("#")) {
+            runTagged(connection, line);
+            return;
+        }
+        if (line.trim().equals(BinaryProtocol.SWITCH_COMMAND)) {
+            connection.binary = new BinaryConnection(connection);
+            connection.binary.sink.done();
+            return;
+        }
+        dispatch(connection, connection.sink, () -> connection.processor.handleLine(line));
+    }
+
+    // Collects the next frame from input and hands it to a worker once complete; a partial frame
+    // waits for the next read
+    private void readFrames(Connection connection, ByteBuffer input) {
+        ByteBuffer frame = connection.binary.frame;
+        while (input.hasRemaining() && !connection.closing && !connection.busy) {
+            if (frame.position() < BinaryProtocol.HEADER_SIZE) {
+                frame.put(input.get());
+                continue;
+            }
+            int length = frame.getShort(0) & 0xFFFF;
+            if (length == 0 || length > BinaryProtocol.MAX_REQUEST_LENGTH) {
+                connection.binary.sink.error("Frames must hold 1 to " + BinaryProtocol.MAX_REQUEST_LENGTH + " bytes");
+                connection.closing = true;
+                return;
+            }
+            int count = Math.min(BinaryProtocol.HEADER_SIZE + length - frame.position(), input.remaining());
+            frame.put(frame.position(), input, input.position(), count);
+            frame.position(frame.position() + count);
+            input.position(input.position() + count);
+            if (frame.position() == BinaryProtocol.HEADER_SIZE + length) {
+                frame.flip().position(BinaryProtocol.HEADER_SIZE);
+                BinaryCommandHandler handler = connection.binary.handler;
+                dispatch(connection, connection.binary.sink, () -> {
+                    boolean open = handler.handle(frame);
+                    frame.clear();
+                    return open;
+                });
+            }
+        }
+    }
+
+    // Runs one untagged command or frame on a worker; the connection is not read until it has finished
+    private void dispatch(Connection connection, EventSink sink, BooleanSupplier command) {
+        connection.busy = true;
+        workers.execute(() -> {
+            boolean open = false;
+            sessions.bind(connection.session);
+            events.bind(sink);
+            try {
+                open = command.getAsBoolean();
+            } finally {
+                events.unbind();
+                sessions.unbind();
+                connection.ended = !open;
+                finished.add(connection.key);
+                selector.wakeup();
+            }
+        });
+    }
+
+    // Sends what finished commands printed and goes on with the input that arrived behind them
+    private void finishCommands() {
+        SelectionKey key;
+        while ((key = finished.poll()) != null) {
+            if (!key.isValid()) {
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            connection.busy = false;
+            connection.closing = connection.ended;
+            ByteBuffer unread = connection.unread;
+            if (unread != null) {
+                parse(connection, unread);
+                if (!unread.hasRemaining()) {
+                    connection.unread = null;
+                }
+            }
+            try {
+                flushOutput(key, connection);
+            } catch (IOException e) {
+                closeConnection(key);
+            }
+        }
+    }
+
+    private void runTagged(Connection connection, String line) {
+        int tagEnd = line.indexOf(' ');
+        int sessionEnd = tagEnd < 0 ? -1 : line.indexOf(' ', tagEnd + 1);
+        if (sessionEnd < 0 || tagEnd == 1 || sessionEnd == tagEnd + 1 || tagEnd > MAX_TAG_LENGTH
+                || sessionEnd - tagEnd > MAX_TAG_LENGTH) {
+            connection.out.println("Error: Tagged commands look like #<tag> <session> <command>\n");
+            return;
+        }
+        String tag = line.substring(0, tagEnd);
+        String name = line.substring(tagEnd + 1, sessionEnd);
+        String command = line.substring(sessionEnd + 1);
+        PipelinedSession session = connection.pipelined.find(name);
+        if (session == null) {
+            if (connection.pipelined.size() == MAX_PIPELINED_SESSIONS) {
+                connection.answers.add((tag + " Error: A connection keeps at most " + MAX_PIPELINED_SESSIONS
+                        + " sessions; end one with exit or logout\n" + tag + "\n").getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            session = connection.pipelined.open(name);
+        }
+        session.commands.add(new TaggedCommand(tag, command));
+        if (endsSession(command)) {
+            // The session still runs what it was sent; later commands for the name start a new one
+            connection.pipelined.close(name);
+        }
+        connection.inFlight.incrementAndGet();
+        if (session.scheduled.compareAndSet(false, true)) {
+            workers.execute(session::drain);
+        }
+    }
+
+    private static boolean endsSession(String command) {
+        String input = command.trim();
+        return input.equals("exit") || input.equals("logout") || input.startsWith("logout ");
+    }
+
+    // Moves answers finished by workers to their connections' write queues
+    private void sendAnswers() {
+        SelectionKey key;
+        while ((key = answered.poll()) != null) {
+            if (!key.isValid()) {
+                continue;
+            }
+            try {
+                flushOutput(key, (Connection) key.attachment());
+            } catch (IOException e) {
+                closeConnection(key);
+            }
+        }
+    }
+
+    // Moves the connection's printed output to its write queue and writes as much as the socket takes
+    private void flushOutput(SelectionKey key, Connection connection) throws IOException {
+        // While a command runs its worker is still printing, so only tagged answers go out
+        if (!connection.busy) {
+            connection.out.flush();
+            if (connection.output.size() > 0) {
+                byte[] bytes = connection.output.toByteArray();
+                connection.output.reset();
+                connection.pending = append(connection.pending, bytes);
+            }
+        }
+        byte[] answer;
+        while ((answer = connection.answers.poll()) != null) {
+            connection.pending = append(connection.pending, answer);
+        }
+        write(key);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        if (connection.pending != null) {
+            channel.write(connection.pending);
+            if (connection.pending.hasRemaining()) {
+                // Stop reading until the client has taken its output
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.pending = null;
+        }
+        if (connection.closing) {
+            closeConnection(key);
+        } else {
+            // Stop reading while a command runs or too many tagged commands are still to be answered
+            key.interestOps(!connection.busy && connection.inFlight.get() < MAX_IN_FLIGHT ? SelectionKey.OP_READ : 0);
+        }
+    }
+
+    private static ByteBuffer append(ByteBuffer pending, byte[] bytes) {
+        if (pending == null || !pending.hasRemaining()) {
+            return ByteBuffer.wrap(bytes);
+        }
+        ByteBuffer combined = ByteBuffer.allocate(pending.remaining() + bytes.length);
+        combined.put(pending).put(bytes).flip();
+        return combined;
+    }
+
+    private void closeConnection(SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        if (connection != null) {
+            connection.session.logout();
+        }
+        closeQuietly(key);
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing useful to do when a socket fails to close
+        }
+    }
+
+    // One terminal: its session, its command processor and everything printed for it
+    private final class Connection {
+        // Pipelined sessions, their tokens being the names the client gave them; opened and closed by
+        // the selector thread only
+        private final SessionRegistry<PipelinedSession> pipelined = new SessionRegistry<>(() -> new PipelinedSession(this));
+        // Tagged answers in the order they finished
+        private final Queue<byte[]> answers = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private SelectionKey key;
+        // Set once the connection has switched to binary frames
+        private BinaryConnection binary;
+        private final SessionServiceImpl session = new SessionServiceImpl();
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final PrintStream out = new PrintStream(output, false, StandardCharsets.UTF_8);
+        private final EventSink sink = new PrintStreamEventSink(out);
+        private final CommandProcessor processor =
+                new CommandProcessor(new CommandServiceImpl(bankService, session, out), session, out);
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private ByteBuffer pending;
+        private boolean closing;
+        // Set while an untagged command or frame runs on a worker; selector thread only
+        private boolean busy;
+        // Input read behind the running command, parsed once it has finished
+        private ByteBuffer unread;
+        // Written by the worker before it queues the connection on finished, read by the selector after
+        private boolean ended;
+    }
+
+    // A connection's state once it speaks binary frames. Results go straight to the connection's
+    // output; text output from the command service, such as the logout greeting, is dropped.
+    private final class BinaryConnection {
+        private final BinaryEventSink sink;
+        private final BinaryCommandHandler handler;
+        private final ByteBuffer frame = ByteBuffer.allocate(BinaryProtocol.HEADER_SIZE + BinaryProtocol.MAX_REQUEST_LENGTH);
+
+        private BinaryConnection(Connection connection) {
+            this.sink = new BinaryEventSink(connection.output);
+            PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+            this.handler = new BinaryCommandHandler(new CommandServiceImpl(bankService, connection.session, discard),
+                    connection.session, sink);
+        }
+    }
+
+    private static final class TaggedCommand {
+        private final String tag;
+        private final String command;
+
+        private TaggedCommand(String tag, String command) {
+            this.tag = tag;
+            this.command = command;
+        }
+    }
+
+    // One session of a pipelining connection. Its commands run one at a time, in the order sent,
+    // on whichever worker drains it; the scheduled flag keeps at most one drain running.
+    private final class PipelinedSession extends SessionServiceImpl {
+        private final Connection connection;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private final PrintStream out = new PrintStream(output, false, StandardCharsets.UTF_8);
+        private final EventSink sink = new PrintStreamEventSink(out);
+        private final CommandProcessor processor;
+        private final Queue<TaggedCommand> commands = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private PipelinedSession(Connection connection) {
+            this.connection = connection;
+            this.processor = new CommandProcessor(new CommandServiceImpl(bankService, this, out), this, out);
+        }
+
+        private void drain() {
+            do {
+                TaggedCommand command;
+                while ((command = commands.poll()) != null) {
+                    connection.answers.add(run(command));
+                    connection.inFlight.decrementAndGet();
+                    answered.add(connection.key);
+                    selector.wakeup();
+                }
+                scheduled.set(false);
+                // A command queued after the last poll but before the flag was cleared needs a drain too
+            } while (!commands.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+
+        private byte[] run(TaggedCommand command) {
+            sessions.bind(this);
+            events.bind(sink);
+            try {
+                if (!processor.handleLine(command.command)) {
+                    logout();
+                }
+            } finally {
+                events.unbind();
+                sessions.unbind();
+            }
+            out.flush();
+            StringBuilder answer = new StringBuilder();
+            for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isEmpty()) {
+                    answer.append(command.tag).append(' ').append(line).append('\n');
+                }
+            }
+            output.reset();
+            return answer.append(command.tag).append('\n').toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package server;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Blocking client that switches its connection to {@link BinaryProtocol} frames, for tests and load
+ * drivers on the same machine.
+ */
+public class BinaryAtmClient implements AutoCloseable {
+
+    private static final byte[] WELCOME_END = "Please type command!\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Socket socket;
+    private final DataInputStream input;
+    private final OutputStream output;
+
+    public BinaryAtmClient(int port) throws IOException {
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(10_000);
+        this.input = new DataInputStream(socket.getInputStream());
+        this.output = socket.getOutputStream();
+        skipWelcome();
+        output.write((BinaryProtocol.SWITCH_COMMAND + "\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        readAnswer();
+    }
+
+    /**
+     * Sends a request built by {@link BinaryProtocol} and returns the frames of its answer, each
+     * positioned at its type, without the closing {@link BinaryProtocol#DONE}.
+     */
+    public List<ByteBuffer> request(byte[] frame) throws IOException {
+        output.write(frame);
+        output.flush();
+        return readAnswer();
+    }
+
+    private List<ByteBuffer> readAnswer() throws IOException {
+        List<ByteBuffer> frames = new ArrayList<>();
+        while (true) {
+            byte[] frame = new byte[input.readUnsignedShort()];
+            input.readFully(frame);
+            if (frame[0] == BinaryProtocol.DONE) {
+                return frames;
+            }
+            frames.add(ByteBuffer.wrap(frame));
+        }
+    }
+
+    private void skipWelcome() throws IOException {
+        int matched = 0;
+        while (matched < WELCOME_END.length) {
+            int b = input.read();
+            if (b < 0) {
+                throw new EOFException("Connection closed before the welcome text ended");
+            }
+            matched = b == WELCOME_END[matched] ? matched + 1 : (b == WELCOME_END[0] ? 1 : 0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
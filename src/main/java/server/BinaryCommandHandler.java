@@ -0,0 +1,100 @@
+package server;
+
+import command.CommandService;
+import session.SessionService;
+import utils.AccountValidationUtils;
+import utils.Amount;
+import utils.NameCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Runs {@link BinaryProtocol} requests for one connection: reads the fields straight out of the
+ * frame and calls the {@link CommandService}, the binary counterpart of
+ * {@link command.CommandProcessor}. Every request is answered with its results, or an
+ * {@link BinaryProtocol#ERROR} frame, and then {@link BinaryProtocol#DONE}.
+ */
+public class BinaryCommandHandler {
+
+    private final CommandService commandService;
+    private final SessionService sessionService;
+    private final BinaryEventSink sink;
+
+    public BinaryCommandHandler(CommandService commandService, SessionService sessionService, BinaryEventSink sink) {
+        this.commandService = commandService;
+        this.sessionService = sessionService;
+        this.sink = sink;
+    }
+
+    /**
+     * Runs the request in the frame, positioned after the length. Returns false for {@code EXIT}.
+     */
+    public boolean handle(ByteBuffer frame) {
+        try {
+            if (!dispatch(frame)) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            sink.error(e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        sink.done();
+        return true;
+    }
+
+    private boolean dispatch(ByteBuffer frame) {
+        byte type = frame.get();
+        switch (type) {
+            case BinaryProtocol.LOGIN:
+                require(frame, 16);
+                commandService.login(name(frame.getLong(), frame.getLong()));
+                return true;
+            case BinaryProtocol.DEPOSIT:
+                require(frame, 8);
+                commandService.deposit(positiveAmount(frame.getLong()));
+                return true;
+            case BinaryProtocol.WITHDRAW:
+                require(frame, 8);
+                commandService.withdraw(positiveAmount(frame.getLong()));
+                return true;
+            case BinaryProtocol.TRANSFER:
+                require(frame, 24);
+                String target = name(frame.getLong(), frame.getLong());
+                commandService.transfer(target, positiveAmount(frame.getLong()));
+                return true;
+            case BinaryProtocol.LOGOUT:
+                require(frame, 0);
+                String currentUser = sessionService.getCurrentUser();
+                commandService.logout();
+                sink.goodbye(NameCodec.high(currentUser), NameCodec.low(currentUser));
+                return true;
+            case BinaryProtocol.NET:
+                require(frame, 0);
+                commandService.netDebts();
+                return true;
+            case BinaryProtocol.EXIT:
+                return false;
+            default:
+                throw new IllegalArgumentException("Unknown request type " + type + "\n");
+        }
+    }
+
+    private static void require(ByteBuffer frame, int fieldsLength) {
+        if (frame.remaining() != fieldsLength) {
+            throw new IllegalArgumentException("Malformed request\n");
+        }
+    }
+
+    private static String name(long high, long low) {
+        if (!NameCodec.isValid(high, low)) {
+            throw new IllegalArgumentException(AccountValidationUtils.INVALID_NAME_MESSAGE);
+        }
+        return NameCodec.decode(high, low);
+    }
+
+    private static Amount positiveAmount(long minorUnits) {
+        if (minorUnits <= 0) {
+            throw new IllegalArgumentException("Amount must be positive\n");
+        }
+        return Amount.ofMinorUnits(minorUnits);
+    }
+}
@@ -0,0 +1,121 @@
+package server;
+
+import event.EventSink;
+import utils.Amount;
+import utils.NameCodec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes events as {@link BinaryProtocol} frames into one reused buffer and writes each frame to
+ * the output in one call. Belongs to one connection and is not thread-safe.
+ */
+public class BinaryEventSink implements EventSink {
+
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    private final OutputStream out;
+    private final ByteBuffer frame = ByteBuffer.allocate(BinaryProtocol.HEADER_SIZE + 1 + MAX_MESSAGE_LENGTH);
+
+    public BinaryEventSink(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void greeted(String name) {
+        start(BinaryProtocol.GREETED).putLong(NameCodec.high(name)).putLong(NameCodec.low(name));
+        send();
+    }
+
+    @Override
+    public void balance(Amount balance) {
+        start(BinaryProtocol.BALANCE).putLong(balance.getMinorUnits());
+        send();
+    }
+
+    @Override
+    public void transferred(Amount amount, String target) {
+        start(BinaryProtocol.TRANSFERRED).putLong(amount.getMinorUnits())
+                .putLong(NameCodec.high(target)).putLong(NameCodec.low(target));
+        send();
+    }
+
+    @Override
+    public void owedTo(long creditorHigh, long creditorLow, Amount amount) {
+        start(BinaryProtocol.OWED_TO).putLong(amount.getMinorUnits()).putLong(creditorHigh).putLong(creditorLow);
+        send();
+    }
+
+    @Override
+    public void owedFrom(long debtorHigh, long debtorLow, Amount amount) {
+        start(BinaryProtocol.OWED_FROM).putLong(amount.getMinorUnits()).putLong(debtorHigh).putLong(debtorLow);
+        send();
+    }
+
+    @Override
+    public void insufficientFunds(Amount balance) {
+        start(BinaryProtocol.INSUFFICIENT_FUNDS).putLong(balance.getMinorUnits());
+        send();
+    }
+
+    @Override
+    public void insufficientFundsForFullTransfer(Amount required, Amount available) {
+        start(BinaryProtocol.INSUFFICIENT_FUNDS_FOR_FULL_TRANSFER)
+                .putLong(required.getMinorUnits()).putLong(available.getMinorUnits());
+        send();
+    }
+
+    @Override
+    public void debtsNetted(long cycles, long debtsSettled, Amount valueNetted) {
+        start(BinaryProtocol.DEBTS_NETTED).putLong(cycles).putLong(debtsSettled)
+                .putLong(valueNetted.getMinorUnits());
+        send();
+    }
+
+    @Override
+    public void recovered(int snapshotAccounts, long journalRecords, long elapsedMillis) {
+        // Recovery runs before any connection exists
+    }
+
+    @Override
+    public void commandCompleted() {
+        // The server ends every answer with done() instead
+    }
+
+    public void goodbye(long high, long low) {
+        start(BinaryProtocol.GOODBYE).putLong(high).putLong(low);
+        send();
+    }
+
+    /**
+     * Reports a failed request; the message is cut to {@value #MAX_MESSAGE_LENGTH} bytes.
+     */
+    public void error(String message) {
+        byte[] bytes = message.strip().getBytes(StandardCharsets.UTF_8);
+        start(BinaryProtocol.ERROR).put(bytes, 0, Math.min(bytes.length, MAX_MESSAGE_LENGTH));
+        send();
+    }
+
+    public void done() {
+        start(BinaryProtocol.DONE);
+        send();
+    }
+
+    private ByteBuffer start(byte type) {
+        frame.clear();
+        return frame.putShort((short) 0).put(type);
+    }
+
+    private void send() {
+        int length = frame.position();
+        frame.putShort(0, (short) (length - BinaryProtocol.HEADER_SIZE));
+        try {
+            out.write(frame.array(), 0, length);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write frame\n", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package server;
+
+import utils.NameCodec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Frames of the binary protocol, which a connection switches to by sending the text command
+ * {@value #SWITCH_COMMAND}. The server acknowledges with a {@link #DONE} frame.
+ * <p>
+ * A frame is an unsigned 16-bit big-endian length followed by that many bytes: a one-byte type and
+ * its fields. Amounts are {@code long} counts of cents and names are the two {@code long}s of
+ * {@link NameCodec}, so neither side parses text. Each request is answered by zero or more result
+ * frames and then one {@link #DONE}.
+ * <pre>
+ * LOGIN    name           GREETED      name               OWED_FROM      amount name
+ * DEPOSIT  amount         BALANCE      amount             INSUFFICIENT_FUNDS  balance
+ * WITHDRAW amount         TRANSFERRED  amount name        INSUFFICIENT_FUNDS_FOR_FULL_TRANSFER  required available
+ * TRANSFER name amount    OWED_TO      amount name        DEBTS_NETTED   cycles debts amount
+ * LOGOUT, NET, EXIT       GOODBYE      name               ERROR          UTF-8 message
+ * </pre>
+ */
+public final class BinaryProtocol {
+
+    public static final String SWITCH_COMMAND = "binary";
+    public static final int HEADER_SIZE = 2;
+    // Largest request: type, name and amount
+    public static final int MAX_REQUEST_LENGTH = 1 + 16 + 8;
+
+    public static final byte LOGIN = 0x01;
+    public static final byte DEPOSIT = 0x02;
+    public static final byte WITHDRAW = 0x03;
+    public static final byte TRANSFER = 0x04;
+    public static final byte LOGOUT = 0x05;
+    public static final byte NET = 0x06;
+    public static final byte EXIT = 0x07;
+
+    public static final byte GREETED = 0x41;
+    public static final byte BALANCE = 0x42;
+    public static final byte TRANSFERRED = 0x43;
+    public static final byte OWED_TO = 0x44;
+    public static final byte OWED_FROM = 0x45;
+    public static final byte INSUFFICIENT_FUNDS = 0x46;
+    public static final byte INSUFFICIENT_FUNDS_FOR_FULL_TRANSFER = 0x47;
+    public static final byte DEBTS_NETTED = 0x48;
+    public static final byte GOODBYE = 0x49;
+    public static final byte ERROR = 0x4E;
+    public static final byte DONE = 0x4F;
+
+    private BinaryProtocol() {
+    }
+
+    public static byte[] login(CharSequence name) {
+        return frame(LOGIN, 16).putLong(NameCodec.high(name)).putLong(NameCodec.low(name)).array();
+    }
+
+    public static byte[] deposit(long amount) {
+        return frame(DEPOSIT, 8).putLong(amount).array();
+    }
+
+    public static byte[] withdraw(long amount) {
+        return frame(WITHDRAW, 8).putLong(amount).array();
+    }
+
+    public static byte[] transfer(CharSequence target, long amount) {
+        return frame(TRANSFER, 24).putLong(NameCodec.high(target)).putLong(NameCodec.low(target))
+                .putLong(amount).array();
+    }
+
+    public static byte[] logout() {
+        return frame(LOGOUT, 0).array();
+    }
+
+    public static byte[] net() {
+        return frame(NET, 0).array();
+    }
+
+    public static byte[] exit() {
+        return frame(EXIT, 0).array();
+    }
+
+    private static ByteBuffer frame(byte type, int fieldsLength) {
+        return ByteBuffer.allocate(HEADER_SIZE + 1 + fieldsLength).putShort((short) (1 + fieldsLength)).put(type);
+    }
+}
@@ -0,0 +1,58 @@
+package server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for {@link ThreadPerSessionAtmServer}. The build targets Java 17 unless the
+ * {@code java21} profile is active, so virtual threads are looked up at runtime rather than
+ * compiled against.
+ */
+public final class SessionExecutors {
+
+    private SessionExecutors() {
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return virtualThreadFactoryMethod() != null;
+    }
+
+    /**
+     * A new virtual thread per session. Needs Java 21 or later at runtime; on an older runtime this
+     * throws rather than handing back platform threads, so callers should check
+     * {@link #virtualThreadsAvailable()} first.
+     */
+    public static ExecutorService virtualThreadPerSession() {
+        Method method = virtualThreadFactoryMethod();
+        if (method == null) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later\n");
+        }
+        try {
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create virtual thread executor\n", e);
+        }
+    }
+
+    /**
+     * A fixed pool of platform threads; sessions beyond {@code threads} wait for a free thread.
+     */
+    public static ExecutorService platformPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "session-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Method virtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package server;
+
+import command.CommandProcessor;
+import command.CommandServiceImpl;
+import event.EventSink;
+import event.PrintStreamEventSink;
+import event.ScopedEventSink;
+import service.BankService;
+import session.ScopedSessionService;
+import session.SessionServiceImpl;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the same line protocol as {@link AtmServer}, but runs each connection's read-dispatch
+ * loop as one blocking task on the given executor: one virtual thread per session, or a fixed
+ * pool of platform threads.
+ * <p>
+ * Sessions run concurrently, so the bank must be thread-safe, such as a {@link service.BankServiceImpl}
+ * over a thread-safe account store.
+ * A session binds its own session and output to its thread once. Command output is collected in
+ * memory and written to the socket after the command, never while the bank is locked.
+ */
+public class ThreadPerSessionAtmServer implements Runnable, Closeable {
+
+    private static final int BACKLOG = 1024;
+
+    private final BankService bankService;
+    private final ScopedSessionService sessions;
+    private final ScopedEventSink events;
+    private final ExecutorService executor;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running = true;
+
+    public ThreadPerSessionAtmServer(BankService bankService, ScopedSessionService sessions, ScopedEventSink events,
+                                     InetSocketAddress address, ExecutorService executor) {
+        this.bankService = bankService;
+        this.sessions = sessions;
+        this.events = events;
+        this.executor = executor;
+        try {
+            this.serverSocket = new ServerSocket();
+            serverSocket.bind(address, BACKLOG);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start server on " + address + "\n", e);
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until {@link #close()} is called.
+     */
+    @Override
+    public void run() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (running) {
+                    throw new IllegalStateException("Server stopped\n", e);
+                }
+                return;
+            }
+            connections.add(socket);
+            executor.execute(() -> serve(socket));
+        }
+    }
+
+    /**
+     * Stops accepting, disconnects every session and waits briefly for their threads to finish.
+     */
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(serverSocket);
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve(Socket socket) {
+        SessionServiceImpl session = new SessionServiceImpl();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(output, false, StandardCharsets.UTF_8);
+        EventSink sink = new PrintStreamEventSink(out);
+        CommandProcessor processor = new CommandProcessor(new CommandServiceImpl(bankService, session, out), session, out);
+
+        sessions.bind(session);
+        events.bind(sink);
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream socketOutput = socket.getOutputStream();
+
+            processor.printWelcomeMessage();
+            send(out, output, socketOutput);
+            String line;
+            boolean open = true;
+            while (open && (line = reader.readLine()) != null) {
+                open = processor.handleLine(line);
+                send(out, output, socketOutput);
+            }
+        } catch (IOException e) {
+            // The client went away; its session ends with the connection
+        } finally {
+            events.unbind();
+            sessions.unbind();
+            connections.remove(socket);
+        }
+    }
+
+    private static void send(PrintStream out, ByteArrayOutputStream output, OutputStream socketOutput) throws IOException {
+        out.flush();
+        output.writeTo(socketOutput);
+        socketOutput.flush();
+        output.reset();
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing useful to do when a socket fails to close
+        }
+    }
+}
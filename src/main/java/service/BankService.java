@@ -1,13 +1,56 @@
 package service;
 
-import enums.TransferMode;
+import utils.Amount;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 public interface BankService {
     void createAccount(String name);
     void deposit(BigDecimal amount);
     void withdraw(BigDecimal amount);
+
+    /**
+     * Transfers from the logged in customer with the options the bank's {@link TransferPolicy}
+     * gives that account.
+     */
     void transfer(String target, BigDecimal amount);
-    void setTransferMode(TransferMode transferMode);
+
+    void transfer(String target, BigDecimal amount, TransferOptions options);
+
+    /**
+     * Deposits into {@code account} rather than the logged in customer's account, so calls for
+     * different customers need no shared session. The amount has been validated where it was read.
+     */
+    void deposit(String account, Amount amount);
+
+    /**
+     * Withdraws from {@code account} rather than the logged in customer's account.
+     */
+    void withdraw(String account, Amount amount);
+
+    /**
+     * Transfers from {@code source} rather than the logged in customer's account.
+     */
+    void transfer(String source, String target, Amount amount);
+
+    void transfer(String source, String target, Amount amount, TransferOptions options);
+
+    /**
+     * Transfers from the logged in customer to every target of {@code legs}, in order, as one
+     * command. Each leg follows the account's transfer options as a separate transfer would, and
+     * the batch is journaled as one record.
+     */
+    List<TransferLegResult> transferBatch(List<TransferLeg> legs);
+
+    List<TransferLegResult> transferBatch(List<TransferLeg> legs, TransferOptions options);
+
+    /**
+     * Transfers from {@code source} rather than the logged in customer's account.
+     */
+    List<TransferLegResult> transferBatch(String source, List<TransferLeg> legs);
+
+    List<TransferLegResult> transferBatch(String source, List<TransferLeg> legs, TransferOptions options);
+
+    void netDebts();
 }
\ No newline at end of file
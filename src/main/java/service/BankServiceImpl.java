@@ -1,193 +1,710 @@
 package service;
 
 import account.Account;
+import account.AccountLocks;
 import account.AccountService;
+import enums.RepaymentOrder;
 import enums.TransferMode;
-import lombok.RequiredArgsConstructor;
+import enums.TransferOutcome;
+import event.ConsoleEventSink;
+import event.EventLog;
+import event.EventSink;
+import journal.Journal;
+import journal.JournalRecord;
+import journal.NoopJournal;
+import journal.Snapshot;
+import journal.SnapshotStore;
 import session.SessionService;
+import utils.Amount;
+import utils.NameCodec;
+import utils.PackedNameMap;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-
-@RequiredArgsConstructor
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Runs commands from many threads at once if the {@link AccountService} and {@link Journal} are
+ * thread-safe. A command locks the accounts it reads or changes through {@link AccountLocks}, in
+ * the global stripe order, and holds them until its results are journaled, so a balance check and
+ * the transfer and debt it leads to are one atomic step. Commands on different accounts run in
+ * parallel. The debts have one lock of their own, always taken after account locks.
+ */
 public class BankServiceImpl implements BankService {
+    // Enough stripes that commands on different accounts rarely share a lock
+    private static final int ACCOUNT_LOCK_STRIPES = 4096;
+
     private final AccountService accountService;
     private final SessionService sessionService;
-    private final Map<String, Map<String, BigDecimal>> owedAmounts = new HashMap<>();
+    private final Journal journal;
+    private final EventSink events;
+    private final DebtLedger owedAmounts = new DebtLedger();
+    private final AccountLocks accountLocks = new AccountLocks(ACCOUNT_LOCK_STRIPES);
+    private final ReentrantLock debtLock = new ReentrantLock();
+    // Once snapshots are enabled, commands share it and a snapshot takes it alone to rotate the journal
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final TransferPolicy transferPolicy;
+
+    private SnapshotStore snapshotStore;
+    private long recordsPerSnapshot;
+    private final LongAdder recordsSinceSnapshot = new LongAdder();
+    // Set while one thread rotates the journal and copies the state for a snapshot
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+
+    public BankServiceImpl(AccountService accountService, SessionService sessionService) {
+        this(accountService, sessionService, new NoopJournal());
+    }
+
+    public BankServiceImpl(AccountService accountService, SessionService sessionService, Journal journal) {
+        this(accountService, sessionService, journal, new ConsoleEventSink());
+    }
+
+    public BankServiceImpl(AccountService accountService, SessionService sessionService, Journal journal,
+                           EventSink events) {
+        this(accountService, sessionService, journal, events, TransferPolicy.DEFAULT);
+    }
+
+    /**
+     * @param transferPolicy options for transfers whose caller gives none
+     */
+    public BankServiceImpl(AccountService accountService, SessionService sessionService, Journal journal,
+                           EventSink events, TransferPolicy transferPolicy) {
+        this.accountService = accountService;
+        this.sessionService = sessionService;
+        this.journal = journal;
+        this.events = events;
+        this.transferPolicy = transferPolicy;
+    }
+
+    /**
+     * Snapshots the bank in the background once this many journal records have been written since
+     * the previous snapshot. Call before {@link #recover()} so startup loads the latest snapshot.
+     */
+    public void enableSnapshots(SnapshotStore snapshotStore, long recordsPerSnapshot) {
+        this.snapshotStore = snapshotStore;
+        this.recordsPerSnapshot = recordsPerSnapshot;
+    }
+
+    /**
+     * Rebuilds balances and debts from the latest snapshot plus the journal written after it.
+     * Call once at startup, before any command.
+     */
+    public void recover() {
+        stateLock.writeLock().lock();
+        try {
+            replayState();
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    private void replayState() {
+        long start = System.nanoTime();
+        Optional<Snapshot> snapshot = snapshotStore != null ? snapshotStore.loadLatest() : Optional.empty();
+        snapshot.ifPresent(this::restoreSnapshot);
+
+        long[] replayed = new long[1];
+        journal.replay(snapshot.map(Snapshot::getJournalSegment).orElse(0L), record -> {
+            apply(record);
+            replayed[0]++;
+        });
+
+        if (snapshot.isPresent() || replayed[0] > 0) {
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            int accounts = snapshot.map(loaded -> loaded.getBalances().size()).orElse(0);
+            events.recovered(accounts, replayed[0], elapsedMillis);
+        }
+    }
+
+    /**
+     * Copies the current state and hands it to the snapshot store to write in the background.
+     *
+     * @throws IllegalStateException if another snapshot is still being taken or written
+     */
+    public void takeSnapshot() {
+        if (snapshotStore == null) {
+            throw new IllegalStateException("Snapshots are not enabled\n");
+        }
+        if (!writeSnapshot()) {
+            throw new IllegalStateException("A snapshot is still being written\n");
+        }
+    }
+
+    // Only rotating the journal waits for running commands. Records set state rather than apply
+    // deltas, so the copy made after it may already hold changes journaled in the new segment:
+    // replaying them on top of the snapshot sets the same values again.
+    private boolean writeSnapshot() {
+        if (!snapshotting.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            long segment;
+            long recordsCovered;
+            stateLock.writeLock().lock();
+            try {
+                segment = journal.rotate();
+                recordsCovered = recordsSinceSnapshot.sum();
+            } finally {
+                stateLock.writeLock().unlock();
+            }
 
-    // Set transfer mode here
-    private TransferMode transferMode = TransferMode.PARTIAL_ALLOWED;
+            Map<String, Amount> balances = new LinkedHashMap<>();
+            for (Account account : accountService.getAccounts()) {
+                balances.put(account.getName(), account.getBalanceAmount());
+            }
+            DebtLedger debtCopy = new DebtLedger();
+            debtLock.lock();
+            try {
+                owedAmounts.forEach(debtCopy::restore);
+            } finally {
+                debtLock.unlock();
+            }
+            Map<String, Map<String, Amount>> debts = new HashMap<>();
+            debtCopy.forEach((debtorHigh, debtorLow, creditorHigh, creditorLow, amount) ->
+                    debts.computeIfAbsent(NameCodec.decode(debtorHigh, debtorLow), debtor -> new LinkedHashMap<>())
+                            .put(NameCodec.decode(creditorHigh, creditorLow), amount));
+
+            if (!snapshotStore.writeInBackground(new Snapshot(segment, balances, debts))) {
+                return false;
+            }
+            // Records written while copying count towards the next snapshot
+            recordsSinceSnapshot.add(-recordsCovered);
+            return true;
+        } finally {
+            snapshotting.set(false);
+        }
+    }
 
+    /**
+     * Collapses the debt cycles formed since the last netting and reports what was settled.
+     */
     @Override
-    public void setTransferMode(TransferMode transferMode) {
-        this.transferMode = transferMode;
+    public void netDebts() {
+        lockState();
+        NettingResult result;
+        debtLock.lock();
+        try {
+            result = owedAmounts.netCycles((debtorHigh, debtorLow, creditorHigh, creditorLow, amount) ->
+                    record(JournalRecord.debt(NameCodec.decode(debtorHigh, debtorLow),
+                            NameCodec.decode(creditorHigh, creditorLow), amount)));
+        } finally {
+            debtLock.unlock();
+            unlockState();
+        }
+        journal.sync();
+        events.debtsNetted(result.getCyclesCollapsed(), result.getDebtsSettled(), result.getValueNetted());
+        events.commandCompleted();
+    }
+
+    /**
+     * Chooses which of a debtor's creditors a deposit repays first.
+     */
+    public void setRepaymentOrder(RepaymentOrder repaymentOrder) {
+        debtLock.lock();
+        try {
+            owedAmounts.setRepaymentOrder(repaymentOrder);
+        } finally {
+            debtLock.unlock();
+        }
     }
 
     @Override
     public void createAccount(String name) {
+        // Packing the name validates it, before any lock is taken or the store is touched
+        long high = NameCodec.high(name);
+        long low = NameCodec.low(name);
 
-        if (!name.matches("^[a-zA-Z]{2,20}$")) {
-            throw new IllegalArgumentException("Account name must be 2-20 letters long and contain only letters (no numbers or special characters)\n");
+        lockState();
+        int stripe = accountLocks.stripe(high, low);
+        accountLocks.lock(stripe);
+        try {
+            Account account = accountService.createAccount(name);
+            events.greeted(name);
+            printBalance(account);
+            printOwedAmounts(name);
+            events.commandCompleted();
+        } finally {
+            accountLocks.unlock(stripe);
+            unlockState();
         }
-
-        Account account = accountService.createAccount(name);
-        System.out.println("Hello, " + name + "!");
-        printBalance(account);
-        printOwedAmounts(name);
-        System.out.println();
     }
 
     @Override
     public void deposit(BigDecimal amount) {
-        String currentUser = sessionService.getCurrentUser();
-        Account account = accountService.getAccount(currentUser);
-        account.deposit(amount);
-        accountService.updateAccount(account);
-        handleDebts(currentUser, amount);
+        depositInto(sessionService.getCurrentUser(), Amount.of(amount));
     }
 
     @Override
     public void withdraw(BigDecimal amount) {
-        String currentUser = sessionService.getCurrentUser();
-        Account account = accountService.getAccount(currentUser);
-        account.withdraw(amount);
-        accountService.updateAccount(account);
-        printBalance(account);
+        withdrawFrom(sessionService.getCurrentUser(), Amount.of(amount));
     }
 
     @Override
     public void transfer(String target, BigDecimal requestedAmount) {
         String currentUser = sessionService.getCurrentUser();
+        transferFrom(currentUser, target, Amount.of(requestedAmount), transferPolicy.optionsFor(currentUser));
+    }
+
+    @Override
+    public void transfer(String target, BigDecimal requestedAmount, TransferOptions options) {
+        transferFrom(sessionService.getCurrentUser(), target, Amount.of(requestedAmount), options);
+    }
+
+    @Override
+    public void deposit(String account, Amount amount) {
+        depositInto(account, amount);
+    }
+
+    @Override
+    public void withdraw(String account, Amount amount) {
+        withdrawFrom(account, amount);
+    }
+
+    @Override
+    public void transfer(String source, String target, Amount amount) {
+        transferFrom(source, target, amount, transferPolicy.optionsFor(source));
+    }
+
+    @Override
+    public void transfer(String source, String target, Amount amount, TransferOptions options) {
+        transferFrom(source, target, amount, options);
+    }
+
+    @Override
+    public List<TransferLegResult> transferBatch(List<TransferLeg> legs) {
+        String currentUser = sessionService.getCurrentUser();
+        return transferBatchFrom(currentUser, legs, transferPolicy.optionsFor(currentUser));
+    }
+
+    @Override
+    public List<TransferLegResult> transferBatch(List<TransferLeg> legs, TransferOptions options) {
+        return transferBatchFrom(sessionService.getCurrentUser(), legs, options);
+    }
+
+    @Override
+    public List<TransferLegResult> transferBatch(String source, List<TransferLeg> legs) {
+        return transferBatchFrom(source, legs, transferPolicy.optionsFor(source));
+    }
+
+    @Override
+    public List<TransferLegResult> transferBatch(String source, List<TransferLeg> legs, TransferOptions options) {
+        return transferBatchFrom(source, legs, options);
+    }
+
+    private void depositInto(String currentUser, Amount amount) {
+        maybeSnapshot();
+        lockState();
+        int[] stripes = lockDebtorAndCreditors(currentUser);
+        try {
+            Account account = requireAccount(currentUser);
+            account.deposit(amount);
+            record(JournalRecord.deposit(currentUser, amount, account.getBalanceAmount()));
+            accountService.updateAccount(account);
+            handleDebts(currentUser, account, amount);
+        } finally {
+            accountLocks.unlockAll(stripes, stripes.length);
+            unlockState();
+        }
+    }
+
+    private void withdrawFrom(String currentUser, Amount amount) {
+        maybeSnapshot();
+        lockState();
+        int stripe = accountLocks.stripe(currentUser);
+        accountLocks.lock(stripe);
+        try {
+            Account account = requireAccount(currentUser);
+            account.withdraw(amount);
+            record(JournalRecord.withdraw(currentUser, amount, account.getBalanceAmount()));
+            accountService.updateAccount(account);
+            journal.sync();
+            printBalance(account);
+        } finally {
+            accountLocks.unlock(stripe);
+            unlockState();
+        }
+    }
+
+    private void transferFrom(String currentUser, String target, Amount requestedAmount, TransferOptions options) {
+        maybeSnapshot();
         target = target.toLowerCase();
 
-        if (target.equals(currentUser)) {
+        if (target.equalsIgnoreCase(currentUser)) {
             throw new IllegalStateException("Cannot transfer money to yourself");
         }
 
-        Account sourceAccount = accountService.getAccount(currentUser);
-        BigDecimal balance = sourceAccount.getBalance();
+        lockState();
+        int sourceStripe = accountLocks.stripe(currentUser);
+        int targetStripe = accountLocks.stripe(target);
+        accountLocks.lock(sourceStripe, targetStripe);
+        try {
+            transferLocked(currentUser, target, requestedAmount, options.getMode());
+        } finally {
+            accountLocks.unlock(sourceStripe, targetStripe);
+            unlockState();
+        }
+    }
+
+    // Locks the source and every target once, applies the legs in order, and journals and syncs them
+    // as one record before reporting any of them
+    private List<TransferLegResult> transferBatchFrom(String currentUser, List<TransferLeg> legs,
+                                                      TransferOptions options) {
+        maybeSnapshot();
+        String[] targets = new String[legs.size()];
+        int[] stripes = new int[legs.size() + 1];
+        stripes[0] = accountLocks.stripe(currentUser);
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = legs.get(i).getTarget().toLowerCase();
+            if (targets[i].equalsIgnoreCase(currentUser)) {
+                throw new IllegalStateException("Cannot transfer money to yourself");
+            }
+            stripes[i + 1] = accountLocks.stripe(targets[i]);
+        }
+        TransferMode mode = options.getMode();
+
+        lockState();
+        int distinct = accountLocks.lockAll(stripes, stripes.length);
+        try {
+            Account sourceAccount = requireAccount(currentUser);
+            List<JournalRecord> entries = new ArrayList<>();
+            List<TransferLegResult> results = new ArrayList<>(targets.length);
+            for (int i = 0; i < targets.length; i++) {
+                results.add(transferLeg(currentUser, sourceAccount, targets[i],
+                        legs.get(i).getAmount(), mode, entries));
+            }
+            if (!entries.isEmpty()) {
+                record(JournalRecord.batch(entries));
+                journal.sync();
+            }
+
+            for (TransferLegResult result : results) {
+                if (result.getOutcome() != TransferOutcome.INSUFFICIENT_FUNDS) {
+                    events.transferred(result.getTransferred(), result.getTarget());
+                } else if (mode == TransferMode.FULL_ONLY) {
+                    events.insufficientFundsForFullTransfer(result.getRequested(), result.getBalance());
+                } else {
+                    events.insufficientFunds(result.getBalance());
+                }
+            }
+            printBalance(sourceAccount);
+            if (mode == TransferMode.PARTIAL_ALLOWED) {
+                printOwedAmounts(currentUser);
+            }
+            events.commandCompleted();
+            return results;
+        } finally {
+            accountLocks.unlockAll(stripes, distinct);
+            unlockState();
+        }
+    }
+
+    // One leg of a batch under the same rules as a single transfer; its journal records go to entries
+    private TransferLegResult transferLeg(String source, Account sourceAccount, String target, Amount requested,
+                                          TransferMode mode, List<JournalRecord> entries) {
+        Amount balance = sourceAccount.getBalanceAmount();
+        boolean covered = balance.compareTo(requested) >= 0;
+        if (mode == TransferMode.FULL_ONLY ? !covered : balance.signum() == 0) {
+            return new TransferLegResult(target, requested, Amount.ZERO, Amount.ZERO, balance,
+                    TransferOutcome.INSUFFICIENT_FUNDS);
+        }
+
+        Account targetAccount = accountService.findAccount(target);
+        if (targetAccount == null) {
+            targetAccount = accountService.createAccount(target);
+        }
+        Amount transferAmount = requested.min(balance);
+        sourceAccount.transfer(targetAccount, transferAmount);
+        entries.add(JournalRecord.transfer(source, target, transferAmount,
+                sourceAccount.getBalanceAmount(), targetAccount.getBalanceAmount()));
+        Amount owed = requested.subtract(transferAmount);
+        if (owed.signum() > 0) {
+            addOwedAmount(source, target, owed, entries::add);
+        }
+        accountService.updateAccount(sourceAccount);
+        accountService.updateAccount(targetAccount);
+        return new TransferLegResult(target, requested, transferAmount, owed, sourceAccount.getBalanceAmount(),
+                covered ? TransferOutcome.TRANSFERRED : TransferOutcome.PARTIAL);
+    }
+
+    // Caller holds the locks of both accounts, so the balance checked is the balance moved
+    private void transferLocked(String currentUser, String target, Amount requestedAmount, TransferMode mode) {
+        Account sourceAccount = requireAccount(currentUser);
+        Amount balance = sourceAccount.getBalanceAmount();
 
         // Handle Full Only Transfer Mode
-        if (transferMode == TransferMode.FULL_ONLY) {
+        if (mode == TransferMode.FULL_ONLY) {
             if (balance.compareTo(requestedAmount) < 0) {
-                System.out.println("Insufficient funds for full transfer. Required: $" + requestedAmount + ", Available: $" + balance);
-                System.out.println();
+                events.insufficientFundsForFullTransfer(requestedAmount, balance);
+                events.commandCompleted();
                 return;
             }
 
-            Account targetAccount = accountService.getAccount(target);
+            Account targetAccount = accountService.findAccount(target);
             if (targetAccount == null) {
                 targetAccount = accountService.createAccount(target);
             }
 
             sourceAccount.transfer(targetAccount, requestedAmount);
-            System.out.println("Transferred $" + requestedAmount + " to " + target);
+            recordTransfer(currentUser, sourceAccount, target, targetAccount, requestedAmount);
+            journal.sync();
+            events.transferred(requestedAmount, target);
             accountService.updateAccount(sourceAccount);
             accountService.updateAccount(targetAccount);
             printBalance(sourceAccount);
-            System.out.println();
+            events.commandCompleted();
             return;
         }
 
         // Handle Partial Allowed Transfer Mode
-        if (sourceAccount.getBalance().compareTo(BigDecimal.ZERO) == 0) {
-            System.out.println("Insufficient funds. Your balance is $" + balance);
-            System.out.println();
+        if (balance.signum() == 0) {
+            events.insufficientFunds(balance);
+            events.commandCompleted();
             return;
         }
 
-        Account targetAccount;
-        try {
-            targetAccount = accountService.getAccount(target);
-        } catch (Exception e) {
+        Account targetAccount = accountService.findAccount(target);
+        if (targetAccount == null) {
             targetAccount = accountService.createAccount(target);
-            if (sourceAccount.getBalance().compareTo(BigDecimal.ZERO) == 0) {
+            if (balance.signum() == 0) {
                 addOwedAmount(currentUser, target, requestedAmount);
+                journal.sync();
                 printBalance(sourceAccount);
                 printOwedAmounts(currentUser);
-                System.out.println();
+                events.commandCompleted();
                 return;
             }
         }
 
-        BigDecimal availableAmount = sourceAccount.getBalance();
-        BigDecimal transferAmount = requestedAmount.min(availableAmount);
+        Amount availableAmount = sourceAccount.getBalanceAmount();
+        Amount transferAmount = requestedAmount.min(availableAmount);
 
-        if (transferAmount.compareTo(BigDecimal.ZERO) > 0) {
+        if (transferAmount.signum() > 0) {
             sourceAccount.transfer(targetAccount, transferAmount);
-            System.out.println("Transferred $" + transferAmount + " to " + target);
+            recordTransfer(currentUser, sourceAccount, target, targetAccount, transferAmount);
 
             if (transferAmount.compareTo(requestedAmount) < 0) {
-                BigDecimal remainingAmount = requestedAmount.subtract(transferAmount);
+                Amount remainingAmount = requestedAmount.subtract(transferAmount);
                 addOwedAmount(currentUser, target, remainingAmount);
             }
+            journal.sync();
+            events.transferred(transferAmount, target);
         }
 
         accountService.updateAccount(sourceAccount);
         accountService.updateAccount(targetAccount);
         printBalance(sourceAccount);
         printOwedAmounts(currentUser);
-        System.out.println();
+        events.commandCompleted();
     }
 
-    private void handleDebts(String currentUser, BigDecimal availableAmount) {
-        Map<String, BigDecimal> debts = owedAmounts.getOrDefault(currentUser.toLowerCase(), new HashMap<>());
-        BigDecimal remaining = availableAmount;
+    // Caller holds the locks of the debtor and of everyone it owes
+    private void handleDebts(String currentUser, Account account, Amount availableAmount) {
+        long debtorHigh = NameCodec.high(currentUser);
+        long debtorLow = NameCodec.low(currentUser);
 
-        for (Map.Entry<String, BigDecimal> debt : new HashMap<>(debts).entrySet()) {
-            String creditor = debt.getKey().toLowerCase();
-            BigDecimal owedAmount = debt.getValue();
-            BigDecimal transferAmount = owedAmount.min(remaining);
-
-            if (transferAmount.compareTo(BigDecimal.ZERO) > 0) {
+        // Payments are reported only once their records are synced, which happens after debtLock
+        // is released so other commands reading debts do not wait for the disk
+        EventLog payments = new EventLog();
+        debtLock.lock();
+        try {
+            owedAmounts.repay(debtorHigh, debtorLow, availableAmount, (creditorHigh, creditorLow, payment, owedAfter) -> {
+                String creditor = NameCodec.decode(creditorHigh, creditorLow);
                 Account targetAccount = accountService.getAccount(creditor);
-                Account sourceAccount = accountService.getAccount(currentUser);
-                sourceAccount.transfer(targetAccount, transferAmount);
-                System.out.println("Transferred $" + transferAmount + " to " + creditor);
-                accountService.updateAccount(sourceAccount);
+                account.transfer(targetAccount, payment);
+                recordTransfer(currentUser, account, creditor, targetAccount, payment);
+                accountService.updateAccount(account);
                 accountService.updateAccount(targetAccount);
+                record(JournalRecord.debt(currentUser, creditor, owedAfter));
+                payments.transferred(payment, creditor);
+            });
+        } finally {
+            debtLock.unlock();
+        }
 
-                remaining = remaining.subtract(transferAmount);
-                BigDecimal newOwedAmount = owedAmount.subtract(transferAmount);
-                if (newOwedAmount.compareTo(BigDecimal.ZERO) > 0) {
-                    debts.put(creditor, newOwedAmount);
-                } else {
-                    debts.remove(creditor);
-                }
+        journal.sync();
+        payments.replayTo(events);
+        printBalance(account);
+        printOwedAmounts(currentUser);
+        events.commandCompleted();
+    }
+
+    private void addOwedAmount(String debtor, String creditor, Amount amount) {
+        addOwedAmount(debtor, creditor, amount, this::record);
+    }
+
+    private void addOwedAmount(String debtor, String creditor, Amount amount, Consumer<JournalRecord> records) {
+        long debtorHigh = NameCodec.high(debtor);
+        long debtorLow = NameCodec.low(debtor);
+        long creditorHigh = NameCodec.high(creditor);
+        long creditorLow = NameCodec.low(creditor);
+        debtLock.lock();
+        try {
+            Amount owedAmount = owedAmounts.get(debtorHigh, debtorLow, creditorHigh, creditorLow);
+            owedAmount = owedAmount == null ? amount : owedAmount.add(amount);
+            owedAmounts.set(debtorHigh, debtorLow, creditorHigh, creditorLow, owedAmount);
+            records.accept(JournalRecord.debt(debtor, NameCodec.decode(creditorHigh, creditorLow), owedAmount));
+        } finally {
+            debtLock.unlock();
+        }
+    }
+
+    // Locks the depositor and every creditor the deposit may repay, and returns their stripes.
+    // Only a transfer by the debtor adds creditors, and it needs the debtor's lock, so once the
+    // locks are held the set can only shrink; if it grew while they were being taken, start over.
+    private int[] lockDebtorAndCreditors(String debtor) {
+        if (!NameCodec.isValid(debtor)) {
+            int[] stripes = {accountLocks.stripe(debtor)};
+            accountLocks.lock(stripes[0]);
+            return stripes;
+        }
+        long debtorHigh = NameCodec.high(debtor);
+        long debtorLow = NameCodec.low(debtor);
+        while (true) {
+            int[] stripes = creditorStripes(debtorHigh, debtorLow);
+            int distinct = accountLocks.lockAll(stripes, stripes.length);
+            int[] locked = Arrays.copyOf(stripes, distinct);
+            if (creditorStripesLocked(debtorHigh, debtorLow, locked)) {
+                return locked;
             }
+            accountLocks.unlockAll(locked, distinct);
         }
+    }
 
-        if (debts.isEmpty()) {
-            owedAmounts.remove(currentUser.toLowerCase());
-        } else {
-            owedAmounts.put(currentUser.toLowerCase(), debts);
+    // The debtor's stripe followed by those of its creditors
+    private int[] creditorStripes(long debtorHigh, long debtorLow) {
+        debtLock.lock();
+        try {
+            int[] stripes = new int[1 + owedAmounts.creditorCount(debtorHigh, debtorLow)];
+            stripes[0] = accountLocks.stripe(debtorHigh, debtorLow);
+            int[] next = {1};
+            owedAmounts.forEachDebt(debtorHigh, debtorLow, (creditorHigh, creditorLow, amount) ->
+                    stripes[next[0]++] = accountLocks.stripe(creditorHigh, creditorLow));
+            return stripes;
+        } finally {
+            debtLock.unlock();
         }
+    }
 
-        Account updatedAccount = accountService.getAccount(currentUser);
-        printBalance(updatedAccount);
-        printOwedAmounts(currentUser);
-        System.out.println();
+    private boolean creditorStripesLocked(long debtorHigh, long debtorLow, int[] locked) {
+        debtLock.lock();
+        try {
+            boolean[] covered = {true};
+            owedAmounts.forEachDebt(debtorHigh, debtorLow, (creditorHigh, creditorLow, amount) ->
+                    covered[0] &= Arrays.binarySearch(locked, accountLocks.stripe(creditorHigh, creditorLow)) >= 0);
+            return covered[0];
+        } finally {
+            debtLock.unlock();
+        }
+    }
+
+    private void lockState() {
+        if (snapshotStore != null) {
+            stateLock.readLock().lock();
+        }
+    }
+
+    private void unlockState() {
+        if (snapshotStore != null) {
+            stateLock.readLock().unlock();
+        }
     }
 
-    private void addOwedAmount(String debtor, String creditor, BigDecimal amount) {
-        debtor = debtor.toLowerCase();
-        creditor = creditor.toLowerCase();
-        owedAmounts.computeIfAbsent(debtor, k -> new HashMap<>())
-                .merge(creditor, amount, BigDecimal::add);
+    private Account requireAccount(String name) {
+        Account account = accountService.findAccount(name);
+        if (account == null) {
+            throw new IllegalStateException("Account " + name + " does not exist\n");
+        }
+        return account;
     }
 
+    private void record(JournalRecord record) {
+        journal.append(record);
+        if (snapshotStore != null) {
+            recordsSinceSnapshot.increment();
+        }
+    }
+
+    // A snapshot refused because the previous one is still being written is retried by a later command
+    private void maybeSnapshot() {
+        if (snapshotStore == null || recordsSinceSnapshot.sum() < recordsPerSnapshot || snapshotStore.isWriting()) {
+            return;
+        }
+        writeSnapshot();
+    }
+
+    private void restoreSnapshot(Snapshot snapshot) {
+        snapshot.getBalances().forEach(this::restoreBalance);
+        snapshot.getOwedAmounts().forEach((debtor, debts) -> debts.forEach((creditor, amount) ->
+                restoreOwedAmount(debtor, creditor, amount)));
+    }
+
+    private void recordTransfer(String source, Account sourceAccount, String target, Account targetAccount,
+                                Amount amount) {
+        record(JournalRecord.transfer(source, target, amount,
+                sourceAccount.getBalanceAmount(), targetAccount.getBalanceAmount()));
+    }
+
+    private void apply(JournalRecord record) {
+        switch (record.getOperation()) {
+            case DEPOSIT:
+            case WITHDRAW:
+                restoreBalance(record.getAccount(), record.getBalance());
+                break;
+            case TRANSFER:
+                restoreBalance(record.getAccount(), record.getBalance());
+                restoreBalance(record.getCounterparty(), record.getCounterpartyBalance());
+                break;
+            case DEBT:
+                restoreOwedAmount(record.getAccount(), record.getCounterparty(), record.getAmount());
+                break;
+            case BATCH:
+                record.getEntries().forEach(this::apply);
+                break;
+        }
+    }
+
+    private void restoreBalance(String name, Amount balance) {
+        Account account = accountService.getAccount(name);
+        account.restoreBalance(balance);
+        accountService.updateAccount(account);
+    }
+
+    private void restoreOwedAmount(String debtor, String creditor, Amount amount) {
+        owedAmounts.set(NameCodec.high(debtor), NameCodec.low(debtor),
+                NameCodec.high(creditor), NameCodec.low(creditor), amount);
+    }
 
     private void printBalance(Account account) {
-        System.out.println("Your balance is $" + account.getBalance());
+        if (events.isEnabled()) {
+            events.balance(account.getBalanceAmount());
+        }
     }
 
     private void printOwedAmounts(String user) {
-        Map<String, BigDecimal> debts = owedAmounts.getOrDefault(user.toLowerCase(), new HashMap<>());
-        for (Map.Entry<String, BigDecimal> debt : debts.entrySet()) {
-            if (debt.getValue().compareTo(BigDecimal.ZERO) > 0) {
-                System.out.println("Owed $" + debt.getValue() + " to " + debt.getKey());
+        if (!events.isEnabled()) {
+            return;
+        }
+        long userHigh = NameCodec.high(user);
+        long userLow = NameCodec.low(user);
+        debtLock.lock();
+        try {
+            owedAmounts.forEachDebt(userHigh, userLow, events::owedTo);
+            PackedNameMap<Amount> credits = owedAmounts.creditsOf(userHigh, userLow);
+            if (credits != null) {
+                credits.forEach(events::owedFrom);
             }
+        } finally {
+            debtLock.unlock();
         }
     }
 }
\ No newline at end of file
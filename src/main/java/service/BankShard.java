@@ -0,0 +1,306 @@
+package service;
+
+import account.Account;
+import account.AccountService;
+import account.AccountServiceImpl;
+import enums.RepaymentOrder;
+import enums.TransferMode;
+import enums.TransferOutcome;
+import event.EventSink;
+import utils.Amount;
+import utils.NameCodec;
+import utils.PackedNameMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * One partition of a {@link ShardedBankService}: the accounts whose names hash to it, the debts
+ * those accounts owe, and what accounts on other shards owe them. Only the shard's owner thread
+ * touches this state; other threads hand it work through {@link #call} and {@link #run}, and every
+ * method that takes names runs on the owner thread.
+ */
+class BankShard implements AutoCloseable {
+
+    private final AccountService accounts = new AccountServiceImpl();
+    // Debts owed by this shard's accounts, to creditors on any shard
+    private final DebtLedger debts = new DebtLedger();
+    // Creditor here -> debtor on another shard -> amount. The debtor's shard sends each change as a
+    // difference; increases arrive before the debt is recorded and decreases after, so this is
+    // never below the debt itself.
+    private final PackedNameMap<PackedNameMap<Amount>> remoteCredits = new PackedNameMap<>();
+    private final ExecutorService owner;
+
+    BankShard(int index) {
+        this.owner = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "bank-shard-" + index);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, owner);
+    }
+
+    CompletableFuture<Void> execute(Runnable task) {
+        return CompletableFuture.runAsync(task, owner);
+    }
+
+    /**
+     * Runs the task on the owner thread and waits for its result, rethrowing what it threw.
+     */
+    <T> T call(Supplier<T> task) {
+        return await(submit(task));
+    }
+
+    void run(Runnable task) {
+        await(execute(task));
+    }
+
+    static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        owner.shutdown();
+        try {
+            owner.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Only while every owner thread is paused
+    DebtLedger debts() {
+        return debts;
+    }
+
+    void setRepaymentOrder(RepaymentOrder repaymentOrder) {
+        debts.setRepaymentOrder(repaymentOrder);
+    }
+
+    void login(String name, EventSink events) {
+        Account account = accounts.createAccount(name);
+        events.greeted(name);
+        events.balance(account.getBalanceAmount());
+        printOwedAmounts(name, events);
+        events.commandCompleted();
+    }
+
+    /**
+     * Deposits and repays the depositor's creditors. Creditors on this shard are paid here; what goes
+     * to creditors elsewhere is taken from the depositor and returned for their shards to credit.
+     */
+    List<TransferLeg> deposit(String name, Amount amount, EventSink events) {
+        Account account = requireAccount(name);
+        account.deposit(amount);
+        accounts.updateAccount(account);
+
+        List<TransferLeg> remotePayments = new ArrayList<>();
+        debts.repay(NameCodec.high(name), NameCodec.low(name), amount, (creditorHigh, creditorLow, payment, owedAfter) -> {
+            String creditor = NameCodec.decode(creditorHigh, creditorLow);
+            Account creditorAccount = accounts.findAccount(creditor);
+            if (creditorAccount != null) {
+                account.transfer(creditorAccount, payment);
+                accounts.updateAccount(creditorAccount);
+            } else {
+                account.withdraw(payment);
+                remotePayments.add(new TransferLeg(creditor, payment));
+            }
+            accounts.updateAccount(account);
+            events.transferred(payment, creditor);
+        });
+
+        events.balance(account.getBalanceAmount());
+        printOwedAmounts(name, events);
+        events.commandCompleted();
+        return remotePayments;
+    }
+
+    void withdraw(String name, Amount amount, EventSink events) {
+        Account account = requireAccount(name);
+        account.withdraw(amount);
+        accounts.updateAccount(account);
+        events.balance(account.getBalanceAmount());
+    }
+
+    /**
+     * A transfer between two accounts of this shard, under the same rules as
+     * {@link BankServiceImpl}. Unless refused, the source's debts go to {@code owedEvents} if given.
+     */
+    TransferLegResult transfer(String source, String target, Amount requested, TransferMode mode,
+                               EventSink owedEvents) {
+        Account sourceAccount = requireAccount(source);
+        TransferLegResult refused = refusal(sourceAccount, target, requested, mode);
+        if (refused != null) {
+            return refused;
+        }
+
+        Account targetAccount = findOrCreate(target);
+        Amount balance = sourceAccount.getBalanceAmount();
+        Amount transferAmount = requested.min(balance);
+        sourceAccount.transfer(targetAccount, transferAmount);
+        Amount owed = requested.subtract(transferAmount);
+        if (owed.signum() > 0) {
+            addOwedAmount(source, target, owed);
+        }
+        accounts.updateAccount(sourceAccount);
+        accounts.updateAccount(targetAccount);
+        if (owedEvents != null) {
+            printOwedAmounts(source, owedEvents);
+        }
+        return new TransferLegResult(target, requested, transferAmount, owed, sourceAccount.getBalanceAmount(),
+                balance.compareTo(requested) >= 0 ? TransferOutcome.TRANSFERRED : TransferOutcome.PARTIAL);
+    }
+
+    /**
+     * First phase of a transfer to another shard: takes what the source can pay out of its balance
+     * and holds it until {@link #commit} or {@link #release}. Nothing else can spend it meanwhile.
+     */
+    TransferLegResult reserve(String source, String target, Amount requested, TransferMode mode) {
+        Account sourceAccount = requireAccount(source);
+        TransferLegResult refused = refusal(sourceAccount, target, requested, mode);
+        if (refused != null) {
+            return refused;
+        }
+
+        Amount balance = sourceAccount.getBalanceAmount();
+        Amount held = requested.min(balance);
+        sourceAccount.withdraw(held);
+        accounts.updateAccount(sourceAccount);
+        return new TransferLegResult(target, requested, held, requested.subtract(held),
+                sourceAccount.getBalanceAmount(),
+                balance.compareTo(requested) >= 0 ? TransferOutcome.TRANSFERRED : TransferOutcome.PARTIAL);
+    }
+
+    /**
+     * The target's side of a transfer from another shard: credits what was reserved and notes how
+     * much more the debtor now owes the target.
+     */
+    void credit(String target, Amount amount, String debtor, Amount owedChange) {
+        Account account = findOrCreate(target);
+        account.deposit(amount);
+        accounts.updateAccount(account);
+        adjustRemoteCredit(NameCodec.high(target), NameCodec.low(target),
+                NameCodec.high(debtor), NameCodec.low(debtor), owedChange);
+    }
+
+    /**
+     * Completes a reserved transfer once the target is credited by recording what the source still
+     * owes. The source's debts go to {@code owedEvents} if given.
+     */
+    void commit(String source, TransferLegResult reserved, EventSink owedEvents) {
+        if (reserved.getOwed().signum() > 0) {
+            addOwedAmount(source, reserved.getTarget(), reserved.getOwed());
+        }
+        if (owedEvents != null) {
+            printOwedAmounts(source, owedEvents);
+        }
+    }
+
+    /**
+     * Gives a reserved amount back to the source when the target could not be credited.
+     */
+    void release(String source, TransferLegResult reserved) {
+        Account account = requireAccount(source);
+        account.deposit(reserved.getTransferred());
+        accounts.updateAccount(account);
+    }
+
+    void report(String name, boolean withOwedAmounts, EventSink events) {
+        events.balance(requireAccount(name).getBalanceAmount());
+        if (withOwedAmounts) {
+            printOwedAmounts(name, events);
+        }
+    }
+
+    Amount balanceOf(String name) {
+        return requireAccount(name).getBalanceAmount();
+    }
+
+    void adjustRemoteCredit(long creditorHigh, long creditorLow, long debtorHigh, long debtorLow, Amount change) {
+        if (change.signum() == 0) {
+            return;
+        }
+        PackedNameMap<Amount> debtors = remoteCredits.computeIfAbsent(creditorHigh, creditorLow, PackedNameMap::new);
+        Amount owed = debtors.get(debtorHigh, debtorLow);
+        owed = owed == null ? change : owed.add(change);
+        if (owed.signum() > 0) {
+            debtors.put(debtorHigh, debtorLow, owed);
+        } else {
+            debtors.remove(debtorHigh, debtorLow);
+            if (debtors.isEmpty()) {
+                remoteCredits.remove(creditorHigh, creditorLow);
+            }
+        }
+    }
+
+    private static TransferLegResult refusal(Account sourceAccount, String target, Amount requested,
+                                             TransferMode mode) {
+        Amount balance = sourceAccount.getBalanceAmount();
+        boolean covered = balance.compareTo(requested) >= 0;
+        if (mode == TransferMode.FULL_ONLY ? covered : balance.signum() != 0) {
+            return null;
+        }
+        return new TransferLegResult(target, requested, Amount.ZERO, Amount.ZERO, balance,
+                TransferOutcome.INSUFFICIENT_FUNDS);
+    }
+
+    private void addOwedAmount(String debtor, String creditor, Amount amount) {
+        long debtorHigh = NameCodec.high(debtor);
+        long debtorLow = NameCodec.low(debtor);
+        long creditorHigh = NameCodec.high(creditor);
+        long creditorLow = NameCodec.low(creditor);
+        Amount owedAmount = debts.get(debtorHigh, debtorLow, creditorHigh, creditorLow);
+        debts.set(debtorHigh, debtorLow, creditorHigh, creditorLow,
+                owedAmount == null ? amount : owedAmount.add(amount));
+    }
+
+    private Account findOrCreate(String name) {
+        Account account = accounts.findAccount(name);
+        return account != null ? account : accounts.createAccount(name);
+    }
+
+    private Account requireAccount(String name) {
+        Account account = accounts.findAccount(name);
+        if (account == null) {
+            throw new IllegalStateException("Account " + name + " does not exist\n");
+        }
+        return account;
+    }
+
+    private void printOwedAmounts(String user, EventSink events) {
+        if (!events.isEnabled()) {
+            return;
+        }
+        long userHigh = NameCodec.high(user);
+        long userLow = NameCodec.low(user);
+        debts.forEachDebt(userHigh, userLow, events::owedTo);
+        PackedNameMap<Amount> credits = debts.creditsOf(userHigh, userLow);
+        if (credits != null) {
+            credits.forEach(events::owedFrom);
+        }
+        PackedNameMap<Amount> remote = remoteCredits.get(userHigh, userLow);
+        if (remote != null) {
+            remote.forEach(events::owedFrom);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package service;
+
+import enums.RepaymentOrder;
+import utils.Amount;
+import utils.PackedNameMap;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Open debts between accounts, indexed by debtor and by creditor so both sides are found without a
+ * scan. Names are packed with {@link utils.NameCodec} and amounts are {@link Amount}s, so summing and
+ * netting debts is long arithmetic on minor units. Not thread-safe.
+ * <p>
+ * Each debtor's debts form a queue in the order they were first incurred; a debt keeps its place
+ * when it grows or shrinks. {@link #repay} drains that queue in place from the end chosen by the
+ * {@link RepaymentOrder}, touching only the creditors it pays.
+ * <p>
+ * Every debt that is created or grows is remembered until the next {@link #netCycles}. A cycle
+ * (A owes B, B owes C, C owes A) can only appear through such a debt, so netting searches from
+ * those debts alone instead of the whole graph. Each debt is remembered once however often it
+ * grows, and debts settled meanwhile are dropped, so the list stays within the open debts even if
+ * netting never runs.
+ */
+public class DebtLedger {
+
+    // Debtor -> that debtor's debts, oldest first
+    private final PackedNameMap<DebtQueue> owedTo = new PackedNameMap<>();
+    // Creditor -> debtor -> amount owed
+    private final PackedNameMap<PackedNameMap<Amount>> owedFrom = new PackedNameMap<>();
+
+    // Debts grown since the last netting, four words each: debtor high/low, creditor high/low. A
+    // debt is listed while its pending flag is set; entries of settled debts are dropped when the
+    // array would otherwise grow.
+    private long[] pending = new long[64];
+    private int pendingCount;
+
+    private RepaymentOrder repaymentOrder = RepaymentOrder.OLDEST_FIRST;
+
+    public void setRepaymentOrder(RepaymentOrder repaymentOrder) {
+        this.repaymentOrder = repaymentOrder;
+    }
+
+    public Amount get(long debtorHigh, long debtorLow, long creditorHigh, long creditorLow) {
+        DebtQueue debts = owedTo.get(debtorHigh, debtorLow);
+        Debt debt = debts == null ? null : debts.byCreditor.get(creditorHigh, creditorLow);
+        return debt == null ? null : debt.amount;
+    }
+
+    /**
+     * Visits the debtor's creditors in repayment order.
+     */
+    public void forEachDebt(long debtorHigh, long debtorLow, PackedNameMap.EntryConsumer<Amount> consumer) {
+        DebtQueue debts = owedTo.get(debtorHigh, debtorLow);
+        if (debts == null) {
+            return;
+        }
+        for (Debt debt = debts.first(repaymentOrder); debt != null; debt = debt.following(repaymentOrder)) {
+            consumer.accept(debt.creditorHigh, debt.creditorLow, debt.amount);
+        }
+    }
+
+    /**
+     * Number of creditors the debtor owes.
+     */
+    public int creditorCount(long debtorHigh, long debtorLow) {
+        DebtQueue debts = owedTo.get(debtorHigh, debtorLow);
+        return debts == null ? 0 : debts.byCreditor.size();
+    }
+
+    /**
+     * Debtors of the creditor with the amounts they owe, or null if nobody does. Read only.
+     */
+    public PackedNameMap<Amount> creditsOf(long creditorHigh, long creditorLow) {
+        return owedFrom.get(creditorHigh, creditorLow);
+    }
+
+    /**
+     * Sets the amount owed; zero or less removes the debt.
+     */
+    public void set(long debtorHigh, long debtorLow, long creditorHigh, long creditorLow, Amount amount) {
+        put(debtorHigh, debtorLow, creditorHigh, creditorLow, amount, true);
+    }
+
+    /**
+     * Sets the amount owed like {@link #set} without remembering it for netting, for copying in
+     * debts that another ledger already remembers.
+     */
+    void restore(long debtorHigh, long debtorLow, long creditorHigh, long creditorLow, Amount amount) {
+        put(debtorHigh, debtorLow, creditorHigh, creditorLow, amount, false);
+    }
+
+    boolean hasPending() {
+        return pendingCount > 0;
+    }
+
+    int pendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Hands the debts grown since the last netting to {@code other}, which nets them from then on.
+     */
+    void movePendingTo(DebtLedger other) {
+        for (int offset = 0; offset < pendingCount * 4; offset += 4) {
+            Debt debt = find(pending[offset], pending[offset + 1], pending[offset + 2], pending[offset + 3]);
+            if (debt != null) {
+                debt.pending = false;
+            }
+            other.markPending(pending[offset], pending[offset + 1], pending[offset + 2], pending[offset + 3]);
+        }
+        pendingCount = 0;
+    }
+
+    private void put(long debtorHigh, long debtorLow, long creditorHigh, long creditorLow, Amount amount,
+                     boolean remember) {
+        if (amount.signum() <= 0) {
+            DebtQueue debts = owedTo.get(debtorHigh, debtorLow);
+            Debt debt = debts == null ? null : debts.byCreditor.get(creditorHigh, creditorLow);
+            if (debt != null) {
+                settle(debtorHigh, debtorLow, debts, debt);
+            }
+            return;
+        }
+
+        DebtQueue debts = owedTo.computeIfAbsent(debtorHigh, debtorLow, DebtQueue::new);
+        Debt debt = debts.byCreditor.get(creditorHigh, creditorLow);
+        if (debt == null) {
+            debt = debts.append(creditorHigh, creditorLow);
+        }
+        Amount previous = debt.amount;
+        debt.amount = amount;
+        owedFrom.computeIfAbsent(creditorHigh, creditorLow, PackedNameMap::new).put(debtorHigh, debtorLow, amount);
+        if (remember && (previous == null || amount.compareTo(previous) > 0)) {
+            markPending(debtorHigh, debtorLow, creditorHigh, creditorLow);
+        }
+    }
+
+    /**
+     * Pays the debtor's creditors in repayment order until {@code available} runs out, updating the
+     * debts in place. {@code onPayment} runs before each debt is reduced; if it throws, that debt
+     * and the ones after it stay as they were. Returns what is left of {@code available}.
+     */
+    public Amount repay(long debtorHigh, long debtorLow, Amount available, PaymentConsumer onPayment) {
+        DebtQueue debts = owedTo.get(debtorHigh, debtorLow);
+        Amount remaining = available;
+        Debt debt = debts == null ? null : debts.first(repaymentOrder);
+        while (debt != null && remaining.signum() > 0) {
+            Debt next = debt.following(repaymentOrder);
+            Amount payment = debt.amount.min(remaining);
+            Amount owedAfter = debt.amount.subtract(payment);
+            onPayment.accept(debt.creditorHigh, debt.creditorLow, payment, owedAfter);
+
+            remaining = remaining.subtract(payment);
+            if (owedAfter.signum() > 0) {
+                debt.amount = owedAfter;
+                owedFrom.get(debt.creditorHigh, debt.creditorLow).put(debtorHigh, debtorLow, owedAfter);
+            } else {
+                settle(debtorHigh, debtorLow, debts, debt);
+            }
+            debt = next;
+        }
+        return remaining;
+    }
+
+    public void forEach(DebtConsumer consumer) {
+        owedTo.forEach((debtorHigh, debtorLow, debts) -> {
+            for (Debt debt = debts.head; debt != null; debt = debt.next) {
+                consumer.accept(debtorHigh, debtorLow, debt.creditorHigh, debt.creditorLow, debt.amount);
+            }
+        });
+    }
+
+    /**
+     * Collapses every cycle through a debt that grew since the last call: the smallest debt on the
+     * cycle is subtracted from each debt on it, settling at least that one. Reports each changed
+     * debt with its new amount (zero when settled) to {@code onChange}.
+     */
+    public NettingResult netCycles(DebtConsumer onChange) {
+        long cycles = 0;
+        long settled = 0;
+        Amount netted = Amount.ZERO;
+
+        while (pendingCount > 0) {
+            int offset = --pendingCount * 4;
+            long debtorHigh = pending[offset];
+            long debtorLow = pending[offset + 1];
+            long creditorHigh = pending[offset + 2];
+            long creditorLow = pending[offset + 3];
+            Debt grown = find(debtorHigh, debtorLow, creditorHigh, creditorLow);
+            if (grown != null) {
+                grown.pending = false;
+            }
+
+            while (get(debtorHigh, debtorLow, creditorHigh, creditorLow) != null) {
+                // The debt plus a path of debts from its creditor back to its debtor forms a cycle
+                long[] cycle = findPath(creditorHigh, creditorLow, debtorHigh, debtorLow);
+                if (cycle == null) {
+                    break;
+                }
+                int edges = cycle.length / 2;
+                Amount minimum = null;
+                for (int i = 0; i < edges; i++) {
+                    Amount amount = edgeAmount(cycle, i);
+                    minimum = minimum == null ? amount : minimum.min(amount);
+                }
+                for (int i = 0; i < edges; i++) {
+                    int from = i * 2;
+                    int to = (from + 2) % cycle.length;
+                    Amount remaining = edgeAmount(cycle, i).subtract(minimum);
+                    set(cycle[from], cycle[from + 1], cycle[to], cycle[to + 1], remaining);
+                    onChange.accept(cycle[from], cycle[from + 1], cycle[to], cycle[to + 1], remaining);
+                    if (remaining.signum() == 0) {
+                        settled++;
+                    }
+                }
+                cycles++;
+                netted = netted.add(minimum.multiply(edges));
+            }
+        }
+        return new NettingResult(cycles, settled, netted);
+    }
+
+    // Amount of the i-th debt of a cycle given as its accounts in order, wrapping to the first
+    private Amount edgeAmount(long[] cycle, int i) {
+        int from = i * 2;
+        int to = (from + 2) % cycle.length;
+        return get(cycle[from], cycle[from + 1], cycle[to], cycle[to + 1]);
+    }
+
+    /**
+     * Breadth-first search along debts from {@code start} to {@code goal}. Returns the accounts on
+     * the shortest path as high/low pairs, goal first and start last, or null if there is none.
+     */
+    private long[] findPath(long startHigh, long startLow, long goalHigh, long goalLow) {
+        PackedNameMap<long[]> parents = new PackedNameMap<>();
+        ArrayDeque<long[]> queue = new ArrayDeque<>();
+        parents.put(startHigh, startLow, new long[0]);
+        queue.add(new long[]{startHigh, startLow});
+
+        while (!queue.isEmpty()) {
+            long[] node = queue.poll();
+            if (node[0] == goalHigh && node[1] == goalLow) {
+                return pathTo(parents, node);
+            }
+            DebtQueue debts = owedTo.get(node[0], node[1]);
+            for (Debt debt = debts == null ? null : debts.head; debt != null; debt = debt.next) {
+                if (parents.get(debt.creditorHigh, debt.creditorLow) == null) {
+                    parents.put(debt.creditorHigh, debt.creditorLow, node);
+                    queue.add(new long[]{debt.creditorHigh, debt.creditorLow});
+                }
+            }
+        }
+        return null;
+    }
+
+    // Walks parents back from the goal and returns the cycle in debt order: goal, start, ..., goal's parent
+    private static long[] pathTo(PackedNameMap<long[]> parents, long[] goal) {
+        long[] path = new long[8];
+        int length = 0;
+        long[] node = goal;
+        while (node.length > 0) {
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = node[0];
+            path[length++] = node[1];
+            node = parents.get(node[0], node[1]);
+        }
+        long[] cycle = new long[length];
+        cycle[0] = path[0];
+        cycle[1] = path[1];
+        for (int i = 2; i < length; i += 2) {
+            cycle[i] = path[length - i];
+            cycle[i + 1] = path[length - i + 1];
+        }
+        return cycle;
+    }
+
+    private Debt find(long debtorHigh, long debtorLow, long creditorHigh, long creditorLow) {
+        DebtQueue debts = owedTo.get(debtorHigh, debtorLow);
+        return debts == null ? null : debts.byCreditor.get(creditorHigh, creditorLow);
+    }
+
+    // Lists the debt unless it already is; a debt this ledger does not hold is not worth netting
+    private void markPending(long debtorHigh, long debtorLow, long creditorHigh, long creditorLow) {
+        Debt debt = find(debtorHigh, debtorLow, creditorHigh, creditorLow);
+        if (debt == null || debt.pending) {
+            return;
+        }
+        debt.pending = true;
+        if (pendingCount * 4 == pending.length) {
+            compactPending();
+        }
+        if (pendingCount * 4 == pending.length) {
+            pending = Arrays.copyOf(pending, pending.length * 2);
+        }
+        int offset = pendingCount++ * 4;
+        pending[offset] = debtorHigh;
+        pending[offset + 1] = debtorLow;
+        pending[offset + 2] = creditorHigh;
+        pending[offset + 3] = creditorLow;
+    }
+
+    // Drops entries whose debt was settled, or settled and incurred again and so listed twice
+    private void compactPending() {
+        int kept = 0;
+        for (int offset = 0; offset < pendingCount * 4; offset += 4) {
+            Debt debt = find(pending[offset], pending[offset + 1], pending[offset + 2], pending[offset + 3]);
+            if (debt != null && debt.pending) {
+                // Cleared so a second entry for the same debt is dropped; set again below
+                debt.pending = false;
+                System.arraycopy(pending, offset, pending, kept * 4, 4);
+                kept++;
+            }
+        }
+        pendingCount = kept;
+        for (int offset = 0; offset < pendingCount * 4; offset += 4) {
+            find(pending[offset], pending[offset + 1], pending[offset + 2], pending[offset + 3]).pending = true;
+        }
+    }
+
+    private void settle(long debtorHigh, long debtorLow, DebtQueue debts, Debt debt) {
+        debts.remove(debt);
+        if (debts.head == null) {
+            owedTo.remove(debtorHigh, debtorLow);
+        }
+        PackedNameMap<Amount> credits = owedFrom.get(debt.creditorHigh, debt.creditorLow);
+        credits.remove(debtorHigh, debtorLow);
+        if (credits.isEmpty()) {
+            owedFrom.remove(debt.creditorHigh, debt.creditorLow);
+        }
+    }
+
+    @FunctionalInterface
+    public interface PaymentConsumer {
+        void accept(long creditorHigh, long creditorLow, Amount payment, Amount owedAfter);
+    }
+
+    @FunctionalInterface
+    public interface DebtConsumer {
+        void accept(long debtorHigh, long debtorLow, long creditorHigh, long creditorLow, Amount amount);
+    }
+
+    private static class Debt {
+        private final long creditorHigh;
+        private final long creditorLow;
+        private Amount amount;
+        // Listed in pending for the next netting
+        private boolean pending;
+        private Debt previous;
+        private Debt next;
+
+        private Debt(long creditorHigh, long creditorLow) {
+            this.creditorHigh = creditorHigh;
+            this.creditorLow = creditorLow;
+        }
+
+        private Debt following(RepaymentOrder order) {
+            return order == RepaymentOrder.OLDEST_FIRST ? next : previous;
+        }
+    }
+
+    // One debtor's debts, linked in the order they were incurred and indexed by creditor
+    private static class DebtQueue {
+        private final PackedNameMap<Debt> byCreditor = new PackedNameMap<>();
+        private Debt head;
+        private Debt tail;
+
+        private Debt first(RepaymentOrder order) {
+            return order == RepaymentOrder.OLDEST_FIRST ? head : tail;
+        }
+
+        private Debt append(long creditorHigh, long creditorLow) {
+            Debt debt = new Debt(creditorHigh, creditorLow);
+            debt.previous = tail;
+            if (tail == null) {
+                head = debt;
+            } else {
+                tail.next = debt;
+            }
+            tail = debt;
+            byCreditor.put(creditorHigh, creditorLow, debt);
+            return debt;
+        }
+
+        private void remove(Debt debt) {
+            if (debt.previous == null) {
+                head = debt.next;
+            } else {
+                debt.previous.next = debt.next;
+            }
+            if (debt.next == null) {
+                tail = debt.previous;
+            } else {
+                debt.next.previous = debt.previous;
+            }
+            byCreditor.remove(debt.creditorHigh, debt.creditorLow);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import utils.Amount;
+
+@Getter
+@RequiredArgsConstructor
+public class NettingResult {
+    private final long cyclesCollapsed;
+    private final long debtsSettled;
+    private final Amount valueNetted;
+}
@@ -0,0 +1,564 @@
+package service;
+
+import account.AccountService;
+import enums.RepaymentOrder;
+import event.EventLog;
+import event.EventSink;
+import event.ScopedEventSink;
+import journal.Journal;
+import journal.JournalRecord;
+import journal.SnapshotStore;
+import session.SessionService;
+import session.SessionServiceImpl;
+import utils.Amount;
+import utils.RingBuffer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A bank that applies every command on one thread instead of locking, in the style of a disruptor.
+ * Callers publish commands into a {@link RingBuffer} of entries allocated once up front and wait for
+ * the answer. Three threads follow the ring:
+ * <ul>
+ * <li>the business thread applies each command to the accounts and debts, which only it touches,
+ * using the same rules as {@link BankServiceImpl}, and keeps the journal records and events it
+ * produces in the entry;</li>
+ * <li>the journal thread appends those records and syncs once per run of entries it finds ready,
+ * so one fsync covers every command that arrived meanwhile;</li>
+ * <li>the response thread, running alongside the journal thread, hands each caller its events on
+ * the sink it was bound to, once the journal thread has synced past any command that changed state.</li>
+ * </ul>
+ * Commands of one caller run in the order called. {@link #submitAll} claims many entries with one
+ * compare-and-set. Call {@link #close()} to stop the threads once no more commands will come.
+ */
+public class RingBufferBankService implements BankService, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    // Spinning only pays when the thread being waited for has a core of its own
+    private static final int SPINS_BEFORE_PARKING = Runtime.getRuntime().availableProcessors() > 1 ? 1_000 : 0;
+    private static final long PARK_NANOS = 100_000;
+
+    private static final int CREATE = 0;
+    private static final int DEPOSIT = 1;
+    private static final int WITHDRAW = 2;
+    private static final int TRANSFER = 3;
+    private static final int TRANSFER_BATCH = 4;
+    private static final int NET = 5;
+    private static final int RECOVER = 6;
+
+    private final SessionService sessionService;
+    private final Journal journal;
+    private final EventSink events;
+    // Owned by the business thread, which binds each command's log before applying it
+    private final ScopedEventSink ownerEvents = new ScopedEventSink();
+    // Applies the rules; only the business thread calls it, so its locks are never contended
+    private final BankServiceImpl owner;
+    private final RingBuffer<Command> ring;
+    private final AtomicLong applied = new AtomicLong(-1);
+    private final AtomicLong journaled = new AtomicLong(-1);
+    private final AtomicLong answered = new AtomicLong(-1);
+    private final ThreadLocal<Reply> replies = ThreadLocal.withInitial(Reply::new);
+    private final Worker business;
+    private final Worker journalWriter;
+    private final Worker responder;
+
+    private volatile boolean running = true;
+    private volatile RuntimeException journalFailure;
+    // The command the business thread is applying; only that thread reads or writes it
+    private Command applying;
+
+    public RingBufferBankService(AccountService accountService, SessionService sessionService, Journal journal,
+                                 EventSink events) {
+        this(accountService, sessionService, journal, events, DEFAULT_CAPACITY);
+    }
+
+    public RingBufferBankService(AccountService accountService, SessionService sessionService, Journal journal,
+                                 EventSink events, int capacity) {
+        this(accountService, sessionService, journal, events, capacity, TransferPolicy.DEFAULT);
+    }
+
+    /**
+     * @param accountService accounts, used only by the business thread, so it need not be thread-safe
+     * @param capacity       number of ring entries, a power of two
+     * @param transferPolicy options for transfers whose caller gives none
+     */
+    public RingBufferBankService(AccountService accountService, SessionService sessionService, Journal journal,
+                                 EventSink events, int capacity, TransferPolicy transferPolicy) {
+        this.sessionService = sessionService;
+        this.journal = journal;
+        this.events = events;
+        this.owner = new BankServiceImpl(accountService, new SessionServiceImpl(), new CommandJournal(), ownerEvents,
+                transferPolicy);
+        this.ring = new RingBuffer<>(capacity, Command::new);
+        ring.setGatingSequences(answered);
+
+        this.business = new Worker("bank-business", this::applyCommands);
+        this.journalWriter = new Worker("bank-journal", this::journalCommands);
+        this.responder = new Worker("bank-responder", this::answerCommands);
+        business.thread.start();
+        journalWriter.thread.start();
+        responder.thread.start();
+    }
+
+    /**
+     * Same as {@link BankServiceImpl#enableSnapshots}; call before the first command.
+     */
+    public void enableSnapshots(SnapshotStore snapshotStore, long recordsPerSnapshot) {
+        owner.enableSnapshots(snapshotStore, recordsPerSnapshot);
+    }
+
+    public void setRepaymentOrder(RepaymentOrder repaymentOrder) {
+        owner.setRepaymentOrder(repaymentOrder);
+    }
+
+    /**
+     * Rebuilds balances and debts on the business thread. Call once, before any other command.
+     */
+    public void recover() {
+        call(RECOVER, null, null, null, null, null);
+    }
+
+    @Override
+    public void createAccount(String name) {
+        call(CREATE, name, null, null, null, null);
+    }
+
+    @Override
+    public void deposit(BigDecimal amount) {
+        call(DEPOSIT, sessionService.getCurrentUser(), null, Amount.of(amount), null, null);
+    }
+
+    @Override
+    public void withdraw(BigDecimal amount) {
+        call(WITHDRAW, sessionService.getCurrentUser(), null, Amount.of(amount), null, null);
+    }
+
+    @Override
+    public void transfer(String target, BigDecimal amount) {
+        call(TRANSFER, sessionService.getCurrentUser(), target, Amount.of(amount), null, null);
+    }
+
+    @Override
+    public void transfer(String target, BigDecimal amount, TransferOptions options) {
+        call(TRANSFER, sessionService.getCurrentUser(), target, Amount.of(amount), null, options);
+    }
+
+    @Override
+    public void deposit(String account, Amount amount) {
+        call(DEPOSIT, account, null, amount, null, null);
+    }
+
+    @Override
+    public void withdraw(String account, Amount amount) {
+        call(WITHDRAW, account, null, amount, null, null);
+    }
+
+    @Override
+    public void transfer(String source, String target, Amount amount) {
+        call(TRANSFER, source, target, amount, null, null);
+    }
+
+    @Override
+    public void transfer(String source, String target, Amount amount, TransferOptions options) {
+        call(TRANSFER, source, target, amount, null, options);
+    }
+
+    @Override
+    public List<TransferLegResult> transferBatch(List<TransferLeg> legs) {
+        return transferBatch(sessionService.getCurrentUser(), legs);
+    }
+
+    @Override
+    public List<TransferLegResult> transferBatch(List<TransferLeg> legs, TransferOptions options) {
+        return transferBatch(sessionService.getCurrentUser(), legs, options);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<TransferLegResult> transferBatch(String source, List<TransferLeg> legs) {
+        return (List<TransferLegResult>) call(TRANSFER_BATCH, source, null, null, legs, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<TransferLegResult> transferBatch(String source, List<TransferLeg> legs, TransferOptions options) {
+        return (List<TransferLegResult>) call(TRANSFER_BATCH, source, null, null, legs, options);
+    }
+
+    @Override
+    public void netDebts() {
+        call(NET, null, null, null, null, null);
+    }
+
+    /**
+     * Claims {@code count} consecutive entries at once, lets the writer fill each, publishes them
+     * together and waits until all are answered. Every command runs even if an earlier one fails;
+     * the first failure is thrown once all have finished. At most the ring capacity per call.
+     */
+    public void submitAll(int count, CommandWriter writer) {
+        Reply reply = replies.get();
+        reply.reset(count);
+        long high = ring.next(count);
+        long low = high - count + 1;
+        EventSink sink = callerSink();
+        for (int i = 0; i < count; i++) {
+            Command command = ring.get(low + i);
+            writer.write(i, command);
+            command.reply = reply;
+            command.sink = sink;
+        }
+        ring.publish(low, high);
+        business.wake();
+        reply.await();
+        if (reply.error != null) {
+            throw reply.error;
+        }
+    }
+
+    /**
+     * Stops the threads once every published command is answered.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Worker worker : new Worker[]{business, journalWriter, responder}) {
+            LockSupport.unpark(worker.thread);
+            try {
+                worker.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Object call(int type, String account, String target, Amount amount, List<TransferLeg> legs,
+                        TransferOptions options) {
+        Reply reply = replies.get();
+        reply.reset(1);
+        long sequence = ring.next(1);
+        Command command = ring.get(sequence);
+        command.set(type, account, target, amount, legs, options);
+        command.reply = reply;
+        command.sink = callerSink();
+        ring.publish(sequence, sequence);
+        business.wake();
+        reply.await();
+        if (reply.error != null) {
+            throw reply.error;
+        }
+        return reply.result;
+    }
+
+    private EventSink callerSink() {
+        return events instanceof ScopedEventSink ? ((ScopedEventSink) events).current() : events;
+    }
+
+    private void applyCommands() {
+        consume(business, applied, ring::highestPublished, new Worker[0], (command, sequence, last) -> {
+            applying = command;
+            ownerEvents.bind(command.events);
+            try {
+                apply(command);
+            } catch (RuntimeException e) {
+                command.error = e;
+            }
+        }, journalWriter, responder);
+    }
+
+    private void apply(Command command) {
+        switch (command.type) {
+            case CREATE:
+                owner.createAccount(command.account);
+                break;
+            case DEPOSIT:
+                owner.deposit(command.account, command.amount);
+                break;
+            case WITHDRAW:
+                owner.withdraw(command.account, command.amount);
+                break;
+            case TRANSFER:
+                if (command.options != null) {
+                    owner.transfer(command.account, command.target, command.amount, command.options);
+                } else {
+                    owner.transfer(command.account, command.target, command.amount);
+                }
+                break;
+            case TRANSFER_BATCH:
+                command.result = command.options != null
+                        ? owner.transferBatch(command.account, command.legs, command.options)
+                        : owner.transferBatch(command.account, command.legs);
+                break;
+            case NET:
+                owner.netDebts();
+                break;
+            case RECOVER:
+                owner.recover();
+                break;
+            default:
+                throw new IllegalStateException("Unknown command type " + command.type + "\n");
+        }
+    }
+
+    private void journalCommands() {
+        boolean[] unsynced = new boolean[1];
+        consume(journalWriter, journaled, next -> applied.get(), new Worker[]{business}, (command, sequence, last) -> {
+            for (JournalRecord record : command.records) {
+                journal.append(record);
+                unsynced[0] = true;
+            }
+            if (last && unsynced[0]) {
+                try {
+                    journal.sync();
+                } catch (RuntimeException e) {
+                    journalFailure = e;
+                }
+                unsynced[0] = false;
+            }
+        }, responder);
+    }
+
+    private void answerCommands() {
+        consume(responder, answered, next -> applied.get(), new Worker[]{business, journalWriter},
+                (command, sequence, last) -> {
+                    boolean changedState = !command.records.isEmpty();
+                    if (changedState) {
+                        awaitJournal(sequence);
+                    }
+                    command.events.replayTo(command.sink);
+                    Reply reply = command.reply;
+                    RuntimeException error = command.error != null ? command.error
+                            : changedState ? journalFailure : null;
+                    if (error != null && reply.error == null) {
+                        reply.error = error;
+                    }
+                    if (command.result != null) {
+                        reply.result = command.result;
+                    }
+                    command.clear();
+                    reply.completeOne();
+                });
+    }
+
+    // Runs the handler for every entry the upstream sequence has passed, then advances this worker's
+    // sequence and wakes the workers that follow it. Ends once closed and the workers before it have
+    // ended and left nothing behind.
+    private void consume(Worker self, AtomicLong own, LongUnaryOperator upstream, Worker[] upstreamWorkers,
+                         CommandHandler handler, Worker... downstream) {
+        long next = own.get() + 1;
+        int spins = 0;
+        while (true) {
+            boolean draining = !running && allEnded(upstreamWorkers);
+            long available = upstream.applyAsLong(next);
+            if (available < next) {
+                if (draining) {
+                    return;
+                }
+                long wanted = next;
+                spins = idle(self, spins, () -> upstream.applyAsLong(wanted) >= wanted);
+                continue;
+            }
+            spins = 0;
+            for (long sequence = next; sequence <= available; sequence++) {
+                handler.handle(ring.get(sequence), sequence, sequence == available);
+            }
+            own.set(available);
+            for (Worker worker : downstream) {
+                worker.wake();
+            }
+            next = available + 1;
+        }
+    }
+
+    private void awaitJournal(long sequence) {
+        int spins = 0;
+        while (journaled.get() < sequence) {
+            spins = idle(responder, spins, () -> journaled.get() >= sequence);
+        }
+    }
+
+    // Spins a while, then parks until woken; the worker is marked idle before the condition is
+    // checked again so that a wake-up cannot slip in between
+    private int idle(Worker self, int spins, BooleanSupplier ready) {
+        if (spins < SPINS_BEFORE_PARKING) {
+            Thread.onSpinWait();
+            return spins + 1;
+        }
+        self.idle = true;
+        if (!ready.getAsBoolean() && running) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        self.idle = false;
+        return spins;
+    }
+
+    private static boolean allEnded(Worker[] workers) {
+        for (Worker worker : workers) {
+            if (worker.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fills one entry claimed by {@link #submitAll}.
+     */
+    public interface CommandWriter {
+        void write(int index, Command command);
+    }
+
+    private interface CommandHandler {
+        void handle(Command command, long sequence, boolean last);
+    }
+
+    /**
+     * One ring entry: a command, and once applied, its journal records, events and outcome.
+     */
+    public static final class Command {
+        private int type;
+        private String account;
+        private String target;
+        private Amount amount;
+        private List<TransferLeg> legs;
+        // Null for the source account's default options
+        private TransferOptions options;
+        private Reply reply;
+        private EventSink sink;
+        private final EventLog events = new EventLog();
+        private final List<JournalRecord> records = new ArrayList<>();
+        private Object result;
+        private RuntimeException error;
+
+        public void deposit(String account, Amount amount) {
+            set(DEPOSIT, account, null, amount, null, null);
+        }
+
+        public void withdraw(String account, Amount amount) {
+            set(WITHDRAW, account, null, amount, null, null);
+        }
+
+        public void transfer(String source, String target, Amount amount) {
+            set(TRANSFER, source, target, amount, null, null);
+        }
+
+        public void transfer(String source, String target, Amount amount, TransferOptions options) {
+            set(TRANSFER, source, target, amount, null, options);
+        }
+
+        private void set(int type, String account, String target, Amount amount, List<TransferLeg> legs,
+                         TransferOptions options) {
+            this.type = type;
+            this.account = account;
+            this.target = target;
+            this.amount = amount;
+            this.legs = legs;
+            this.options = options;
+        }
+
+        private void clear() {
+            set(CREATE, null, null, null, null, null);
+            reply = null;
+            sink = null;
+            events.clear();
+            records.clear();
+            result = null;
+            error = null;
+        }
+    }
+
+    // Per calling thread, reused for every call it makes
+    private static final class Reply {
+        private final Thread thread = Thread.currentThread();
+        private volatile int pending;
+        private volatile boolean waiting;
+        // Written by the response thread before the last decrement of pending
+        private RuntimeException error;
+        private Object result;
+
+        private void reset(int count) {
+            error = null;
+            result = null;
+            pending = count;
+        }
+
+        private void await() {
+            for (int spins = 0; pending > 0 && spins < SPINS_BEFORE_PARKING; spins++) {
+                Thread.onSpinWait();
+            }
+            waiting = true;
+            while (pending > 0) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+
+        // Only the response thread calls this
+        private void completeOne() {
+            int left = pending - 1;
+            pending = left;
+            if (left == 0 && waiting) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    private static final class Worker {
+        private final Thread thread;
+        private volatile boolean idle;
+
+        private Worker(String name, Runnable loop) {
+            this.thread = new Thread(loop, name);
+            thread.setDaemon(true);
+        }
+
+        private void wake() {
+            if (idle) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    // What the business thread's bank journals goes into the command being applied; the journal
+    // thread writes it out. Recovery and snapshots use the real journal directly.
+    private final class CommandJournal implements Journal {
+
+        @Override
+        public void append(JournalRecord record) {
+            applying.records.add(record);
+        }
+
+        @Override
+        public void sync() {
+            // The journal thread syncs once the records are written
+        }
+
+        @Override
+        public long rotate() {
+            return journal.rotate();
+        }
+
+        @Override
+        public void deleteSegmentsBefore(long segment) {
+            journal.deleteSegmentsBefore(segment);
+        }
+
+        @Override
+        public void replay(long fromSegment, Consumer<JournalRecord> consumer) {
+            journal.replay(fromSegment, consumer);
+        }
+
+        @Override
+        public void close() {
+            // The real journal belongs to whoever created this bank
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package service;
+
+import enums.RepaymentOrder;
+import enums.TransferMode;
+import enums.TransferOutcome;
+import event.EventLog;
+import event.EventSink;
+import session.SessionService;
+import utils.Amount;
+import utils.NameCodec;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bank split into shards by account name hash, each a {@link BankShard} whose owner thread alone
+ * touches its accounts and the debts they owe, so commands on different shards run in parallel
+ * without locks. A command on one account, or a transfer between two accounts of one shard, is a
+ * single task on that shard.
+ * <p>
+ * A transfer between shards runs in two phases. The source's shard reserves what the source can
+ * pay, taking it out of the balance; the target's shard then credits it; and the source's shard
+ * commits by recording any debt for the rest, or releases the reservation if the credit failed.
+ * Repayments to creditors on other shards are credited to them the same way after the deposit.
+ * Each shard keeps what accounts elsewhere owe its own accounts, so a command reports both sides of
+ * an account's debts without asking every shard.
+ * <p>
+ * Netting pauses every shard and searches the debts of all of them as one graph. Balances and debts
+ * live in memory only; there is no journal. Calling threads wait for the shards and receive the
+ * events on their own sink.
+ */
+public class ShardedBankService implements BankService, AutoCloseable {
+
+    private final BankShard[] shards;
+    private final SessionService sessionService;
+    private final EventSink events;
+    // Two nettings pausing the shards in different orders would wait for each other forever
+    private final ReentrantLock nettingLock = new ReentrantLock();
+    private final TransferPolicy transferPolicy;
+
+    public ShardedBankService(int shardCount, SessionService sessionService, EventSink events) {
+        this(shardCount, sessionService, events, TransferPolicy.DEFAULT);
+    }
+
+    /**
+     * @param transferPolicy options for transfers whose caller gives none
+     */
+    public ShardedBankService(int shardCount, SessionService sessionService, EventSink events,
+                              TransferPolicy transferPolicy) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("A bank needs at least one shard\n");
+        }
+        this.shards = new BankShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new BankShard(i);
+        }
+        this.sessionService = sessionService;
+        this.events = events;
+        this.transferPolicy = transferPolicy;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public void setRepaymentOrder(RepaymentOrder repaymentOrder) {
+        for (BankShard shard : shards) {
+            shard.run(() -> shard.setRepaymentOrder(repaymentOrder));
+        }
+    }
+
+    /**
+     * Stops the shard threads once they have finished the commands already handed to them.
+     */
+    @Override
+    public void close() {
+        for (BankShard shard : shards) {
+            shard.close();
+        }
+    }
+
+    @Override
+    public void createAccount(String name) {
+        BankShard shard = shardOf(name);
+        EventLog log = new EventLog();
+        shard.run(() -> shard.login(name, log));
+        log.replayTo(events);
+    }
+
+    @Override
+    public void deposit(BigDecimal amount) {
+        depositInto(sessionService.getCurrentUser(), Amount.of(amount));
+    }
+
+    @Override
+    public void withdraw(BigDecimal amount) {
+        withdrawFrom(sessionService.getCurrentUser(), Amount.of(amount));
+    }
+
+    @Override
+    public void transfer(String target, BigDecimal amount) {
+        String currentUser = sessionService.getCurrentUser();
+        transferFrom(currentUser, target, Amount.of(amount), transferPolicy.optionsFor(currentUser));
+    }
+
+    @Override
+    public void transfer(String target, BigDecimal amount, TransferOptions options) {
+        transferFrom(sessionService.getCurrentUser(), target, Amount.of(amount), options);
+    }
+
+    @Override
+    public void deposit(String account, Amount amount) {
+        depositInto(account, amount);
+    }
+
+    @Override
+    public void withdraw(String account, Amount amount) {
+        withdrawFrom(account, amount);
+    }
+
+    @Override
+    public void transfer(String source, String target, Amount amount) {
+        transferFrom(source, target, amount, transferPolicy.optionsFor(source));
+    }
+
+    @Override
+    public void transfer(String source, String target, Amount amount, TransferOptions options) {
+        transferFrom(source, target, amount, options);
+    }
+
+    @Override
+    public List<TransferLegResult> transferBatch(List<TransferLeg> legs) {
+        String currentUser = sessionService.getCurrentUser();
+        return transferBatchFrom(currentUser, legs, transferPolicy.optionsFor(currentUser));
+    }
+
+    @Override
+    public List<TransferLegResult> transferBatch(List<TransferLeg> legs, TransferOptions options) {
+        return transferBatchFrom(sessionService.getCurrentUser(), legs, options);
+    }
+
+    @Override
+    public List<TransferLegResult> transferBatch(String source, List<TransferLeg> legs) {
+        return transferBatchFrom(source, legs, transferPolicy.optionsFor(source));
+    }
+
+    /**
+     * Each leg is its own transfer between shards, so unlike {@link BankServiceImpl} other commands
+     * on the source may run between the legs.
+     */
+    @Override
+    public List<TransferLegResult> transferBatch(String source, List<TransferLeg> legs, TransferOptions options) {
+        return transferBatchFrom(source, legs, options);
+    }
+
+    /**
+     * Pauses every shard, collapses the cycles formed since the last netting across all of them,
+     * and writes the changed debts back to the shards of the debtors and creditors.
+     */
+    @Override
+    public void netDebts() {
+        NettingResult result;
+        nettingLock.lock();
+        CountDownLatch paused = new CountDownLatch(shards.length);
+        CountDownLatch resumed = new CountDownLatch(1);
+        try {
+            for (BankShard shard : shards) {
+                shard.execute(() -> {
+                    paused.countDown();
+                    awaitUninterruptibly(resumed);
+                });
+            }
+            awaitUninterruptibly(paused);
+            result = netAcrossShards();
+        } finally {
+            resumed.countDown();
+            nettingLock.unlock();
+        }
+        events.debtsNetted(result.getCyclesCollapsed(), result.getDebtsSettled(), result.getValueNetted());
+        events.commandCompleted();
+    }
+
+    // Test and benchmark hook; waits for the account's shard
+    Amount balanceOf(String name) {
+        BankShard shard = shardOf(name);
+        return shard.call(() -> shard.balanceOf(name));
+    }
+
+    private void depositInto(String name, Amount amount) {
+        BankShard shard = shardOf(name);
+        EventLog log = new EventLog();
+        List<TransferLeg> remotePayments = shard.call(() -> shard.deposit(name, amount, log));
+        if (!remotePayments.isEmpty()) {
+            List<CompletableFuture<Void>> credits = new ArrayList<>(remotePayments.size());
+            for (TransferLeg payment : remotePayments) {
+                Amount paid = payment.getAmount();
+                BankShard creditorShard = shardOf(payment.getTarget());
+                credits.add(creditorShard.execute(() -> creditorShard.credit(payment.getTarget(), paid, name,
+                        paid.negate())));
+            }
+            credits.forEach(BankShard::await);
+        }
+        log.replayTo(events);
+    }
+
+    private void withdrawFrom(String name, Amount amount) {
+        BankShard shard = shardOf(name);
+        EventLog log = new EventLog();
+        shard.run(() -> shard.withdraw(name, amount, log));
+        log.replayTo(events);
+    }
+
+    private void transferFrom(String source, String target, Amount requestedAmount, TransferOptions options) {
+        String lowerTarget = target.toLowerCase();
+        if (lowerTarget.equalsIgnoreCase(source)) {
+            throw new IllegalStateException("Cannot transfer money to yourself");
+        }
+        TransferMode mode = options.getMode();
+
+        EventLog owedAmounts = new EventLog();
+        TransferLegResult result = transferLeg(source, lowerTarget, requestedAmount, mode,
+                mode == TransferMode.PARTIAL_ALLOWED ? owedAmounts : null);
+        if (result.getOutcome() == TransferOutcome.INSUFFICIENT_FUNDS) {
+            if (mode == TransferMode.FULL_ONLY) {
+                events.insufficientFundsForFullTransfer(requestedAmount, result.getBalance());
+            } else {
+                events.insufficientFunds(result.getBalance());
+            }
+            events.commandCompleted();
+            return;
+        }
+        events.transferred(result.getTransferred(), lowerTarget);
+        events.balance(result.getBalance());
+        owedAmounts.replayTo(events);
+        events.commandCompleted();
+    }
+
+    private List<TransferLegResult> transferBatchFrom(String source, List<TransferLeg> legs, TransferOptions options) {
+        String[] targets = new String[legs.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = legs.get(i).getTarget().toLowerCase();
+            if (targets[i].equalsIgnoreCase(source)) {
+                throw new IllegalStateException("Cannot transfer money to yourself");
+            }
+        }
+        TransferMode mode = options.getMode();
+
+        List<TransferLegResult> results = new ArrayList<>(targets.length);
+        for (int i = 0; i < targets.length; i++) {
+            results.add(transferLeg(source, targets[i], legs.get(i).getAmount(), mode, null));
+        }
+        BankShard sourceShard = shardOf(source);
+        EventLog report = new EventLog();
+        sourceShard.run(() -> sourceShard.report(source, mode == TransferMode.PARTIAL_ALLOWED, report));
+
+        for (TransferLegResult result : results) {
+            if (result.getOutcome() != TransferOutcome.INSUFFICIENT_FUNDS) {
+                events.transferred(result.getTransferred(), result.getTarget());
+            } else if (mode == TransferMode.FULL_ONLY) {
+                events.insufficientFundsForFullTransfer(result.getRequested(), result.getBalance());
+            } else {
+                events.insufficientFunds(result.getBalance());
+            }
+        }
+        report.replayTo(events);
+        events.commandCompleted();
+        return results;
+    }
+
+    // One transfer: a single task when both accounts share a shard, otherwise reserve on the
+    // source's shard, credit on the target's and commit back on the source's
+    private TransferLegResult transferLeg(String source, String target, Amount requested, TransferMode mode,
+                                          EventSink owedEvents) {
+        BankShard sourceShard = shardOf(source);
+        BankShard targetShard = shardOf(target);
+        if (sourceShard == targetShard) {
+            return sourceShard.call(() -> sourceShard.transfer(source, target, requested, mode, owedEvents));
+        }
+
+        TransferLegResult reserved = sourceShard.call(() -> sourceShard.reserve(source, target, requested, mode));
+        if (reserved.getOutcome() == TransferOutcome.INSUFFICIENT_FUNDS) {
+            return reserved;
+        }
+        try {
+            targetShard.run(() -> targetShard.credit(target, reserved.getTransferred(), source, reserved.getOwed()));
+        } catch (RuntimeException e) {
+            sourceShard.run(() -> sourceShard.release(source, reserved));
+            throw e;
+        }
+        sourceShard.run(() -> sourceShard.commit(source, reserved, owedEvents));
+        return reserved;
+    }
+
+    // Every owner thread is paused, so this thread may touch all the shards
+    private NettingResult netAcrossShards() {
+        boolean grown = false;
+        for (BankShard shard : shards) {
+            grown |= shard.debts().hasPending();
+        }
+        if (!grown) {
+            return new NettingResult(0, 0, Amount.ZERO);
+        }
+
+        DebtLedger merged = new DebtLedger();
+        for (BankShard shard : shards) {
+            shard.debts().forEach(merged::restore);
+        }
+        for (BankShard shard : shards) {
+            shard.debts().movePendingTo(merged);
+        }
+        return merged.netCycles((debtorHigh, debtorLow, creditorHigh, creditorLow, amount) -> {
+            BankShard debtorShard = shardOf(debtorHigh, debtorLow);
+            BankShard creditorShard = shardOf(creditorHigh, creditorLow);
+            Amount before = debtorShard.debts().get(debtorHigh, debtorLow, creditorHigh, creditorLow);
+            debtorShard.debts().set(debtorHigh, debtorLow, creditorHigh, creditorLow, amount);
+            if (creditorShard != debtorShard) {
+                creditorShard.adjustRemoteCredit(creditorHigh, creditorLow, debtorHigh, debtorLow,
+                        amount.subtract(before));
+            }
+        });
+    }
+
+    // Names that are not valid all go to the first shard, which reports that the account does not exist
+    int shardIndexOf(String name) {
+        return NameCodec.isValid(name) ? shardIndexOf(NameCodec.high(name), NameCodec.low(name)) : 0;
+    }
+
+    private int shardIndexOf(long high, long low) {
+        long hash = (high * 0x9E3779B97F4A7C15L) ^ low;
+        hash ^= hash >>> 32;
+        return Math.floorMod((int) hash, shards.length);
+    }
+
+    private BankShard shardOf(String name) {
+        return shards[shardIndexOf(name)];
+    }
+
+    private BankShard shardOf(long high, long low) {
+        return shards[shardIndexOf(high, low)];
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
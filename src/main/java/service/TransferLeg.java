@@ -0,0 +1,15 @@
+package service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import utils.Amount;
+
+/**
+ * One target and amount of a batch transfer.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TransferLeg {
+    private final String target;
+    private final Amount amount;
+}
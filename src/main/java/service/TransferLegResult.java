@@ -0,0 +1,23 @@
+package service;
+
+import enums.TransferOutcome;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import utils.Amount;
+
+/**
+ * What one leg of a batch transfer did: the amount moved, the debt recorded for the rest, and the
+ * source balance once the leg was applied.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class TransferLegResult {
+    private final String target;
+    private final Amount requested;
+    private final Amount transferred;
+    private final Amount owed;
+    private final Amount balance;
+    private final TransferOutcome outcome;
+}
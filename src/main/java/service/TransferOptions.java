@@ -0,0 +1,33 @@
+package service;
+
+import enums.TransferMode;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * How one transfer treats a balance that does not cover it. Passed with each call rather than set
+ * on the bank, so concurrent transfers cannot change each other's behaviour. Immutable; the shared
+ * instances below cover every mode.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class TransferOptions {
+
+    public static final TransferOptions PARTIAL_ALLOWED = new TransferOptions(TransferMode.PARTIAL_ALLOWED);
+    public static final TransferOptions FULL_ONLY = new TransferOptions(TransferMode.FULL_ONLY);
+
+    private final TransferMode mode;
+
+    private TransferOptions(TransferMode mode) {
+        this.mode = mode;
+    }
+
+    public static TransferOptions of(TransferMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Transfer mode cannot be null\n");
+        }
+        return mode == TransferMode.FULL_ONLY ? FULL_ONLY : PARTIAL_ALLOWED;
+    }
+}
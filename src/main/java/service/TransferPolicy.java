@@ -0,0 +1,50 @@
+package service;
+
+import utils.NameCodec;
+import utils.PackedNameMap;
+
+/**
+ * The transfer options each source account uses when the caller gives none. Immutable:
+ * {@link #withAccount} returns a new policy, so a bank reads it from any thread without locking.
+ */
+public final class TransferPolicy {
+
+    public static final TransferPolicy DEFAULT = new TransferPolicy(TransferOptions.PARTIAL_ALLOWED);
+
+    private final TransferOptions defaults;
+    // Accounts whose options differ from the defaults; never changed once the policy is built
+    private final PackedNameMap<TransferOptions> overrides;
+
+    public TransferPolicy(TransferOptions defaults) {
+        this(defaults, new PackedNameMap<>());
+    }
+
+    private TransferPolicy(TransferOptions defaults, PackedNameMap<TransferOptions> overrides) {
+        if (defaults == null) {
+            throw new IllegalArgumentException("Transfer options cannot be null\n");
+        }
+        this.defaults = defaults;
+        this.overrides = overrides;
+    }
+
+    /**
+     * This policy with {@code options} for {@code account}, whatever case its name is given in.
+     */
+    public TransferPolicy withAccount(String account, TransferOptions options) {
+        if (options == null) {
+            throw new IllegalArgumentException("Transfer options cannot be null\n");
+        }
+        PackedNameMap<TransferOptions> copy = overrides.copy();
+        // Rejects an invalid name while packing it
+        copy.put(account, options);
+        return new TransferPolicy(defaults, copy);
+    }
+
+    public TransferOptions optionsFor(String account) {
+        if (overrides.isEmpty() || !NameCodec.isValid(account)) {
+            return defaults;
+        }
+        TransferOptions options = overrides.get(account);
+        return options != null ? options : defaults;
+    }
+}
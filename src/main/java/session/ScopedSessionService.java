@@ -0,0 +1,46 @@
+package session;
+
+/**
+ * Routes every call to the session bound to the calling thread, so one bank can serve many
+ * terminals: a server binds the terminal's own session around each command it runs.
+ */
+public class ScopedSessionService implements SessionService {
+
+    private final ThreadLocal<SessionService> current = new ThreadLocal<>();
+
+    public void bind(SessionService session) {
+        current.set(session);
+    }
+
+    public void unbind() {
+        current.remove();
+    }
+
+    @Override
+    public void login(String username) {
+        session().login(username);
+    }
+
+    @Override
+    public void logout() {
+        session().logout();
+    }
+
+    @Override
+    public String getCurrentUser() {
+        return session().getCurrentUser();
+    }
+
+    @Override
+    public boolean isLoggedIn() {
+        return session().isLoggedIn();
+    }
+
+    private SessionService session() {
+        SessionService session = current.get();
+        if (session == null) {
+            throw new IllegalStateException("No session is bound to this thread\n");
+        }
+        return session;
+    }
+}
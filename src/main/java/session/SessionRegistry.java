@@ -0,0 +1,95 @@
+package session;
+
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps any number of live sessions at once, each found by its token. Unlike a single
+ * {@link SessionServiceImpl}, callers on different threads can each work with their own session;
+ * a session itself is meant to be used by one caller at a time.
+ * <p>
+ * {@link #open()} makes up an unguessable token. {@link #open(String)} takes one the caller chose,
+ * such as the session name a pipelining client sends, for registries private to that client.
+ *
+ * @param <S> the sessions kept, which may carry state of their own besides the login
+ */
+public class SessionRegistry<S extends SessionService> {
+
+    private static final int TOKEN_BYTES = 16;
+
+    // Thread-safe, and shared so registries made per connection do not each seed one
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Map<String, S> sessions = new ConcurrentHashMap<>();
+    private final Supplier<S> factory;
+
+    /**
+     * @param factory makes each new session, with nobody logged in
+     */
+    public SessionRegistry(Supplier<S> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Starts a session and returns its token.
+     */
+    public String open() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        S session = factory.get();
+        String token;
+        do {
+            RANDOM.nextBytes(bytes);
+            token = HexFormat.of().formatHex(bytes);
+        } while (sessions.putIfAbsent(token, session) != null);
+        return token;
+    }
+
+    /**
+     * Starts a session under the given token and returns it.
+     *
+     * @throws IllegalStateException if a session with this token is already open
+     */
+    public S open(String token) {
+        S session = factory.get();
+        if (sessions.putIfAbsent(token, session) != null) {
+            throw new IllegalStateException("Session " + token + " is already open\n");
+        }
+        return session;
+    }
+
+    /**
+     * The session with this token.
+     *
+     * @throws IllegalStateException if no open session has this token
+     */
+    public S get(String token) {
+        S session = find(token);
+        if (session == null) {
+            throw new IllegalStateException("Unknown session token\n");
+        }
+        return session;
+    }
+
+    /**
+     * The session with this token, or null if none is open.
+     */
+    public S find(String token) {
+        return token != null ? sessions.get(token) : null;
+    }
+
+    /**
+     * Ends the session. Its token stops working; closing an unknown token does nothing.
+     */
+    public void close(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+}
@@ -1,18 +1,27 @@
 package session;
 
 import lombok.RequiredArgsConstructor;
+import utils.NameCodec;
 
 @RequiredArgsConstructor
 public class SessionServiceImpl implements SessionService {
+    // Packed key of the logged in user, 0 when nobody is logged in
+    private long currentUserHigh;
+    private long currentUserLow;
     private String currentUser;
 
     @Override
     public void login(String username) {
-        this.currentUser = username.trim().toLowerCase();
+        String trimmed = username.trim();
+        this.currentUserHigh = NameCodec.high(trimmed);
+        this.currentUserLow = NameCodec.low(trimmed);
+        this.currentUser = NameCodec.decode(currentUserHigh, currentUserLow);
     }
 
     @Override
     public void logout() {
+        this.currentUserHigh = 0;
+        this.currentUserLow = 0;
         this.currentUser = null;
     }
 
@@ -23,6 +32,7 @@ public class SessionServiceImpl implements SessionService {
 
     @Override
     public boolean isLoggedIn() {
-        return currentUser != null;
+        return currentUserHigh != 0;
     }
+
 }
@@ -0,0 +1,223 @@
+package utils;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * An amount of money that has already been checked: a {@code long} count of minor units at
+ * {@link MoneyUtils#SCALE} plus the number of decimal places to show it with. Input is parsed into
+ * one where it enters the application, so the layers it is handed to need not check it again.
+ * <p>
+ * Text is parsed in one scan without intermediate strings or {@link BigDecimal}s. Accepted are an
+ * optional sign, digits and at most one decimal point, e.g. {@code 100}, {@code -5} or {@code 12.50};
+ * digits after the second decimal place must be zeros, and the value must fit in a {@code long} of
+ * minor units.
+ * <p>
+ * Arithmetic stays on the minor units and keeps the larger of the two scales, as {@link BigDecimal}
+ * does, so results print with the precision of their inputs. Overflow throws
+ * {@link IllegalStateException} like the balance arithmetic in {@link MoneyUtils}.
+ */
+@Getter
+@EqualsAndHashCode
+public final class Amount implements Comparable<Amount> {
+
+    public static final Amount ZERO = new Amount(0, 0);
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L};
+
+    private final long minorUnits;
+    // Decimal places to print, 0 to MoneyUtils.SCALE
+    private final int scale;
+
+    private Amount(long minorUnits, int scale) {
+        this.minorUnits = minorUnits;
+        this.scale = scale;
+    }
+
+    public static Amount parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses the characters from {@code from} (inclusive) to {@code to} (exclusive).
+     *
+     * @throws NumberFormatException    if they are not a plain decimal
+     * @throws IllegalArgumentException if the decimal has more than {@value MoneyUtils#SCALE} decimal
+     *                                  places or is out of range
+     */
+    public static Amount parse(CharSequence text, int from, int to) {
+        int position = from;
+        boolean negative = false;
+        if (position < to && (text.charAt(position) == '-' || text.charAt(position) == '+')) {
+            negative = text.charAt(position) == '-';
+            position++;
+        }
+
+        long units = 0;
+        int digits = 0;
+        // Digits seen after the decimal point, -1 before it
+        int decimals = -1;
+        boolean tooPrecise = false;
+        boolean outOfRange = false;
+        for (; position < to; position++) {
+            char c = text.charAt(position);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                int digit = c - '0';
+                if (decimals >= MoneyUtils.SCALE) {
+                    tooPrecise |= digit != 0;
+                    continue;
+                }
+                if (units > (Long.MAX_VALUE - digit) / 10) {
+                    outOfRange = true;
+                } else {
+                    units = units * 10 + digit;
+                }
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                throw new NumberFormatException("Invalid amount format");
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid amount format");
+        }
+        if (tooPrecise) {
+            throw new IllegalArgumentException("Amount cannot have more than " + MoneyUtils.SCALE + " decimal places\n");
+        }
+
+        int scale = Math.max(decimals, 0);
+        long multiplier = POWERS_OF_TEN[MoneyUtils.SCALE - scale];
+        if (outOfRange || units > Long.MAX_VALUE / multiplier) {
+            throw new IllegalArgumentException("Amount is out of range\n");
+        }
+        units *= multiplier;
+        return new Amount(negative ? -units : units, scale);
+    }
+
+    /**
+     * The amount a count of minor units stands for, shown with no more decimal places than it needs.
+     */
+    public static Amount ofMinorUnits(long minorUnits) {
+        return new Amount(minorUnits, MoneyUtils.displayScale(minorUnits));
+    }
+
+    /**
+     * The amount a count of minor units stands for, shown with at least {@code scale} decimal places
+     * and more if the minor units need them.
+     */
+    public static Amount ofMinorUnits(long minorUnits, int scale) {
+        if (scale < 0 || scale > MoneyUtils.SCALE) {
+            throw new IllegalArgumentException("Scale must be 0 to " + MoneyUtils.SCALE + "\n");
+        }
+        return new Amount(minorUnits, Math.max(scale, MoneyUtils.displayScale(minorUnits)));
+    }
+
+    /**
+     * The amount {@code unscaledValue} &times; 10<sup>-scale</sup>, as {@link BigDecimal#valueOf(long, int)}
+     * reads it; used to decode amounts stored in that form.
+     *
+     * @throws IllegalArgumentException if the amount has more than {@value MoneyUtils#SCALE} decimal
+     *                                  places or is out of range
+     */
+    public static Amount ofUnscaled(long unscaledValue, int scale) {
+        if (scale < 0 || scale > MoneyUtils.SCALE) {
+            // Only written by versions that kept amounts as typed, such as 1.000
+            return of(BigDecimal.valueOf(unscaledValue, scale));
+        }
+        long multiplier = POWERS_OF_TEN[MoneyUtils.SCALE - scale];
+        if (Math.abs(unscaledValue) > Long.MAX_VALUE / multiplier) {
+            throw new IllegalArgumentException("Amount is out of range\n");
+        }
+        return new Amount(unscaledValue * multiplier, scale);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the amount has more than {@value MoneyUtils#SCALE} decimal
+     *                                  places or is out of range
+     */
+    public static Amount of(BigDecimal amount) {
+        return new Amount(MoneyUtils.toMinorUnits(amount), MoneyUtils.displayScale(amount));
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    /**
+     * The digits without the decimal point at this amount's scale, as {@link BigDecimal#unscaledValue()}.
+     */
+    public long unscaledValue() {
+        return minorUnits / POWERS_OF_TEN[MoneyUtils.SCALE - scale];
+    }
+
+    public Amount add(Amount other) {
+        return new Amount(MoneyUtils.add(minorUnits, other.minorUnits), Math.max(scale, other.scale));
+    }
+
+    public Amount subtract(Amount other) {
+        return new Amount(MoneyUtils.subtract(minorUnits, other.minorUnits), Math.max(scale, other.scale));
+    }
+
+    public Amount negate() {
+        return new Amount(MoneyUtils.subtract(0, minorUnits), scale);
+    }
+
+    public Amount multiply(long factor) {
+        try {
+            return new Amount(Math.multiplyExact(minorUnits, factor), scale);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Balance overflow\n");
+        }
+    }
+
+    /**
+     * The smaller amount; this one if they are equal in value.
+     */
+    public Amount min(Amount other) {
+        return compareTo(other) <= 0 ? this : other;
+    }
+
+    /**
+     * Compares by value only, so 1.5 and 1.50 compare as equal although they are not {@code equals}.
+     */
+    @Override
+    public int compareTo(Amount other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return MoneyUtils.toBigDecimal(minorUnits, scale);
+    }
+
+    /**
+     * Appends the amount as {@link #toString()} would, without creating a string or a {@link BigDecimal}.
+     */
+    public StringBuilder appendTo(StringBuilder text) {
+        long unscaled = unscaledValue();
+        if (scale == 0) {
+            return text.append(unscaled);
+        }
+        long divisor = POWERS_OF_TEN[scale];
+        long whole = unscaled / divisor;
+        long fraction = Math.abs(unscaled % divisor);
+        if (unscaled < 0 && whole == 0) {
+            text.append('-');
+        }
+        text.append(whole).append('.');
+        for (long digit = divisor / 10; digit > fraction && digit > 1; digit /= 10) {
+            text.append('0');
+        }
+        return text.append(fraction);
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(24)).toString();
+    }
+}
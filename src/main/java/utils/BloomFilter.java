@@ -0,0 +1,56 @@
+package utils;
+
+/**
+ * Bloom filter over names packed with {@link NameCodec}, used to answer "definitely absent" without
+ * touching the account table. Sized at 10 bits per expected name with 7 probes, which keeps false
+ * positives near 1% until the expected count is reached. Not thread-safe.
+ */
+public class BloomFilter {
+
+    private static final int BITS_PER_NAME = 10;
+    private static final int PROBES = 7;
+
+    private final long[] words;
+    private final long mask;
+    private final long expectedInsertions;
+
+    public BloomFilter(long expectedInsertions) {
+        long bits = Long.highestOneBit(Math.max(64, expectedInsertions * BITS_PER_NAME) * 2 - 1);
+        this.words = new long[(int) Math.min(Integer.MAX_VALUE - 8, bits >>> 6)];
+        this.mask = ((long) words.length << 6) - 1;
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public void add(long high, long low) {
+        long hash1 = mix(high * 0x9E3779B97F4A7C15L ^ low);
+        long hash2 = mix(low * 0xC2B2AE3D27D4EB4FL ^ high) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            long bit = (hash1 + i * hash2) & mask;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(long high, long low) {
+        long hash1 = mix(high * 0x9E3779B97F4A7C15L ^ low);
+        long hash2 = mix(low * 0xC2B2AE3D27D4EB4FL ^ high) | 1;
+        for (int i = 0; i < PROBES; i++) {
+            long bit = (hash1 + i * hash2) & mask;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,71 @@
+package utils;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often a key was seen recently (the TinyLFU
+ * admission filter). Each {@code long} holds 16 counters and every key maps to four of them. After
+ * ten increments per tracked entry all counters are halved, so old popularity fades away.
+ * Not thread-safe.
+ */
+public class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    public FrequencySketch(int maximumSize) {
+        int size = Integer.highestOneBit(Math.max(16, maximumSize) * 2 - 1);
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * Math.max(16, maximumSize);
+    }
+
+    public int frequency(long hash) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, counter(hash, i));
+        }
+        return frequency;
+    }
+
+    public void increment(long hash) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = index(hash, i);
+            int shift = shift(hash, i);
+            if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int counter(long hash, int i) {
+        return (int) ((table[index(hash, i)] >>> shift(hash, i)) & MAX_COUNT);
+    }
+
+    private int index(long hash, int i) {
+        long mixed = (hash + SEEDS[i]) * SEEDS[(i + 1) & 3];
+        return (int) (mixed ^ (mixed >>> 32)) & tableMask;
+    }
+
+    // Which of the 16 nibbles in the long belongs to this key for hash function i
+    private static int shift(long hash, int i) {
+        return (int) ((hash >>> (i << 3)) & 15) << 2;
+    }
+}
@@ -0,0 +1,75 @@
+package utils;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point money arithmetic. Amounts are held as a {@code long} count of minor units
+ * (cents) at a fixed scale of {@value #SCALE}, so the hot path never allocates.
+ * {@link BigDecimal} is only used when parsing input and printing results.
+ */
+public class MoneyUtils {
+
+    public static final int SCALE = 2;
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L};
+
+    private MoneyUtils() {
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount cannot be null\n");
+        }
+        BigDecimal normalized = amount.scale() > SCALE ? amount.stripTrailingZeros() : amount;
+        if (normalized.scale() > SCALE) {
+            throw new IllegalArgumentException("Amount cannot have more than " + SCALE + " decimal places\n");
+        }
+        try {
+            return normalized.movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount is out of range\n");
+        }
+    }
+
+    public static BigDecimal toBigDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * Converts minor units back to a {@link BigDecimal} with the given scale (0 to {@value #SCALE}).
+     * The caller guarantees the value has no non-zero digits beyond that scale.
+     */
+    public static BigDecimal toBigDecimal(long minorUnits, int scale) {
+        return BigDecimal.valueOf(minorUnits / POWERS_OF_TEN[SCALE - scale], scale);
+    }
+
+    /** Returns the number of decimal places the amount actually uses, capped to {@value #SCALE}. */
+    public static int displayScale(BigDecimal amount) {
+        return Math.max(0, Math.min(amount.scale(), SCALE));
+    }
+
+    /** Returns the fewest decimal places that show the minor units exactly. */
+    public static int displayScale(long minorUnits) {
+        int scale = SCALE;
+        while (scale > 0 && minorUnits % POWERS_OF_TEN[SCALE - scale + 1] == 0) {
+            scale--;
+        }
+        return scale;
+    }
+
+    public static long add(long balance, long amount) {
+        try {
+            return Math.addExact(balance, amount);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Balance overflow\n");
+        }
+    }
+
+    public static long subtract(long balance, long amount) {
+        try {
+            return Math.subtractExact(balance, amount);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Balance overflow\n");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package utils;
+
+/**
+ * Packs an account name into two {@code long}s.
+ * <p>
+ * Names are 2-20 ASCII letters and case-insensitive, so each letter fits in 5 bits (a-z as 1-26).
+ * The first 12 letters go into the high word and the remaining 8 into the low word. Packing folds
+ * case and validates in the same pass, so lookups need neither {@code toLowerCase()} nor a regex.
+ * Every valid name has a non-zero high word, which lets tables use 0 as the empty marker.
+ */
+public class NameCodec {
+
+    public static final int MIN_LENGTH = 2;
+    public static final int MAX_LENGTH = 20;
+
+    private static final int HIGH_LETTERS = 12;
+    private static final int BITS_PER_LETTER = 5;
+    private static final int LETTER_MASK = (1 << BITS_PER_LETTER) - 1;
+
+    private NameCodec() {
+    }
+
+    public static long high(CharSequence name) {
+        int length = checkLength(name);
+        return pack(name, 0, Math.min(length, HIGH_LETTERS));
+    }
+
+    public static long low(CharSequence name) {
+        int length = checkLength(name);
+        return length > HIGH_LETTERS ? pack(name, HIGH_LETTERS, length) : 0L;
+    }
+
+    public static boolean isValid(CharSequence name) {
+        if (name == null || name.length() < MIN_LENGTH || name.length() > MAX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (letterCode(name.charAt(i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the two words are the packed form of a valid name, e.g. when they arrive off the wire.
+     */
+    public static boolean isValid(long high, long low) {
+        int highLetters = packedLetters(high);
+        int lowLetters = packedLetters(low);
+        if (highLetters < 0 || lowLetters < 0 || (lowLetters > 0 && highLetters != HIGH_LETTERS)) {
+            return false;
+        }
+        int length = highLetters + lowLetters;
+        return length >= MIN_LENGTH && length <= MAX_LENGTH;
+    }
+
+    /**
+     * Returns the lowercased name for a packed key.
+     */
+    public static String decode(long high, long low) {
+        char[] letters = new char[MAX_LENGTH];
+        int length = unpack(high, letters, 0);
+        length = unpack(low, letters, length);
+        return new String(letters, 0, length);
+    }
+
+    /**
+     * Returns the name with ASCII capitals lowercased, the form {@link #decode} gives back. A name
+     * without capitals is returned as is, and the default locale plays no part.
+     */
+    public static String foldCase(String name) {
+        int first = 0;
+        while (first < name.length() && (name.charAt(first) < 'A' || name.charAt(first) > 'Z')) {
+            first++;
+        }
+        if (first == name.length()) {
+            return name;
+        }
+        char[] letters = name.toCharArray();
+        for (int i = first; i < letters.length; i++) {
+            if (letters[i] >= 'A' && letters[i] <= 'Z') {
+                letters[i] += 'a' - 'A';
+            }
+        }
+        return new String(letters);
+    }
+
+    private static long pack(CharSequence name, int from, int to) {
+        long packed = 0;
+        for (int i = from; i < to; i++) {
+            int code = letterCode(name.charAt(i));
+            if (code == 0) {
+                throw new IllegalArgumentException(AccountValidationUtils.INVALID_NAME_MESSAGE);
+            }
+            packed = packed << BITS_PER_LETTER | code;
+        }
+        return packed;
+    }
+
+    private static int unpack(long packed, char[] letters, int offset) {
+        int count = 0;
+        for (long rest = packed; rest != 0; rest >>>= BITS_PER_LETTER) {
+            count++;
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            letters[offset + i] = (char) ('a' - 1 + (packed & LETTER_MASK));
+            packed >>>= BITS_PER_LETTER;
+        }
+        return offset + count;
+    }
+
+    // Number of letters in a packed word, or -1 if it holds anything but letters
+    private static int packedLetters(long packed) {
+        int count = 0;
+        for (long rest = packed; rest != 0; rest >>>= BITS_PER_LETTER) {
+            long code = rest & LETTER_MASK;
+            if (code == 0 || code > 'z' - 'a' + 1 || ++count > HIGH_LETTERS) {
+                return -1;
+            }
+        }
+        return count;
+    }
+
+    private static int checkLength(CharSequence name) {
+        if (name == null || name.length() < MIN_LENGTH || name.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException(AccountValidationUtils.INVALID_NAME_MESSAGE);
+        }
+        return name.length();
+    }
+
+    private static int letterCode(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,228 @@
+package utils;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * Open-addressing hash map keyed by names packed with {@link NameCodec}.
+ * <p>
+ * Keys live in two parallel {@code long} arrays, so a lookup hashes two words and compares two words
+ * instead of lowercasing, hashing and comparing a {@code String}. Linear probing with backward-shift
+ * deletion keeps probe sequences short without tombstones. Not thread-safe.
+ */
+public class PackedNameMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] highs;
+    private long[] lows;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public PackedNameMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PackedNameMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2) * 2 - 1);
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(CharSequence name) {
+        return get(NameCodec.high(name), NameCodec.low(name));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long high, long low) {
+        int slot = find(high, low);
+        return slot >= 0 ? (V) values[slot] : null;
+    }
+
+    public V put(CharSequence name, V value) {
+        return put(NameCodec.high(name), NameCodec.low(name), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long high, long low, V value) {
+        int slot = slot(high, low);
+        while (highs[slot] != 0) {
+            if (highs[slot] == high && lows[slot] == low) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        highs[slot] = high;
+        lows[slot] = low;
+        values[slot] = value;
+        if (++size > highs.length / 2) {
+            allocateAndRehash(highs.length * 2);
+        }
+        return null;
+    }
+
+    public V computeIfAbsent(CharSequence name, Supplier<V> factory) {
+        return computeIfAbsent(NameCodec.high(name), NameCodec.low(name), factory);
+    }
+
+    public V computeIfAbsent(long high, long low, Supplier<V> factory) {
+        V value = get(high, low);
+        if (value == null) {
+            value = factory.get();
+            put(high, low, value);
+        }
+        return value;
+    }
+
+    public V remove(CharSequence name) {
+        return remove(NameCodec.high(name), NameCodec.low(name));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long high, long low) {
+        int slot = find(high, low);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) values[slot];
+
+        // Shift later entries of the probe run back so no lookup stops early at the hole
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (highs[next] != 0) {
+            int home = slot(highs[next], lows[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                highs[hole] = highs[next];
+                lows[hole] = lows[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        highs[hole] = 0;
+        lows[hole] = 0;
+        values[hole] = null;
+        size--;
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int slot = 0; slot < highs.length; slot++) {
+            if (highs[slot] != 0) {
+                consumer.accept(highs[slot], lows[slot], (V) values[slot]);
+            }
+        }
+    }
+
+    public PackedNameMap<V> copy() {
+        PackedNameMap<V> copy = new PackedNameMap<>(size);
+        forEach(copy::put);
+        return copy;
+    }
+
+    /**
+     * Live view of the values. Must not be iterated while the map is being modified.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<>() {
+                    private int slot = advance(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < highs.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public V next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        V value = (V) values[slot];
+                        slot = advance(slot + 1);
+                        return value;
+                    }
+
+                    private int advance(int from) {
+                        int candidate = from;
+                        while (candidate < highs.length && highs[candidate] == 0) {
+                            candidate++;
+                        }
+                        return candidate;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int find(long high, long low) {
+        int slot = slot(high, low);
+        while (highs[slot] != 0) {
+            if (highs[slot] == high && lows[slot] == low) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long high, long low) {
+        long hash = high * 0x9E3779B97F4A7C15L + low;
+        hash ^= hash >>> 32;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 29;
+        return (int) hash & mask;
+    }
+
+    private void allocate(int capacity) {
+        highs = new long[capacity];
+        lows = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void allocateAndRehash(int capacity) {
+        long[] oldHighs = highs;
+        long[] oldLows = lows;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldHighs.length; i++) {
+            if (oldHighs[i] != 0) {
+                int slot = slot(oldHighs[i], oldLows[i]);
+                while (highs[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                highs[slot] = oldHighs[i];
+                lows[slot] = oldLows[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long high, long low, V value);
+    }
+}
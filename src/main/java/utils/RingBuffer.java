@@ -0,0 +1,136 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * A fixed ring of entries allocated once up front, which many producers fill and a chain of
+ * consumers read in sequence order. A producer claims one or more consecutive sequences with a
+ * single compare-and-set, writes the entries in place and publishes them; a consumer processes every
+ * published sequence up to the first gap. Producers wait rather than overwrite an entry that the
+ * slowest consumer, given by {@link #setGatingSequences}, has not finished with.
+ */
+public class RingBuffer<E> {
+
+    private static final int SPINS_BEFORE_PARKING = 100;
+    private static final long PARK_NANOS = 1_000;
+
+    private final Object[] entries;
+    private final int mask;
+    private final int indexShift;
+    // The lap of the sequence last published into each entry, so a consumer can tell a fresh entry
+    // from one published a lap earlier
+    private final AtomicIntegerArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile AtomicLong[] gatingSequences = new AtomicLong[0];
+    // Lowest gating sequence seen so far; producers refresh it only when the ring looks full
+    private volatile long gatingCache = -1;
+
+    /**
+     * @param size number of entries, a power of two
+     */
+    public RingBuffer(int size, Supplier<E> factory) {
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two\n");
+        }
+        this.entries = new Object[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = factory.get();
+        }
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        this.published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * The consumers whose progress producers must not overtake, normally the last of the chain.
+     */
+    public void setGatingSequences(AtomicLong... sequences) {
+        this.gatingSequences = sequences.clone();
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    /**
+     * Claims the next {@code count} sequences and returns the highest; the lowest is that minus
+     * {@code count - 1}. Waits while the ring has no room for all of them.
+     */
+    public long next(int count) {
+        if (count < 1 || count > entries.length) {
+            throw new IllegalArgumentException("Cannot claim " + count + " of " + entries.length + " entries\n");
+        }
+        int spins = 0;
+        while (true) {
+            long current = claimed.get();
+            long next = current + count;
+            long wrapPoint = next - entries.length;
+            if (wrapPoint > gatingCache) {
+                long gating = minimumGatingSequence(current);
+                if (wrapPoint > gating) {
+                    spins = backOff(spins);
+                    continue;
+                }
+                gatingCache = gating;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Makes the entries from {@code low} to {@code high} visible to consumers.
+     */
+    public void publish(long low, long high) {
+        for (long sequence = low; sequence <= high; sequence++) {
+            published.set((int) sequence & mask, (int) (sequence >>> indexShift));
+        }
+    }
+
+    public boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * The highest sequence from {@code from} onwards up to which every entry is published, or
+     * {@code from - 1} if {@code from} itself is not.
+     */
+    public long highestPublished(long from) {
+        long last = claimed.get();
+        for (long sequence = from; sequence <= last; sequence++) {
+            if (!isPublished(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return last;
+    }
+
+    private long minimumGatingSequence(long fallback) {
+        long minimum = fallback;
+        for (AtomicLong sequence : gatingSequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+
+    private static int backOff(int spins) {
+        if (spins < SPINS_BEFORE_PARKING) {
+            Thread.onSpinWait();
+            return spins + 1;
+        }
+        LockSupport.parkNanos(PARK_NANOS);
+        return spins;
+    }
+}
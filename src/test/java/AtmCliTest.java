@@ -6,13 +6,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import session.SessionService;
+import utils.Amount;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
-import java.math.BigDecimal;
+import java.io.StringReader;
 import java.util.Scanner;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -79,7 +83,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService).deposit(new BigDecimal("100"));
+        verify(commandService).deposit(Amount.parse("100"));
     }
 
     @Test
@@ -91,7 +95,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService, never()).deposit(any());
+        verify(commandService, never()).deposit(any(Amount.class));
         String output = outputStream.toString();
         assertTrue(output.contains("Error: Deposit requires amount"),
                 "Expected error message not found in output: " + output);
@@ -107,7 +111,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService).transfer("bob", new BigDecimal("50"));
+        verify(commandService).transfer("bob", Amount.parse("50"));
     }
 
     @Test
@@ -120,7 +124,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService, never()).transfer(anyString(), any());
+        verify(commandService, never()).transfer(anyString(), any(Amount.class));
         String output = outputStream.toString();
         assertTrue(output.contains("Error: Cannot transfer money to yourself"),
                 "Expected error message not found in output: " + output);
@@ -135,7 +139,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService, never()).withdraw(any());
+        verify(commandService, never()).withdraw(any(Amount.class));
         String output = outputStream.toString();
         assertTrue(output.contains("Error: Withdraw requires amount"),
                 "Expected error message not found in output: " + output);
@@ -191,7 +195,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService, never()).deposit(any());
+        verify(commandService, never()).deposit(any(Amount.class));
         String output = outputStream.toString();
         assertTrue(output.contains("Error: Amount must be positive"),
                 "Expected error message not found in output: " + output);
@@ -206,7 +210,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService, never()).deposit(any());
+        verify(commandService, never()).deposit(any(Amount.class));
         String output = outputStream.toString();
         assertTrue(output.contains("Error: Invalid amount format"),
                 "Expected error message not found in output: " + output);
@@ -221,7 +225,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService).withdraw(new BigDecimal("100"));
+        verify(commandService).withdraw(Amount.parse("100"));
     }
 
     @Test
@@ -233,7 +237,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService, never()).withdraw(any());
+        verify(commandService, never()).withdraw(any(Amount.class));
         String output = outputStream.toString();
         assertTrue(output.contains("Error: Amount must be positive"),
                 "Expected error message not found in output: " + output);
@@ -248,7 +252,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService, never()).transfer(any(), any());
+        verify(commandService, never()).transfer(any(), any(Amount.class));
         String output = outputStream.toString();
         assertTrue(output.contains("Error: Transfer requires recipient account and amount"),
                 "Expected error message not found in output: " + output);
@@ -264,7 +268,7 @@ class AtmCliTest {
         atmCli.start();
 
         // Assert
-        verify(commandService, never()).transfer(any(), any());
+        verify(commandService, never()).transfer(any(), any(Amount.class));
         String output = outputStream.toString();
         assertTrue(output.contains("Error: Amount must be positive"),
                 "Expected error message not found in output: " + output);
@@ -287,6 +291,58 @@ class AtmCliTest {
                 "Expected error message not found in output: " + output);
     }
 
+    @Test
+    void registerCommand_CustomCommand_Dispatched() {
+        // Arrange
+        setupAtmWithInput("hello world\nexit\n");
+        atmCli.registerCommand("hello", line -> System.out.println("Hi " + line.token(1)));
+
+        // Act
+        atmCli.start();
+
+        // Assert
+        String output = outputStream.toString();
+        assertTrue(output.contains("Hi world"), "Expected custom command output in: " + output);
+        assertFalse(output.contains("Invalid command"));
+    }
+
+    @Test
+    void runScript_ReportsCommandsAndErrors() throws IOException {
+        // Arrange
+        setupAtmWithInput("");
+        BufferedReader script = new BufferedReader(new StringReader("login alice\n\ndeposit abc\nfoo\nlogout\n"));
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        // Act
+        atmCli.runScript(script, new PrintStream(report));
+
+        // Assert
+        verify(commandService).login("alice");
+        verify(commandService).logout();
+        String output = outputStream.toString();
+        assertTrue(output.contains("Error: Invalid amount format"),
+                "Expected error message not found in output: " + output);
+        assertTrue(report.toString().startsWith("Processed 4 commands with 2 errors in "),
+                "Unexpected report: " + report);
+        assertFalse(output.contains("Welcome to ATM CLI"));
+    }
+
+    @Test
+    void runScript_StopsAtExit() throws IOException {
+        // Arrange
+        setupAtmWithInput("");
+        BufferedReader script = new BufferedReader(new StringReader("logout\nexit\nlogout\n"));
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        // Act
+        atmCli.runScript(script, new PrintStream(report));
+
+        // Assert
+        verify(commandService, times(1)).logout();
+        assertTrue(report.toString().startsWith("Processed 1 commands with 0 errors"),
+                "Unexpected report: " + report);
+    }
+
     @AfterEach
     void tearDown() {
         System.setIn(System.in);
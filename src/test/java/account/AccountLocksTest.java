@@ -0,0 +1,72 @@
+package account;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountLocksTest {
+
+    @Test
+    void stripe_SameNameAnyCase_SameStripe() {
+        // Arrange
+        AccountLocks locks = new AccountLocks(64);
+
+        // Act & Assert
+        assertEquals(locks.stripe("alice"), locks.stripe("ALICE"));
+        assertEquals(0, locks.stripe("a1"));
+        assertEquals(0, locks.stripe(null));
+    }
+
+    @Test
+    void lockAll_SortsAndDropsDuplicates() {
+        // Arrange
+        AccountLocks locks = new AccountLocks(16);
+        int[] stripes = {9, 3, 9, 1, 3};
+
+        // Act
+        int distinct = locks.lockAll(stripes, stripes.length);
+        locks.unlockAll(stripes, distinct);
+
+        // Assert
+        assertEquals(3, distinct);
+        assertArrayEquals(new int[]{1, 3, 9}, Arrays.copyOf(stripes, distinct));
+    }
+
+    @Test
+    void lock_OppositeOrderFromTwoThreads_NoDeadlock() throws Exception {
+        // Arrange
+        AccountLocks locks = new AccountLocks(16);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        long[] counter = new long[1];
+
+        try {
+            // Act
+            Future<?> forward = executor.submit(() -> lockRepeatedly(locks, 2, 7, counter));
+            Future<?> backward = executor.submit(() -> lockRepeatedly(locks, 7, 2, counter));
+            forward.get(30, TimeUnit.SECONDS);
+            backward.get(30, TimeUnit.SECONDS);
+
+            // Assert
+            assertEquals(200_000, counter[0]);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void lockRepeatedly(AccountLocks locks, int first, int second, long[] counter) {
+        for (int i = 0; i < 100_000; i++) {
+            locks.lock(first, second);
+            try {
+                counter[0]++;
+            } finally {
+                locks.unlock(first, second);
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static utils.TestNames.name;
 
 class AccountServiceImplTest {
 
@@ -144,4 +145,39 @@ class AccountServiceImplTest {
         assertThrows(IllegalArgumentException.class, () -> accountService.createAccount("ThisNameIsTooLongForTheSystem")); // Too long
         assertThrows(IllegalArgumentException.class, () -> accountService.createAccount(null)); // Null
     }
+
+    @Test
+    void findAccount_NonExistingAccount_ReturnsNullWithoutCreating() {
+        // Act
+        Account account = accountService.findAccount("Mallory");
+
+        // Assert
+        assertNull(account);
+        assertTrue(accountService.getAccounts().isEmpty());
+    }
+
+    @Test
+    void findAccount_ExistingAccount_CaseInsensitive() {
+        // Arrange
+        Account created = accountService.createAccount("Ivan");
+
+        // Act & Assert
+        assertSame(created, accountService.findAccount("IVAN"));
+        assertNull(accountService.findAccount("I1"));
+        assertNull(accountService.findAccount(null));
+    }
+
+    @Test
+    void findAccount_AfterFilterGrows_FindsEveryAccount() {
+        // Arrange
+        for (int i = 0; i < 5_000; i++) {
+            accountService.getAccount(name(i));
+        }
+
+        // Act & Assert
+        for (int i = 0; i < 5_000; i++) {
+            assertNotNull(accountService.findAccount(name(i)));
+        }
+        assertNull(accountService.findAccount("zzzzzzzzzzzzzzz"));
+    }
 }
@@ -155,4 +155,69 @@ class BaseAccountTest {
         assertEquals(new BigDecimal("30"), account.getBalance());
         assertEquals(new BigDecimal("70"), targetAccount.getBalance());
     }
-}
\ No newline at end of file
+
+    @Test
+    void minorUnits_DepositWithdrawTransfer_Success() {
+        // Act
+        account.deposit(10_000L);
+        account.withdraw(2_550L);
+        account.transfer(targetAccount, 1_450L);
+
+        // Assert
+        assertEquals(6_000L, account.getBalanceMinorUnits());
+        assertEquals(1_450L, targetAccount.getBalanceMinorUnits());
+    }
+
+    @Test
+    void minorUnits_Deposit_PrintsTheCents() {
+        // Act
+        account.deposit(150L);
+        account.transfer(targetAccount, 25L);
+
+        // Assert
+        assertEquals(new BigDecimal("1.25"), account.getBalance());
+        assertEquals(new BigDecimal("0.25"), targetAccount.getBalance());
+    }
+
+    @Test
+    void minorUnits_NegativeWithdraw_ThrowsException() {
+        // Arrange
+        account.deposit(100L);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> account.withdraw(-50L));
+        assertThrows(IllegalArgumentException.class, () -> account.transfer(targetAccount, -50L));
+        assertEquals(100L, account.getBalanceMinorUnits());
+    }
+
+    @Test
+    void minorUnits_InsufficientFunds_ThrowsException() {
+        // Arrange
+        account.deposit(100L);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> account.withdraw(101L));
+        assertEquals(100L, account.getBalanceMinorUnits());
+    }
+
+    @Test
+    void deposit_Overflow_ThrowsException() {
+        // Arrange
+        account.deposit(Long.MAX_VALUE);
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> account.deposit(1L)
+        );
+        assertTrue(exception.getMessage().contains("Balance overflow"));
+        assertEquals(Long.MAX_VALUE, account.getBalanceMinorUnits());
+    }
+
+    @Test
+    void deposit_TooManyDecimals_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> account.deposit(new BigDecimal("0.001")));
+        assertEquals(BigDecimal.ZERO, account.getBalance());
+    }
+}
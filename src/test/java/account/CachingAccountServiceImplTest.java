@@ -0,0 +1,124 @@
+package account;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static utils.TestNames.letters;
+
+class CachingAccountServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MappedAccountServiceImpl backingStore;
+    private CachingAccountServiceImpl accountService;
+
+    @BeforeEach
+    void setUp() {
+        backingStore = new MappedAccountServiceImpl(tempDir.resolve("accounts.db"), 10_000);
+        accountService = new CachingAccountServiceImpl(backingStore, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        backingStore.close();
+    }
+
+    @Test
+    void getAccount_RepeatedLookup_CountsHit() {
+        // Arrange
+        accountService.createAccount("alice");
+
+        // Act
+        Account first = accountService.getAccount("Alice");
+        Account second = accountService.getAccount("alice");
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(2, accountService.getHitCount());
+        assertEquals(1, accountService.getMissCount());
+    }
+
+    @Test
+    void updateAccount_WritesBackOnlyOnFlush() {
+        // Arrange
+        Account account = accountService.createAccount("alice");
+        account.deposit(new BigDecimal("25.50"));
+
+        // Act
+        accountService.updateAccount(account);
+        BigDecimal beforeFlush = backingStore.findAccount("alice").getBalance();
+        accountService.flush();
+
+        // Assert
+        assertEquals(0, beforeFlush.signum());
+        assertEquals(new BigDecimal("25.50"), backingStore.findAccount("alice").getBalance());
+    }
+
+    @Test
+    void eviction_WritesDirtyAccountBack() {
+        // Arrange
+        Account account = accountService.createAccount("alice");
+        account.deposit(new BigDecimal("10"));
+        accountService.updateAccount(account);
+
+        // Act
+        for (int i = 0; i < 300; i++) {
+            accountService.getAccount("user" + letters(i));
+        }
+
+        // Assert
+        assertTrue(accountService.getEvictionCount() > 0);
+        assertEquals(100, accountService.size());
+        assertEquals(new BigDecimal("10"), backingStore.findAccount("alice").getBalance());
+    }
+
+    @Test
+    void eviction_FrequentAccountSurvivesScan() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            accountService.getAccount("alice");
+        }
+
+        // Act
+        for (int i = 0; i < 1_000; i++) {
+            accountService.getAccount("user" + letters(i));
+        }
+        long missesBefore = accountService.getMissCount();
+        accountService.getAccount("alice");
+
+        // Assert
+        assertEquals(missesBefore, accountService.getMissCount());
+    }
+
+    @Test
+    void findAccount_Missing_ReturnsNullWithoutCreating() {
+        // Act
+        Account account = accountService.findAccount("ghost");
+
+        // Assert
+        assertNull(account);
+        assertNull(backingStore.findAccount("ghost"));
+        assertEquals(0, accountService.size());
+    }
+
+    @Test
+    void getAccounts_IncludesDirtyChanges() {
+        // Arrange
+        Account account = accountService.createAccount("alice");
+        account.deposit(new BigDecimal("5"));
+        accountService.updateAccount(account);
+
+        // Act
+        BigDecimal balance = accountService.getAccounts().iterator().next().getBalance();
+
+        // Assert
+        assertEquals(new BigDecimal("5"), balance);
+    }
+}
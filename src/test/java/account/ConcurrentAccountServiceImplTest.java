@@ -0,0 +1,152 @@
+package account;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static utils.TestNames.name;
+
+class ConcurrentAccountServiceImplTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 2_000;
+
+    private ConcurrentAccountServiceImpl accountService;
+
+    @BeforeEach
+    void setUp() {
+        accountService = new ConcurrentAccountServiceImpl();
+    }
+
+    @Test
+    void createAccount_CaseInsensitive() {
+        // Act
+        Account account1 = accountService.createAccount("Alice");
+        Account account2 = accountService.getAccount("ALICE");
+
+        // Assert
+        assertSame(account1, account2);
+        assertEquals("alice", account1.getName());
+    }
+
+    @Test
+    void createAccount_InvalidName_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> accountService.createAccount("A1"));
+        assertThrows(IllegalArgumentException.class, () -> accountService.createAccount(null));
+    }
+
+    @Test
+    void getAccount_ConcurrentFirstAccess_CreatesSingleAccount() throws Exception {
+        // Act
+        List<Account> seen = runConcurrently(() -> accountService.getAccount("Bob"));
+
+        // Assert
+        for (Account account : seen) {
+            assertSame(seen.get(0), account);
+        }
+    }
+
+    @Test
+    void deposit_ConcurrentDeposits_NoLostUpdates() throws Exception {
+        // Arrange
+        Account account = accountService.createAccount("Alice");
+
+        // Act
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                accountService.getAccount("alice").deposit(BigDecimal.ONE);
+            }
+            return null;
+        });
+
+        // Assert
+        assertEquals(new BigDecimal(THREADS * OPERATIONS), account.getBalance());
+    }
+
+    @Test
+    void mixedOperations_ConcurrentTransfers_ConserveTotal() throws Exception {
+        // Arrange
+        Account alice = accountService.createAccount("Alice");
+        Account bob = accountService.createAccount("Bob");
+        alice.deposit(new BigDecimal("1000"));
+        bob.deposit(new BigDecimal("1000"));
+
+        // Act
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                Account source = i % 2 == 0 ? alice : bob;
+                Account target = source == alice ? bob : alice;
+                try {
+                    source.transfer(target, BigDecimal.ONE);
+                } catch (IllegalStateException e) {
+                    // Insufficient funds is fine, the total must still be conserved
+                }
+            }
+            return null;
+        });
+
+        // Assert
+        assertEquals(new BigDecimal("2000"), alice.getBalance().add(bob.getBalance()));
+        assertTrue(alice.getBalance().signum() >= 0);
+        assertTrue(bob.getBalance().signum() >= 0);
+    }
+
+    private <T> List<T> runConcurrently(Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void findAccount_DoesNotCreate() {
+        // Arrange
+        Account created = accountService.createAccount("Carol");
+
+        // Act & Assert
+        assertSame(created, accountService.findAccount("CAROL"));
+        assertNull(accountService.findAccount("Mallory"));
+        assertEquals(1, accountService.getAccounts().size());
+    }
+
+    @Test
+    void findAccount_AfterFiltersGrow_FindsEveryAccount() {
+        // Arrange
+        int accounts = 100_000;
+        for (int i = 0; i < accounts; i++) {
+            accountService.getAccount(name(i));
+        }
+
+        // Act & Assert
+        for (int i = 0; i < accounts; i++) {
+            assertNotNull(accountService.findAccount(name(i)));
+        }
+        assertNull(accountService.findAccount("zzzzzzzzzzzzzzz"));
+        assertEquals(accounts, accountService.getAccounts().size());
+    }
+}
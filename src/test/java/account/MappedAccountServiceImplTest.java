@@ -0,0 +1,146 @@
+package account;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static utils.TestNames.name;
+
+class MappedAccountServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private MappedAccountServiceImpl accountService;
+
+    @BeforeEach
+    void setUp() {
+        file = tempDir.resolve("accounts.db");
+        accountService = new MappedAccountServiceImpl(file, 1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountService.close();
+    }
+
+    @Test
+    void createAccount_Success() {
+        // Act
+        Account account = accountService.createAccount("Alice");
+
+        // Assert
+        assertEquals("alice", account.getName());
+        assertEquals(BigDecimal.ZERO, account.getBalance());
+        assertEquals(1, accountService.size());
+    }
+
+    @Test
+    void updateAccount_WritesBalanceToRecord() {
+        // Arrange
+        Account account = accountService.createAccount("Alice");
+        account.deposit(new BigDecimal("25.50"));
+
+        // Act
+        accountService.updateAccount(account);
+        Account reloaded = accountService.getAccount("ALICE");
+
+        // Assert
+        assertEquals(new BigDecimal("25.50"), reloaded.getBalance());
+        assertEquals(1, accountService.size());
+    }
+
+    @Test
+    void getAccount_WithoutUpdate_DoesNotSeeChanges() {
+        // Arrange
+        Account account = accountService.createAccount("Bob");
+
+        // Act
+        account.deposit(BigDecimal.TEN);
+
+        // Assert
+        assertEquals(BigDecimal.ZERO, accountService.getAccount("bob").getBalance());
+    }
+
+    @Test
+    void reopen_KeepsAccountsAndBalances() {
+        // Arrange
+        Account account = accountService.createAccount("Carol");
+        account.deposit(new BigDecimal("100"));
+        accountService.updateAccount(account);
+        accountService.close();
+
+        // Act
+        accountService = new MappedAccountServiceImpl(file, 16);
+
+        // Assert
+        assertEquals(new BigDecimal("100"), accountService.getAccount("carol").getBalance());
+        assertEquals(1, accountService.size());
+    }
+
+    @Test
+    void manyAccounts_AllDistinctAndIterable() {
+        // Arrange
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < 700; i++) {
+            String name = name(i);
+            names.add(name);
+            Account account = accountService.createAccount(name);
+            account.deposit(i);
+            accountService.updateAccount(account);
+        }
+
+        // Act
+        Set<String> iterated = new HashSet<>();
+        for (Account account : accountService.getAccounts()) {
+            iterated.add(account.getName());
+        }
+
+        // Assert
+        assertEquals(names, iterated);
+        assertEquals(700, accountService.size());
+        assertEquals(699L, accountService.getAccount(name(699)).getBalanceMinorUnits());
+    }
+
+    @Test
+    void createAccount_StoreFull_ThrowsException() {
+        // Arrange
+        accountService.close();
+        accountService = new MappedAccountServiceImpl(tempDir.resolve("small.db"), 12);
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                accountService.createAccount(name(i));
+            }
+        });
+        assertTrue(exception.getMessage().contains("Account store is full"));
+    }
+
+    @Test
+    void createAccount_InvalidName_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> accountService.createAccount("A1"));
+        assertThrows(IllegalArgumentException.class, () -> accountService.getAccount("ThisNameIsTooLongForTheSystem"));
+    }
+
+
+    @Test
+    void findAccount_DoesNotCreate() {
+        // Arrange
+        accountService.createAccount("Dave");
+
+        // Act & Assert
+        assertNotNull(accountService.findAccount("DAVE"));
+        assertNull(accountService.findAccount("Mallory"));
+        assertNull(accountService.findAccount("M1"));
+        assertEquals(1, accountService.size());
+    }
+}
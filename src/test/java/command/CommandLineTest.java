@@ -0,0 +1,81 @@
+package command;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandLineTest {
+
+    private final CommandLine commandLine = new CommandLine();
+
+    @Test
+    void reset_SplitsOnRunsOfWhitespace() {
+        // Act
+        commandLine.reset("  transfer   Bob\t50 ");
+
+        // Assert
+        assertEquals(3, commandLine.tokenCount());
+        assertEquals("transfer", commandLine.token(0));
+        assertEquals("Bob", commandLine.token(1));
+        assertEquals("50", commandLine.token(2));
+    }
+
+    @Test
+    void reset_BlankLine_HasNoTokens() {
+        // Act & Assert
+        assertEquals(0, commandLine.reset("   ").tokenCount());
+        assertEquals(0, commandLine.reset("").tokenCount());
+    }
+
+    @Test
+    void tokenEqualsIgnoreCase_ComparesInPlace() {
+        // Arrange
+        commandLine.reset("transfer ALICE 5");
+
+        // Act & Assert
+        assertTrue(commandLine.tokenEqualsIgnoreCase(1, "alice"));
+        assertFalse(commandLine.tokenEqualsIgnoreCase(1, "alic"));
+        assertFalse(commandLine.tokenEqualsIgnoreCase(1, null));
+    }
+
+    @Test
+    void amount_PlainDecimals_KeepScale() {
+        // Arrange
+        commandLine.reset("deposit 100 12.50 -5 .5 92233720368547758.07 1.000");
+
+        // Act & Assert
+        assertEquals(new BigDecimal("100"), commandLine.amount(1).toBigDecimal());
+        assertEquals(new BigDecimal("12.50"), commandLine.amount(2).toBigDecimal());
+        assertEquals(new BigDecimal("-5"), commandLine.amount(3).toBigDecimal());
+        assertEquals(new BigDecimal("0.5"), commandLine.amount(4).toBigDecimal());
+        assertEquals(Long.MAX_VALUE, commandLine.amount(5).getMinorUnits());
+        assertEquals(new BigDecimal("1.00"), commandLine.amount(6).toBigDecimal());
+    }
+
+    @Test
+    void amount_TooPreciseOrTooLarge_ThrowsIllegalArgumentException() {
+        // Arrange
+        commandLine.reset("deposit 1.005 92233720368547758.08 99999999999999999999.99");
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> commandLine.amount(1));
+        assertEquals("Amount cannot have more than 2 decimal places\n", exception.getMessage());
+        exception = assertThrows(IllegalArgumentException.class, () -> commandLine.amount(2));
+        assertEquals("Amount is out of range\n", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> commandLine.amount(3));
+    }
+
+    @Test
+    void amount_Malformed_ThrowsNumberFormatException() {
+        // Arrange
+        commandLine.reset("deposit abc 1e3 1.2.3 - 5$");
+
+        // Act & Assert
+        for (int i = 1; i < commandLine.tokenCount(); i++) {
+            int index = i;
+            assertThrows(NumberFormatException.class, () -> commandLine.amount(index));
+        }
+    }
+}
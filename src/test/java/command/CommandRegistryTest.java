@@ -0,0 +1,53 @@
+package command;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandRegistryTest {
+
+    private final CommandRegistry registry = new CommandRegistry();
+    private final CommandLine commandLine = new CommandLine();
+
+    @Test
+    void lookup_RegisteredCommand_ReturnsHandler() {
+        // Arrange
+        List<String> calls = new ArrayList<>();
+        registry.register("deposit", line -> calls.add("deposit " + line.token(1)));
+        registry.register("withdraw", line -> calls.add("withdraw"));
+
+        // Act
+        registry.lookup(commandLine.reset("deposit 10")).handle(commandLine);
+
+        // Assert
+        assertEquals(List.of("deposit 10"), calls);
+    }
+
+    @Test
+    void lookup_UnknownOrBlank_ReturnsNull() {
+        // Arrange
+        registry.register("deposit", line -> { });
+
+        // Act & Assert
+        assertNull(registry.lookup(commandLine.reset("depos 10")));
+        assertNull(registry.lookup(commandLine.reset("deposits 10")));
+        assertNull(registry.lookup(commandLine.reset("")));
+    }
+
+    @Test
+    void register_ManyCommands_AllFound() {
+        // Arrange
+        for (int i = 0; i < 100; i++) {
+            int id = i;
+            registry.register("cmd" + i, line -> assertEquals("cmd" + id, line.token(0)));
+        }
+
+        // Act & Assert
+        for (int i = 0; i < 100; i++) {
+            registry.lookup(commandLine.reset("cmd" + i)).handle(commandLine);
+        }
+    }
+}
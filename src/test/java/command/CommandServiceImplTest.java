@@ -1,6 +1,5 @@
 package command;
 
-import enums.TransferMode;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,14 +7,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import service.BankService;
+import service.TransferLeg;
 import session.SessionService;
+import utils.Amount;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.math.BigDecimal;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -106,6 +109,19 @@ class CommandServiceImplTest {
         verify(bankService).deposit(amount);
     }
 
+    @Test
+    void deposit_Amount_PassesItToBankForCurrentUser() {
+        // Arrange
+        Amount amount = Amount.parse("100");
+        mockLoggedInUser("Alice");
+
+        // Act
+        commandService.deposit(amount);
+
+        // Assert
+        verify(bankService).deposit("Alice", amount);
+    }
+
     @Test
     void deposit_NotLoggedIn_ThrowsException() {
         // Arrange
@@ -178,6 +194,26 @@ class CommandServiceImplTest {
         verify(bankService, never()).withdraw(any());
     }
 
+    // Netting Tests
+    @Test
+    void netDebts_Success() {
+        // Arrange
+        mockLoggedInUser("Alice");
+
+        // Act
+        commandService.netDebts();
+
+        // Assert
+        verify(bankService).netDebts();
+    }
+
+    @Test
+    void netDebts_NotLoggedIn_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> commandService.netDebts());
+        verify(bankService, never()).netDebts();
+    }
+
     // Transfer Tests
     @Test
     void transfer_Success() {
@@ -190,10 +226,32 @@ class CommandServiceImplTest {
         commandService.transfer(target, amount);
 
         // Assert
-        verify(bankService).setTransferMode(TransferMode.PARTIAL_ALLOWED);
         verify(bankService).transfer(target, amount);
     }
 
+    @Test
+    void transfer_Amount_PassesItToBankForCurrentUser() {
+        // Arrange
+        Amount amount = Amount.parse("100");
+        mockLoggedInUser("Alice");
+
+        // Act
+        commandService.transfer("Bob", amount);
+
+        // Assert
+        verify(bankService).transfer("Alice", "Bob", amount);
+    }
+
+    @Test
+    void transfer_NegativeAmountValue_ThrowsException() {
+        // Arrange
+        mockLoggedInUser("Alice");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> commandService.transfer("Bob", Amount.parse("-100")));
+        verify(bankService, never()).transfer(anyString(), anyString(), any(Amount.class));
+    }
+
     @Test
     void transfer_NotLoggedIn_ThrowsException() {
         // Arrange
@@ -237,6 +295,37 @@ class CommandServiceImplTest {
         verify(bankService, never()).transfer(anyString(), any());
     }
 
+    // Batch Transfer Tests
+    @Test
+    void transferBatch_Success() {
+        // Arrange
+        List<TransferLeg> legs = List.of(new TransferLeg("Bob", Amount.parse("10")),
+                new TransferLeg("Carol", Amount.parse("20")));
+        mockLoggedInUser("Alice");
+
+        // Act
+        commandService.transferBatch(legs);
+
+        // Assert
+        verify(bankService).transferBatch(legs);
+    }
+
+    @Test
+    void transferBatch_InvalidTargetName_ThrowsBeforeAnyLeg() {
+        // Arrange
+        mockLoggedInUser("Alice");
+        List<TransferLeg> legs = List.of(new TransferLeg("Bob", Amount.parse("10")),
+                new TransferLeg("C4rol", Amount.parse("20")));
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> commandService.transferBatch(legs)
+        );
+        assertTrue(exception.getMessage().contains("Account name must be"));
+        verify(bankService, never()).transferBatch(anyList());
+    }
+
     // Logout Tests
     @Test
     void logout_Success() {
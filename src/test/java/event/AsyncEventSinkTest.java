@@ -0,0 +1,59 @@
+package event;
+
+import org.junit.jupiter.api.Test;
+import utils.Amount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncEventSinkTest {
+
+    @Test
+    void flush_DeliversEventsInOrder() {
+        // Arrange
+        RecordingSink delegate = new RecordingSink();
+        AsyncEventSink sink = new AsyncEventSink(delegate, 4);
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            sink.balance(Amount.ofMinorUnits(i * 100L, 0));
+        }
+        sink.flush();
+
+        // Assert
+        assertEquals(100, delegate.lines.size());
+        assertEquals("Your balance is $0", delegate.lines.get(0));
+        assertEquals("Your balance is $99", delegate.lines.get(99));
+        sink.close();
+    }
+
+    @Test
+    void close_RethrowsDelegateFailure() {
+        // Arrange
+        RecordingSink delegate = new RecordingSink() {
+            @Override
+            public synchronized void greeted(String name) {
+                throw new IllegalStateException("Disk full\n");
+            }
+        };
+        AsyncEventSink sink = new AsyncEventSink(delegate, 4);
+        sink.greeted("alice");
+        sink.commandCompleted();
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class, sink::close);
+        assertEquals("Disk full\n", exception.getMessage());
+        assertEquals(List.of(""), delegate.lines);
+    }
+
+    private static class RecordingSink extends TextEventSink {
+        private final List<String> lines = new ArrayList<>();
+
+        @Override
+        protected void writeLine(CharSequence line) {
+            lines.add(line.toString());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.Amount;
+import utils.NameCodec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileEventSinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void events_RenderedAsCliLines() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("out.txt");
+
+        // Act
+        try (FileEventSink sink = new FileEventSink(file)) {
+            sink.greeted("Alice");
+            sink.balance(Amount.parse("30"));
+            sink.transferred(Amount.parse("70"), "bob");
+            sink.owedTo(NameCodec.high("bob"), NameCodec.low("bob"), Amount.parse("10"));
+            sink.owedFrom(NameCodec.high("carol"), NameCodec.low("carol"), Amount.parse("5.50"));
+            sink.commandCompleted();
+        }
+
+        // Assert
+        assertEquals(List.of("Hello, Alice!", "Your balance is $30", "Transferred $70 to bob",
+                "Owed $10 to bob", "Owed $5.50 from carol", ""), Files.readAllLines(file));
+    }
+
+    @Test
+    void flush_WritesBufferedLines() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("out.txt");
+        FileEventSink sink = new FileEventSink(file);
+        sink.insufficientFunds(Amount.ZERO);
+
+        // Act
+        long before = Files.size(file);
+        sink.flush();
+
+        // Assert
+        assertEquals(0, before);
+        assertEquals(List.of("Insufficient funds. Your balance is $0"), Files.readAllLines(file));
+        sink.close();
+    }
+}
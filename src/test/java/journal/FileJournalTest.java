@@ -0,0 +1,225 @@
+package journal;
+
+import account.AccountServiceImpl;
+import enums.JournalOperation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import service.BankServiceImpl;
+import service.TransferLeg;
+import session.SessionServiceImpl;
+import utils.Amount;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path journalPath;
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void setUp() {
+        journalPath = tempDir.resolve("journal");
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void appendSyncReplay_RoundTripsRecords() {
+        // Arrange
+        JournalRecord deposit = JournalRecord.deposit("alice", Amount.parse("100"), Amount.parse("100"));
+        JournalRecord transfer = JournalRecord.transfer("alice", "bob", Amount.parse("25.50"),
+                Amount.parse("74.50"), Amount.parse("25.50"));
+        JournalRecord debt = JournalRecord.debt("alice", "bob", Amount.parse("10"));
+
+        // Act
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            journal.append(deposit);
+            journal.append(transfer);
+            journal.append(debt);
+            journal.sync();
+        }
+        List<JournalRecord> replayed = replayAll();
+
+        // Assert
+        assertEquals(List.of(deposit, transfer, debt), replayed);
+    }
+
+    @Test
+    void replay_TornTail_DropsPartialRecordAndKeepsAppending() throws IOException {
+        // Arrange
+        JournalRecord first = JournalRecord.deposit("alice", Amount.parse("10"), Amount.parse("10"));
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            journal.append(first);
+            journal.sync();
+        }
+        Path segment = journalPath.resolve("segment-0000000000000000000.journal");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2}));
+        }
+
+        // Act
+        JournalRecord second = JournalRecord.withdraw("alice", Amount.parse("1"), Amount.parse("9"));
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            journal.replay(record -> { });
+            journal.append(second);
+            journal.sync();
+        }
+
+        // Assert
+        assertEquals(List.of(first, second), replayAll());
+    }
+
+    @Test
+    void rotate_ReplayFromSegment_SkipsEarlierSegments() {
+        // Arrange
+        JournalRecord before = JournalRecord.deposit("alice", Amount.parse("10"), Amount.parse("10"));
+        JournalRecord after = JournalRecord.deposit("bob", Amount.parse("1"), Amount.parse("1"));
+        long segment;
+
+        // Act
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            journal.append(before);
+            segment = journal.rotate();
+            journal.append(after);
+        }
+        List<JournalRecord> tail = new ArrayList<>();
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            journal.replay(segment, tail::add);
+        }
+
+        // Assert
+        assertEquals(1, segment);
+        assertEquals(List.of(after), tail);
+        assertEquals(List.of(before, after), replayAll());
+    }
+
+    @Test
+    void sync_ConcurrentWriters_AllRecordsDurable() throws Exception {
+        // Arrange
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Act
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(JournalRecord.deposit("alice", Amount.parse("1"), Amount.parse("1")));
+                        journal.sync();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        assertEquals(threads * perThread, replayAll().size());
+    }
+
+    @Test
+    void recover_RebuildsBalancesAndDebts() {
+        // Arrange
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            SessionServiceImpl sessionService = new SessionServiceImpl();
+            BankServiceImpl bankService = new BankServiceImpl(new AccountServiceImpl(), sessionService, journal);
+            bankService.createAccount("alice");
+            sessionService.login("alice");
+            bankService.deposit(new BigDecimal("30"));
+            bankService.transfer("bob", new BigDecimal("50"));
+            sessionService.login("bob");
+            bankService.withdraw(new BigDecimal("5"));
+        }
+
+        // Act
+        AccountServiceImpl accountService = new AccountServiceImpl();
+        SessionServiceImpl sessionService = new SessionServiceImpl();
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            BankServiceImpl bankService = new BankServiceImpl(accountService, sessionService, journal);
+            bankService.recover();
+
+            // Assert
+            assertEquals(BigDecimal.ZERO, accountService.getAccount("alice").getBalance());
+            assertEquals(new BigDecimal("25"), accountService.getAccount("bob").getBalance());
+
+            // The recovered debt of $20 is repaid from the next deposit
+            sessionService.login("alice");
+            bankService.deposit(new BigDecimal("20"));
+            assertEquals(BigDecimal.ZERO, accountService.getAccount("alice").getBalance());
+            assertEquals(new BigDecimal("45"), accountService.getAccount("bob").getBalance());
+        }
+    }
+
+    @Test
+    void transferBatch_JournaledAsOneRecord_Recovers() {
+        // Arrange
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            SessionServiceImpl sessionService = new SessionServiceImpl();
+            BankServiceImpl bankService = new BankServiceImpl(new AccountServiceImpl(), sessionService, journal);
+            bankService.createAccount("alice");
+            sessionService.login("alice");
+            bankService.deposit(new BigDecimal("30"));
+
+            // Act
+            bankService.transferBatch(List.of(new TransferLeg("bob", Amount.parse("10")),
+                    new TransferLeg("carol", Amount.parse("25"))));
+        }
+        List<JournalRecord> records = replayAll();
+        AccountServiceImpl accountService = new AccountServiceImpl();
+        SessionServiceImpl sessionService = new SessionServiceImpl();
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            BankServiceImpl bankService = new BankServiceImpl(accountService, sessionService, journal);
+            bankService.recover();
+
+            // Assert
+            assertEquals(2, records.size());
+            assertEquals(JournalOperation.BATCH, records.get(1).getOperation());
+            assertEquals(3, records.get(1).getEntries().size());
+            assertEquals(0, accountService.getAccount("alice").getBalance().signum());
+            assertEquals(0, accountService.getAccount("bob").getBalance().compareTo(BigDecimal.TEN));
+            assertEquals(0, accountService.getAccount("carol").getBalance().compareTo(new BigDecimal("20")));
+
+            // The recovered debt of $5 to carol is repaid from the next deposit
+            sessionService.login("alice");
+            bankService.deposit(new BigDecimal("5"));
+            assertEquals(0, accountService.getAccount("carol").getBalance().compareTo(new BigDecimal("25")));
+        }
+    }
+
+    private List<JournalRecord> replayAll() {
+        List<JournalRecord> records = new ArrayList<>();
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            journal.replay(records::add);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,137 @@
+package journal;
+
+import account.AccountServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import service.BankServiceImpl;
+import session.SessionServiceImpl;
+import utils.Amount;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PrintStream originalOut;
+    private ByteArrayOutputStream outputStream;
+
+    @BeforeEach
+    void setUp() {
+        originalOut = System.out;
+        outputStream = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outputStream));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void writeAndLoad_RoundTripsBalancesAndDebts() {
+        // Arrange
+        Snapshot snapshot = new Snapshot(3,
+                Map.of("alice", Amount.parse("10.50"), "bob", Amount.ZERO),
+                Map.of("bob", Map.of("alice", Amount.parse("7"))));
+
+        // Act
+        Optional<Snapshot> loaded;
+        try (FileJournal journal = new FileJournal(tempDir); SnapshotStore store = new SnapshotStore(tempDir, journal)) {
+            store.write(snapshot);
+            loaded = store.loadLatest();
+        }
+
+        // Assert
+        assertTrue(loaded.isPresent());
+        assertEquals(3, loaded.get().getJournalSegment());
+        assertEquals(snapshot.getBalances(), loaded.get().getBalances());
+        assertEquals(snapshot.getOwedAmounts(), loaded.get().getOwedAmounts());
+    }
+
+    @Test
+    void loadLatest_NoSnapshot_ReturnsEmpty() {
+        try (FileJournal journal = new FileJournal(tempDir); SnapshotStore store = new SnapshotStore(tempDir, journal)) {
+            assertFalse(store.loadLatest().isPresent());
+        }
+    }
+
+    @Test
+    void loadLatest_UnreadableSnapshot_SkipsItAndReportsFailure() throws IOException {
+        // Arrange
+        Files.write(tempDir.resolve(String.format("snapshot-%019d.bin", 4)), new byte[]{1, 2, 3});
+
+        try (FileJournal journal = new FileJournal(tempDir); SnapshotStore store = new SnapshotStore(tempDir, journal)) {
+            // Act
+            Optional<Snapshot> loaded = store.loadLatest();
+
+            // Assert
+            assertFalse(loaded.isPresent());
+            assertTrue(store.getFailure().isPresent());
+            assertTrue(store.getFailure().get().getMessage().contains("Skipped unreadable snapshot"));
+
+            store.write(new Snapshot(5, Map.of(), Map.of()));
+            assertFalse(store.getFailure().isPresent());
+        }
+    }
+
+    @Test
+    void takeSnapshot_CompactsJournalAndRecoversFromTail() throws IOException {
+        // Arrange
+        try (FileJournal journal = new FileJournal(tempDir); SnapshotStore store = new SnapshotStore(tempDir, journal)) {
+            SessionServiceImpl sessionService = new SessionServiceImpl();
+            BankServiceImpl bankService = new BankServiceImpl(new AccountServiceImpl(), sessionService, journal);
+            bankService.enableSnapshots(store, Long.MAX_VALUE);
+            bankService.createAccount("alice");
+            sessionService.login("alice");
+            bankService.deposit(new BigDecimal("30"));
+            bankService.transfer("bob", new BigDecimal("50"));
+
+            // Act
+            bankService.takeSnapshot();
+            store.close();
+            sessionService.login("bob");
+            bankService.withdraw(new BigDecimal("5"));
+        }
+
+        // Assert
+        assertEquals(1, countFiles("segment-"));
+        assertEquals(1, countFiles("snapshot-"));
+
+        AccountServiceImpl accountService = new AccountServiceImpl();
+        SessionServiceImpl sessionService = new SessionServiceImpl();
+        try (FileJournal journal = new FileJournal(tempDir); SnapshotStore store = new SnapshotStore(tempDir, journal)) {
+            BankServiceImpl bankService = new BankServiceImpl(accountService, sessionService, journal);
+            bankService.enableSnapshots(store, Long.MAX_VALUE);
+            bankService.recover();
+
+            assertEquals(BigDecimal.ZERO, accountService.getAccount("alice").getBalance());
+            assertEquals(new BigDecimal("25"), accountService.getAccount("bob").getBalance());
+            assertTrue(outputStream.toString().contains("Recovered 2 accounts from snapshot and 1 journal records"));
+
+            // The $20 debt came from the snapshot and is repaid from the next deposit
+            sessionService.login("alice");
+            bankService.deposit(new BigDecimal("20"));
+            assertEquals(new BigDecimal("45"), accountService.getAccount("bob").getBalance());
+        }
+    }
+
+    private long countFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package server;
+
+import account.ConcurrentAccountServiceImpl;
+import event.ScopedEventSink;
+import journal.NoopJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.BankServiceImpl;
+import session.ScopedSessionService;
+import utils.NameCodec;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AtmServerTest {
+
+    private AtmServer server;
+    private Thread serverThread;
+
+    @BeforeEach
+    void setUp() {
+        ScopedSessionService sessions = new ScopedSessionService();
+        ScopedEventSink events = new ScopedEventSink();
+        BankServiceImpl bankService = new BankServiceImpl(new ConcurrentAccountServiceImpl(), sessions,
+                new NoopJournal(), events);
+        server = new AtmServer(bankService, sessions, events,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        serverThread = new Thread(server, "atm-server-test");
+        serverThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.close();
+        serverThread.join(5_000);
+    }
+
+    @Test
+    void connect_SendsWelcome() throws IOException {
+        // Arrange & Act
+        try (AtmClient client = new AtmClient(server.getPort())) {
+            String welcome = client.readUntil("Please type command!");
+
+            // Assert
+            assertTrue(welcome.startsWith("Welcome to ATM CLI"));
+        }
+    }
+
+    @Test
+    void sessions_AreIndependentPerConnection() throws IOException {
+        // Arrange
+        try (AtmClient alice = new AtmClient(server.getPort());
+             AtmClient bob = new AtmClient(server.getPort())) {
+            alice.readUntil("Please type command!");
+            bob.readUntil("Please type command!");
+
+            // Act
+            alice.send("login alice");
+            bob.send("login bob");
+            String aliceLogin = alice.readUntil("Your balance is $");
+            String bobLogin = bob.readUntil("Your balance is $");
+            alice.send("deposit 100");
+            alice.readUntil("Your balance is $100");
+            alice.send("transfer bob 30");
+            String transfer = alice.readUntil("Your balance is $");
+            bob.send("deposit 5");
+            String bobDeposit = bob.readUntil("Your balance is $");
+
+            // Assert
+            assertTrue(aliceLogin.contains("Hello, alice!"));
+            assertTrue(bobLogin.contains("Hello, bob!"));
+            assertTrue(transfer.contains("Transferred $30 to bob"));
+            assertTrue(transfer.contains("Your balance is $70"));
+            assertTrue(bobDeposit.contains("Your balance is $35"));
+        }
+    }
+
+    @Test
+    void errors_GoToTheIssuingConnection() throws IOException {
+        // Arrange
+        try (AtmClient client = new AtmClient(server.getPort())) {
+            client.readUntil("Please type command!");
+
+            // Act
+            client.send("deposit 10");
+            String error = client.readUntil("Error");
+            client.send("bogus");
+            String invalid = client.readUntil("Invalid command");
+
+            // Assert
+            assertTrue(error.contains("Error: No user logged in"));
+            assertTrue(invalid.contains("Invalid command"));
+        }
+    }
+
+    @Test
+    void exit_ClosesConnection() throws IOException {
+        // Arrange
+        try (AtmClient client = new AtmClient(server.getPort())) {
+            client.readUntil("Please type command!");
+
+            // Act
+            client.send("exit");
+
+            // Assert
+            String line = client.readLine();
+            while (line != null && line.isEmpty()) {
+                line = client.readLine();
+            }
+            assertNull(line);
+        }
+    }
+
+    @Test
+    void manyConnections_EachServed() throws IOException {
+        // Arrange
+        List<AtmClient> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                clients.add(new AtmClient(server.getPort()));
+            }
+
+            // Act
+            for (int i = 0; i < clients.size(); i++) {
+                clients.get(i).send("login user" + name(i));
+            }
+
+            // Assert
+            for (int i = 0; i < clients.size(); i++) {
+                assertTrue(clients.get(i).readUntil("Hello, ").contains("Hello, user" + name(i) + "!"));
+            }
+        } finally {
+            for (AtmClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    private static String name(int i) {
+        return String.valueOf((char) ('a' + i % 26)) + (char) ('a' + i / 26);
+    }
+
+    @Test
+    void command_WaitingForJournal_DoesNotHoldUpOtherConnections() throws Exception {
+        // Arrange
+        CountDownLatch synced = new CountDownLatch(1);
+        ScopedSessionService sessions = new ScopedSessionService();
+        ScopedEventSink events = new ScopedEventSink();
+        NoopJournal slowJournal = new NoopJournal() {
+            @Override
+            public void sync() {
+                try {
+                    synced.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        BankServiceImpl bankService = new BankServiceImpl(new ConcurrentAccountServiceImpl(), sessions, slowJournal, events);
+        AtmServer slow = new AtmServer(bankService, sessions, events,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        Thread slowThread = new Thread(slow, "atm-server-slow-journal-test");
+        slowThread.start();
+
+        try (AtmClient waiting = new AtmClient(slow.getPort());
+             AtmClient other = new AtmClient(slow.getPort())) {
+            waiting.readUntil("Please type command!");
+            other.readUntil("Please type command!");
+            waiting.send("login peggy");
+            waiting.readUntil("Your balance is $");
+
+            // Act
+            waiting.send("deposit 5");
+            other.send("login trent");
+            String otherLogin = other.readUntil("Your balance is $");
+            synced.countDown();
+            String deposit = waiting.readUntil("Your balance is $5");
+
+            // Assert
+            assertTrue(otherLogin.contains("Hello, trent!"));
+            assertTrue(deposit.contains("Your balance is $5"));
+        } finally {
+            synced.countDown();
+            slow.close();
+            slowThread.join(5_000);
+        }
+    }
+
+    @Test
+    void pipelined_AnswersEachTagInSessionOrder() throws IOException {
+        // Arrange
+        try (AtmClient client = new AtmClient(server.getPort())) {
+            client.readUntil("Please type command!");
+
+            // Act
+            client.send("#1 a login carol\n#2 b login dave\n#3 a deposit 10\n#4 a transfer dave 4\n"
+                    + "#5 b deposit abc\n#6 b exit\n#7 b deposit 1");
+            Map<String, List<String>> answers = client.readAnswers(7);
+
+            // Assert
+            assertEquals(List.of("Hello, carol!", "Your balance is $0"), answers.get("#1"));
+            assertEquals(List.of("Your balance is $10"), answers.get("#3"));
+            assertEquals(List.of("Transferred $4 to dave", "Your balance is $6"), answers.get("#4"));
+            assertEquals(List.of("Error: Invalid amount format"), answers.get("#5"));
+            assertEquals(List.of(), answers.get("#6"));
+            assertEquals(List.of("Error: No user logged in"), answers.get("#7"));
+        }
+    }
+
+    @Test
+    void pipelined_TooManySessions_RefusedUntilOneEnds() throws IOException {
+        // Arrange
+        try (AtmClient client = new AtmClient(server.getPort())) {
+            client.readUntil("Please type command!");
+            StringBuilder commands = new StringBuilder();
+            for (int i = 0; i < 256; i++) {
+                commands.append("#").append(i).append(" s").append(i).append(" deposit 1\n");
+            }
+            client.send(commands.toString().trim());
+            client.readAnswers(256);
+
+            // Act
+            client.send("#refused extra deposit 1\n#end s0 logout\n#accepted extra deposit 1");
+            Map<String, List<String>> answers = client.readAnswers(3);
+
+            // Assert
+            assertTrue(answers.get("#refused").get(0).startsWith("Error: A connection keeps at most 256 sessions"));
+            assertEquals(List.of("Error: No user logged in"), answers.get("#accepted"));
+        }
+    }
+
+    @Test
+    void pipelined_MalformedLine_PrintsUsage() throws IOException {
+        // Arrange
+        try (AtmClient client = new AtmClient(server.getPort())) {
+            client.readUntil("Please type command!");
+
+            // Act
+            client.send("#1 deposit");
+            String error = client.readUntil("Error:");
+
+            // Assert
+            assertTrue(error.contains("Error: Tagged commands look like #<tag> <session> <command>"));
+        }
+    }
+
+    @Test
+    void pipelined_WithWorkers_KeepsOrderWithinEachSession() throws Exception {
+        // Arrange
+        ScopedSessionService sessions = new ScopedSessionService();
+        ScopedEventSink events = new ScopedEventSink();
+        BankServiceImpl bankService = new BankServiceImpl(new ConcurrentAccountServiceImpl(), sessions, new NoopJournal(), events);
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        AtmServer pipelined = new AtmServer(bankService, sessions, events,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), workers);
+        Thread pipelinedThread = new Thread(pipelined, "atm-server-pipelined-test");
+        pipelinedThread.start();
+        String[] names = {"erin", "frank", "grace", "heidi", "ivan", "judy", "mallory", "oscar"};
+        int deposits = 100;
+
+        try (AtmClient client = new AtmClient(pipelined.getPort())) {
+            client.readUntil("Please type command!");
+            StringBuilder commands = new StringBuilder();
+            for (String name : names) {
+                commands.append("#").append(name).append("-0 ").append(name).append(" login ").append(name).append('\n');
+            }
+            for (int n = 1; n <= deposits; n++) {
+                for (String name : names) {
+                    commands.append("#").append(name).append('-').append(n).append(' ')
+                            .append(name).append(" deposit 1\n");
+                }
+            }
+
+            // Act
+            client.send(commands.toString().trim());
+            Map<String, List<String>> answers = client.readAnswers(names.length * (deposits + 1));
+
+            // Assert
+            for (String name : names) {
+                for (int n = 1; n <= deposits; n++) {
+                    assertEquals(List.of("Your balance is $" + n), answers.get("#" + name + "-" + n));
+                }
+            }
+        } finally {
+            pipelined.close();
+            pipelinedThread.join(5_000);
+            workers.shutdown();
+        }
+    }
+
+    @Test
+    void binary_RunsCommandsFromFrames() throws IOException {
+        // Arrange
+        try (BinaryAtmClient client = new BinaryAtmClient(server.getPort())) {
+            // Act
+            List<ByteBuffer> login = client.request(BinaryProtocol.login("walter"));
+            List<ByteBuffer> deposit = client.request(BinaryProtocol.deposit(1_050));
+            List<ByteBuffer> transfer = client.request(BinaryProtocol.transfer("peggy", 2_000));
+            List<ByteBuffer> logout = client.request(BinaryProtocol.logout());
+
+            // Assert
+            assertEquals(BinaryProtocol.GREETED, login.get(0).get());
+            assertEquals(NameCodec.high("walter"), login.get(0).getLong());
+            assertEquals(BinaryProtocol.BALANCE, deposit.get(0).get());
+            assertEquals(1_050, deposit.get(0).getLong());
+            assertEquals(BinaryProtocol.TRANSFERRED, transfer.get(0).get());
+            assertEquals(1_050, transfer.get(0).getLong());
+            assertEquals(NameCodec.high("peggy"), transfer.get(0).getLong());
+            assertEquals(BinaryProtocol.OWED_TO, transfer.get(2).get());
+            assertEquals(950, transfer.get(2).getLong());
+            assertEquals(BinaryProtocol.GOODBYE, logout.get(0).get());
+        }
+    }
+
+    @Test
+    void binary_SharesBankWithTextClients() throws IOException {
+        // Arrange
+        try (BinaryAtmClient binary = new BinaryAtmClient(server.getPort());
+             AtmClient text = new AtmClient(server.getPort())) {
+            text.readUntil("Please type command!");
+            binary.request(BinaryProtocol.login("victor"));
+            binary.request(BinaryProtocol.deposit(1_250));
+
+            // Act
+            binary.request(BinaryProtocol.transfer("trent", 250));
+            text.send("login trent");
+            String login = text.readUntil("Your balance is $");
+
+            // Assert
+            assertTrue(login.contains("Your balance is $2.5"));
+        }
+    }
+
+    @Test
+    void binary_BadRequest_AnswersError() throws IOException {
+        // Arrange
+        try (BinaryAtmClient client = new BinaryAtmClient(server.getPort())) {
+            // Act
+            List<ByteBuffer> deposit = client.request(BinaryProtocol.deposit(100));
+            List<ByteBuffer> unknown = client.request(new byte[]{0, 1, 0x7F});
+
+            // Assert
+            assertEquals(BinaryProtocol.ERROR, deposit.get(0).get());
+            assertEquals("No user logged in", new String(deposit.get(0).array(), 1, deposit.get(0).remaining()));
+            assertEquals(BinaryProtocol.ERROR, unknown.get(0).get());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package server;
+
+import command.CommandLine;
+import event.PrintStreamEventSink;
+import utils.Amount;
+import utils.NameCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures what one message costs to decode and encode in the text and the binary protocol: a
+ * {@code transfer} request in, a balance result out. Only the codecs run, not the bank. Not a unit
+ * test; run it with
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes server.CodecBenchmark [messages]
+ * </pre>
+ */
+public class CodecBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    // Keeps the JIT from discarding the decoded values
+    private static long sink;
+
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        for (int round = 1; round <= ROUNDS; round++) {
+            boolean last = round == ROUNDS;
+            report(last, "text decode", messages, decodeText(messages));
+            report(last, "binary decode", messages, decodeBinary(messages));
+            report(last, "text encode", messages, encodeText(messages));
+            report(last, "binary encode", messages, encodeBinary(messages));
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static long decodeText(int messages) {
+        CommandLine line = new CommandLine();
+        String request = "transfer bob 12.50";
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            line.reset(request);
+            String target = line.token(1);
+            Amount amount = line.amount(2);
+            sink += target.length() + amount.getMinorUnits();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long decodeBinary(int messages) {
+        ByteBuffer frame = ByteBuffer.wrap(BinaryProtocol.transfer("bob", 1_250));
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            frame.position(BinaryProtocol.HEADER_SIZE);
+            byte type = frame.get();
+            long high = frame.getLong();
+            long low = frame.getLong();
+            long amount = frame.getLong();
+            if (!NameCodec.isValid(high, low)) {
+                throw new IllegalStateException();
+            }
+            sink += type + high + low + amount;
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long encodeText(int messages) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStreamEventSink events = new PrintStreamEventSink(new PrintStream(output, false, StandardCharsets.UTF_8));
+        Amount balance = Amount.parse("87.50");
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            events.balance(balance);
+            sink += output.size();
+            output.reset();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long encodeBinary(int messages) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryEventSink events = new BinaryEventSink(output);
+        Amount balance = Amount.parse("87.50");
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            events.balance(balance);
+            sink += output.size();
+            output.reset();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(boolean last, String label, int messages, long elapsedNanos) {
+        if (last) {
+            System.out.printf("%-14s %6.1f ns/message%n", label, (double) elapsedNanos / messages);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package server;
+
+import account.ConcurrentAccountServiceImpl;
+import event.ScopedEventSink;
+import journal.NoopJournal;
+import service.BankServiceImpl;
+import session.ScopedSessionService;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static utils.TestNames.letters;
+
+/**
+ * Compares {@link ThreadPerSessionAtmServer} on virtual threads with a fixed platform pool: opens
+ * many idle terminals, then drives a few active ones and reports throughput, p99 latency and the
+ * number of platform threads the server needed. Not a unit test; run it with
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes server.SessionExecutorBenchmark [idle] [active] [commandsPerSession] [poolSize]
+ * </pre>
+ * The virtual-thread run is skipped on Java 17. A fixed pool holds one thread per open session, so
+ * the pool must be larger than {@code idle + active} or the active terminals never get served.
+ */
+public class SessionExecutorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int idle = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int active = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int commands = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int poolSize = args.length > 3 ? Integer.parseInt(args[3]) : idle + active;
+
+        run("platform pool (" + poolSize + ")", SessionExecutors.platformPool(poolSize), idle, active, commands);
+        if (SessionExecutors.virtualThreadsAvailable()) {
+            run("virtual threads", SessionExecutors.virtualThreadPerSession(), idle, active, commands);
+        } else {
+            System.out.println("virtual threads: skipped, needs Java 21 or later");
+        }
+    }
+
+    private static void run(String label, ExecutorService executor, int idle, int active, int commands)
+            throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        ScopedSessionService sessions = new ScopedSessionService();
+        ScopedEventSink events = new ScopedEventSink();
+        BankServiceImpl bankService = new BankServiceImpl(new ConcurrentAccountServiceImpl(), sessions, new NoopJournal(), events);
+        try (ThreadPerSessionAtmServer server = new ThreadPerSessionAtmServer(bankService,
+                sessions, events, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), executor)) {
+            Thread serverThread = new Thread(server, "benchmark-server");
+            serverThread.start();
+
+            List<AtmClient> idleClients = new ArrayList<>(idle);
+            for (int i = 0; i < idle; i++) {
+                AtmClient client = new AtmClient(server.getPort());
+                client.readUntil("Please type command!");
+                idleClients.add(client);
+            }
+
+            long[] latencies = new long[active * commands];
+            CountDownLatch done = new CountDownLatch(active);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < active; i++) {
+                int first = i * commands;
+                String name = "bench" + letters(i);
+                Thread driver = new Thread(() -> {
+                    try (AtmClient client = new AtmClient(server.getPort())) {
+                        client.readUntil("Please type command!");
+                        client.send("login " + name);
+                        client.readUntil("Your balance is $");
+                        for (int n = 0; n < commands; n++) {
+                            long sent = System.nanoTime();
+                            client.send("deposit 1");
+                            client.readUntil("Your balance is $");
+                            latencies[first + n] = System.nanoTime() - sent;
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+                driver.start();
+            }
+            done.await();
+            long elapsed = System.nanoTime() - start;
+            int peakThreads = threads.getPeakThreadCount();
+
+            for (AtmClient client : idleClients) {
+                client.close();
+            }
+            if (failure.get() != null) {
+                throw new IllegalStateException(label + " failed\n", failure.get());
+            }
+
+            Arrays.sort(latencies);
+            System.out.printf("%s: %d idle + %d active sessions, %.0f commands/sec, p50 %d us, p99 %d us, "
+                            + "peak %d threads (%d before)%n",
+                    label, idle, active, latencies.length * 1e9 / elapsed,
+                    latencies[latencies.length / 2] / 1_000, latencies[(int) (latencies.length * 0.99)] / 1_000,
+                    peakThreads, threadsBefore);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package server;
+
+import account.ConcurrentAccountServiceImpl;
+import event.ScopedEventSink;
+import journal.NoopJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import service.BankServiceImpl;
+import session.ScopedSessionService;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThreadPerSessionAtmServerTest {
+
+    private ThreadPerSessionAtmServer server;
+    private Thread serverThread;
+
+    private void startServer(ExecutorService executor) {
+        ScopedSessionService sessions = new ScopedSessionService();
+        ScopedEventSink events = new ScopedEventSink();
+        BankServiceImpl bankService = new BankServiceImpl(new ConcurrentAccountServiceImpl(), sessions, new NoopJournal(), events);
+        server = new ThreadPerSessionAtmServer(bankService, sessions, events,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), executor);
+        serverThread = new Thread(server, "atm-server-test");
+        serverThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        server.close();
+        serverThread.join(5_000);
+    }
+
+    @Test
+    void platformPool_ConcurrentSessionsShareOneBank() throws Exception {
+        // Arrange
+        startServer(SessionExecutors.platformPool(16));
+        List<Thread> depositors = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            String name = "user" + (char) ('a' + i);
+            Thread depositor = new Thread(() -> {
+                try (AtmClient client = new AtmClient(server.getPort())) {
+                    client.readUntil("Please type command!");
+                    client.send("login " + name);
+                    client.readUntil("Your balance is $");
+                    for (int n = 0; n < 50; n++) {
+                        client.send("deposit 1");
+                        client.readUntil("Your balance is $");
+                        client.send("transfer pot 1");
+                        client.readUntil("Transferred $1 to pot");
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            depositors.add(depositor);
+            depositor.start();
+        }
+        for (Thread depositor : depositors) {
+            depositor.join();
+        }
+
+        // Assert
+        assertEquals(List.of(), failures);
+        try (AtmClient pot = new AtmClient(server.getPort())) {
+            pot.readUntil("Please type command!");
+            pot.send("login pot");
+            assertTrue(pot.readUntil("Your balance is $").contains("Your balance is $400"));
+        }
+    }
+
+    @Test
+    void virtualThreads_UnavailableBeforeJava21_FailsClearly() {
+        // Arrange
+        startServer(SessionExecutors.platformPool(1));
+        if (SessionExecutors.virtualThreadsAvailable()) {
+            // Act & Assert
+            SessionExecutors.virtualThreadPerSession().shutdown();
+            return;
+        }
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                SessionExecutors::virtualThreadPerSession);
+        assertEquals("Virtual threads need Java 21 or later\n", exception.getMessage());
+    }
+}
@@ -2,7 +2,10 @@ package service;
 
 import account.Account;
 import account.AccountService;
-import enums.TransferMode;
+import account.ConcurrentAccountServiceImpl;
+import enums.TransferOutcome;
+import event.NoopEventSink;
+import journal.NoopJournal;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,10 +13,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import session.SessionService;
+import utils.Amount;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -50,7 +60,7 @@ class BankServiceImplTest {
         // Arrange
         String name = "Alice";
         when(accountService.createAccount(name)).thenReturn(sourceAccount);
-        when(sourceAccount.getBalance()).thenReturn(BigDecimal.ZERO);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.ZERO);
 
         // Act
         bankService.createAccount(name);
@@ -60,6 +70,19 @@ class BankServiceImplTest {
         assertTrue(outputStream.toString().contains("Hello, Alice!"));
     }
 
+    @Test
+    void createAccount_NoopSink_SkipsBalanceLookup() {
+        // Arrange
+        BankServiceImpl quiet = new BankServiceImpl(accountService, sessionService, new NoopJournal(), new NoopEventSink());
+        when(accountService.createAccount("Alice")).thenReturn(sourceAccount);
+
+        // Act
+        quiet.createAccount("Alice");
+
+        // Assert
+        verify(sourceAccount, never()).getBalanceAmount();
+    }
+
     @Test
     void createAccount_InvalidName_ThrowsException() {
         // Arrange
@@ -81,17 +104,32 @@ class BankServiceImplTest {
         String currentUser = "alice";
         BigDecimal amount = new BigDecimal("100");
         when(sessionService.getCurrentUser()).thenReturn(currentUser);
-        when(accountService.getAccount(currentUser)).thenReturn(sourceAccount);
-        when(sourceAccount.getBalance()).thenReturn(amount);
+        when(accountService.findAccount(currentUser)).thenReturn(sourceAccount);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.of(amount));
 
         // Act
         bankService.deposit(amount);
 
         // Assert
-        verify(sourceAccount).deposit(amount);
+        verify(sourceAccount).deposit(Amount.of(amount));
         verify(accountService).updateAccount(sourceAccount);
     }
 
+    @Test
+    void deposit_UnknownAccount_ThrowsWithoutCreating() {
+        // Arrange
+        when(sessionService.getCurrentUser()).thenReturn("ghost");
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> bankService.deposit(new BigDecimal("100"))
+        );
+        assertTrue(exception.getMessage().contains("does not exist"));
+        verify(accountService, never()).getAccount(any());
+        verify(accountService, never()).createAccount(any());
+    }
+
     // Withdraw Tests
     @Test
     void withdraw_Success() {
@@ -99,17 +137,33 @@ class BankServiceImplTest {
         String currentUser = "alice";
         BigDecimal amount = new BigDecimal("50");
         when(sessionService.getCurrentUser()).thenReturn(currentUser);
-        when(accountService.getAccount(currentUser)).thenReturn(sourceAccount);
-        when(sourceAccount.getBalance()).thenReturn(new BigDecimal("50"));
+        when(accountService.findAccount(currentUser)).thenReturn(sourceAccount);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.parse("50"));
 
         // Act
         bankService.withdraw(amount);
 
         // Assert
-        verify(sourceAccount).withdraw(amount);
+        verify(sourceAccount).withdraw(Amount.of(amount));
         verify(accountService).updateAccount(sourceAccount);
     }
 
+    @Test
+    void deposit_ExplicitAccount_DoesNotUseSession() {
+        // Arrange
+        BigDecimal amount = new BigDecimal("100");
+        when(accountService.findAccount("bob")).thenReturn(targetAccount);
+        when(targetAccount.getBalanceAmount()).thenReturn(Amount.of(amount));
+
+        // Act
+        bankService.deposit("bob", Amount.of(amount));
+
+        // Assert
+        verify(targetAccount).deposit(Amount.of(amount));
+        verify(accountService).updateAccount(targetAccount);
+        verifyNoInteractions(sessionService);
+    }
+
     // Transfer Tests
     @Test
     void transfer_FullMode_Success() {
@@ -119,17 +173,15 @@ class BankServiceImplTest {
         BigDecimal amount = new BigDecimal("100");
 
         when(sessionService.getCurrentUser()).thenReturn(currentUser);
-        when(accountService.getAccount(currentUser)).thenReturn(sourceAccount);
-        when(accountService.getAccount(targetUser)).thenReturn(targetAccount);
-        when(sourceAccount.getBalance()).thenReturn(new BigDecimal("200"));
-
-        bankService.setTransferMode(TransferMode.FULL_ONLY);
+        when(accountService.findAccount(currentUser)).thenReturn(sourceAccount);
+        when(accountService.findAccount(targetUser)).thenReturn(targetAccount);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.parse("200"));
 
         // Act
-        bankService.transfer(targetUser, amount);
+        bankService.transfer(targetUser, amount, TransferOptions.FULL_ONLY);
 
         // Assert
-        verify(sourceAccount).transfer(targetAccount, amount);
+        verify(sourceAccount).transfer(targetAccount, Amount.of(amount));
         verify(accountService).updateAccount(sourceAccount);
         verify(accountService).updateAccount(targetAccount);
     }
@@ -142,16 +194,14 @@ class BankServiceImplTest {
         BigDecimal amount = new BigDecimal("100");
 
         when(sessionService.getCurrentUser()).thenReturn(currentUser);
-        when(accountService.getAccount(currentUser)).thenReturn(sourceAccount);
-        when(sourceAccount.getBalance()).thenReturn(new BigDecimal("50"));
-
-        bankService.setTransferMode(TransferMode.FULL_ONLY);
+        when(accountService.findAccount(currentUser)).thenReturn(sourceAccount);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.parse("50"));
 
         // Act
-        bankService.transfer(targetUser, amount);
+        bankService.transfer(targetUser, amount, TransferOptions.FULL_ONLY);
 
         // Assert
-        verify(sourceAccount, never()).transfer(any(), any());
+        verify(sourceAccount, never()).transfer(any(), any(Amount.class));
         assertTrue(outputStream.toString().contains("Insufficient funds for full transfer"));
     }
 
@@ -164,20 +214,35 @@ class BankServiceImplTest {
         BigDecimal availableAmount = new BigDecimal("60");
 
         when(sessionService.getCurrentUser()).thenReturn(currentUser);
-        when(accountService.getAccount(currentUser)).thenReturn(sourceAccount);
-        when(accountService.getAccount(targetUser)).thenReturn(targetAccount);
-        when(sourceAccount.getBalance()).thenReturn(availableAmount);
-
-        bankService.setTransferMode(TransferMode.PARTIAL_ALLOWED);
+        when(accountService.findAccount(currentUser)).thenReturn(sourceAccount);
+        when(accountService.findAccount(targetUser)).thenReturn(targetAccount);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.of(availableAmount));
 
         // Act
-        bankService.transfer(targetUser, requestedAmount);
+        bankService.transfer(targetUser, requestedAmount, TransferOptions.PARTIAL_ALLOWED);
 
         // Assert
-        verify(sourceAccount).transfer(targetAccount, availableAmount);
+        verify(sourceAccount).transfer(targetAccount, Amount.of(availableAmount));
         assertTrue(outputStream.toString().contains("Transferred $60"));
     }
 
+    @Test
+    void transfer_ExplicitSource_DoesNotUseSession() {
+        // Arrange
+        BigDecimal amount = new BigDecimal("100");
+        when(accountService.findAccount("alice")).thenReturn(sourceAccount);
+        when(accountService.findAccount("bob")).thenReturn(targetAccount);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.parse("200"));
+
+        // Act
+        bankService.transfer("alice", "bob", Amount.of(amount));
+
+        // Assert
+        verify(sourceAccount).transfer(targetAccount, Amount.of(amount));
+        assertTrue(outputStream.toString().contains("Transferred $100 to bob"));
+        verifyNoInteractions(sessionService);
+    }
+
     @Test
     void transfer_ToSelf_ThrowsException() {
         // Arrange
@@ -202,22 +267,253 @@ class BankServiceImplTest {
         BigDecimal debtAmount = new BigDecimal("50");
 
         when(sessionService.getCurrentUser()).thenReturn(currentUser);
-        when(accountService.getAccount(currentUser)).thenReturn(sourceAccount);
-        when(accountService.getAccount(creditor)).thenReturn(targetAccount);
-        when(sourceAccount.getBalance()).thenReturn(depositAmount);
+        when(accountService.findAccount(currentUser)).thenReturn(sourceAccount);
+        when(accountService.findAccount(creditor)).thenReturn(targetAccount);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.of(depositAmount));
 
         // Create initial debt
-        bankService.setTransferMode(TransferMode.PARTIAL_ALLOWED);
-        bankService.transfer(creditor, debtAmount);
+        bankService.transfer(creditor, debtAmount, TransferOptions.PARTIAL_ALLOWED);
 
         // Act
         bankService.deposit(depositAmount);
 
         // Assert
-        verify(sourceAccount).transfer(targetAccount, debtAmount);
+        verify(sourceAccount).transfer(targetAccount, Amount.of(debtAmount));
         assertTrue(outputStream.toString().contains("Transferred $50 to bob"));
     }
 
+    @Test
+    void createAccount_Creditor_ShowsOwedFromDebtor() {
+        // Arrange
+        when(sessionService.getCurrentUser()).thenReturn("alice");
+        when(accountService.findAccount("alice")).thenReturn(sourceAccount);
+        when(accountService.findAccount("bob")).thenReturn(targetAccount);
+        when(accountService.createAccount("bob")).thenReturn(targetAccount);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.parse("60"));
+        when(targetAccount.getBalanceAmount()).thenReturn(Amount.parse("60"));
+        bankService.transfer("bob", new BigDecimal("100"), TransferOptions.PARTIAL_ALLOWED);
+
+        // Act
+        bankService.createAccount("bob");
+
+        // Assert
+        assertTrue(outputStream.toString().contains("Owed $40 to bob"));
+        assertTrue(outputStream.toString().contains("Owed $40 from alice"));
+    }
+
+    @Test
+    void createAccount_CreditorAfterRepayment_ShowsNoOwedFrom() {
+        // Arrange
+        when(sessionService.getCurrentUser()).thenReturn("alice");
+        when(accountService.findAccount("alice")).thenReturn(sourceAccount);
+        when(accountService.findAccount("bob")).thenReturn(targetAccount);
+        when(accountService.getAccount("bob")).thenReturn(targetAccount);
+        when(accountService.createAccount("bob")).thenReturn(targetAccount);
+        when(sourceAccount.getBalanceAmount()).thenReturn(Amount.parse("60"));
+        when(targetAccount.getBalanceAmount()).thenReturn(Amount.parse("100"));
+        bankService.transfer("bob", new BigDecimal("100"), TransferOptions.PARTIAL_ALLOWED);
+        bankService.deposit(new BigDecimal("40"));
+        outputStream.reset();
+
+        // Act
+        bankService.createAccount("bob");
+
+        // Assert
+        assertFalse(outputStream.toString().contains("Owed $"));
+    }
+
+    // Batch Transfer Tests
+    @Test
+    void transferBatch_PartialMode_ReportsEachLeg() {
+        // Arrange
+        ConcurrentAccountServiceImpl accounts = new ConcurrentAccountServiceImpl();
+        BankServiceImpl bank = new BankServiceImpl(accounts, sessionService, new NoopJournal(), new NoopEventSink());
+        bank.createAccount("alice");
+        bank.deposit("alice", Amount.parse("50"));
+
+        // Act
+        List<TransferLegResult> results = bank.transferBatch("alice", List.of(
+                new TransferLeg("bob", Amount.parse("30")),
+                new TransferLeg("carol", Amount.parse("30")),
+                new TransferLeg("BOB", Amount.parse("5"))));
+
+        // Assert
+        assertEquals(TransferOutcome.TRANSFERRED, results.get(0).getOutcome());
+        assertEquals(TransferOutcome.PARTIAL, results.get(1).getOutcome());
+        assertEquals(0, results.get(1).getTransferred().compareTo(Amount.parse("20")));
+        assertEquals(0, results.get(1).getOwed().compareTo(Amount.parse("10")));
+        assertEquals(TransferOutcome.INSUFFICIENT_FUNDS, results.get(2).getOutcome());
+        assertEquals(0, accounts.getAccount("bob").getBalance().compareTo(new BigDecimal("30")));
+        assertEquals(0, accounts.getAccount("carol").getBalance().compareTo(new BigDecimal("20")));
+    }
+
+    @Test
+    void transferBatch_FullMode_SkipsLegsThatAreNotCovered() {
+        // Arrange
+        ConcurrentAccountServiceImpl accounts = new ConcurrentAccountServiceImpl();
+        BankServiceImpl bank = new BankServiceImpl(accounts, sessionService, new NoopJournal(), new NoopEventSink());
+        bank.createAccount("alice");
+        bank.deposit("alice", Amount.parse("50"));
+
+        // Act
+        List<TransferLegResult> results = bank.transferBatch("alice", List.of(
+                new TransferLeg("bob", Amount.parse("60")),
+                new TransferLeg("carol", Amount.parse("40"))), TransferOptions.FULL_ONLY);
+
+        // Assert
+        assertEquals(TransferOutcome.INSUFFICIENT_FUNDS, results.get(0).getOutcome());
+        assertEquals(0, results.get(0).getBalance().compareTo(Amount.parse("50")));
+        assertEquals(TransferOutcome.TRANSFERRED, results.get(1).getOutcome());
+        assertEquals(0, accounts.getAccount("alice").getBalance().compareTo(BigDecimal.TEN));
+        assertNull(accounts.findAccount("bob"));
+    }
+
+    @Test
+    void transferBatch_ToSelf_ThrowsBeforeAnyLeg() {
+        // Arrange
+        ConcurrentAccountServiceImpl accounts = new ConcurrentAccountServiceImpl();
+        BankServiceImpl bank = new BankServiceImpl(accounts, sessionService, new NoopJournal(), new NoopEventSink());
+        bank.createAccount("alice");
+        bank.deposit("alice", Amount.parse("50"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> bank.transferBatch("alice", List.of(
+                new TransferLeg("bob", Amount.parse("10")),
+                new TransferLeg("Alice", Amount.parse("10")))));
+        assertNull(accounts.findAccount("bob"));
+    }
+
+    // Concurrency Tests
+    @Test
+    void transfer_ConcurrentPartialFromOneAccount_ConservesMoneyAndRepaysDebts() throws Exception {
+        // Arrange
+        ConcurrentAccountServiceImpl accounts = new ConcurrentAccountServiceImpl();
+        BankServiceImpl bank = new BankServiceImpl(accounts, sessionService, new NoopJournal(), new NoopEventSink());
+        String[] creditors = {"carol", "dave", "erin", "frank", "grace", "heidi", "ivan", "judy"};
+        bank.createAccount("alice");
+        bank.deposit("alice", Amount.parse("1000"));
+
+        // Act
+        runConcurrently(creditors.length, i -> {
+            for (int n = 0; n < 50; n++) {
+                bank.transfer("alice", creditors[i], Amount.parse("7"), TransferOptions.PARTIAL_ALLOWED);
+            }
+        });
+        BigDecimal moved = totalBalance(accounts, creditors);
+        BigDecimal drained = accounts.getAccount("alice").getBalance();
+        bank.deposit("alice", Amount.parse("1000"));
+
+        // Assert
+        assertEquals(0, moved.compareTo(new BigDecimal("1000")));
+        assertEquals(0, drained.signum());
+        BigDecimal repaid = totalBalance(accounts, creditors).subtract(moved);
+        // 142 full transfers of 7 leave 6 for one partial transfer that owes the missing 1
+        assertEquals(0, repaid.compareTo(BigDecimal.ONE));
+        assertEquals(0, accounts.getAccount("alice").getBalance().compareTo(new BigDecimal("999")));
+    }
+
+    @Test
+    void transfer_ConcurrentOppositeDirections_NoDeadlockAndMoneyConserved() throws Exception {
+        // Arrange
+        ConcurrentAccountServiceImpl accounts = new ConcurrentAccountServiceImpl();
+        BankServiceImpl bank = new BankServiceImpl(accounts, sessionService, new NoopJournal(), new NoopEventSink());
+        bank.createAccount("alice");
+        bank.createAccount("bob");
+        bank.deposit("alice", Amount.parse("100"));
+        bank.deposit("bob", Amount.parse("100"));
+
+        // Act
+        runConcurrently(8, i -> {
+            String source = i % 2 == 0 ? "alice" : "bob";
+            String target = i % 2 == 0 ? "bob" : "alice";
+            for (int n = 0; n < 2_000; n++) {
+                bank.transfer(source, target, Amount.parse("1"));
+            }
+        });
+
+        // Assert
+        BigDecimal total = accounts.getAccount("alice").getBalance().add(accounts.getAccount("bob").getBalance());
+        assertEquals(0, total.compareTo(new BigDecimal("200")));
+        assertTrue(accounts.getAccount("alice").getBalance().signum() >= 0);
+        assertTrue(accounts.getAccount("bob").getBalance().signum() >= 0);
+    }
+
+    @Test
+    void transfer_ConcurrentCallsWithDifferentOptions_EachKeepsItsOwn() throws Exception {
+        // Arrange
+        ConcurrentAccountServiceImpl accounts = new ConcurrentAccountServiceImpl();
+        BankServiceImpl bank = new BankServiceImpl(accounts, sessionService, new NoopJournal(), new NoopEventSink());
+        bank.createAccount("alice");
+        bank.createAccount("bob");
+        bank.deposit("alice", Amount.parse("1"));
+        bank.deposit("bob", Amount.parse("1000"));
+
+        // Act
+        runConcurrently(4, i -> {
+            for (int n = 0; n < 500; n++) {
+                if (i % 2 == 0) {
+                    bank.transfer("alice", "carol", Amount.parse("5"), TransferOptions.FULL_ONLY);
+                } else {
+                    bank.transfer("bob", "dave", Amount.parse("1"), TransferOptions.PARTIAL_ALLOWED);
+                }
+            }
+        });
+
+        // Assert
+        assertEquals(0, BigDecimal.ONE.compareTo(accounts.getAccount("alice").getBalance()));
+        assertNull(accounts.findAccount("carol"));
+        assertEquals(0, new BigDecimal("1000").compareTo(accounts.getAccount("dave").getBalance()));
+    }
+
+    @Test
+    void transfer_WithoutOptions_UsesSourceAccountPolicy() {
+        // Arrange
+        ConcurrentAccountServiceImpl accounts = new ConcurrentAccountServiceImpl();
+        TransferPolicy policy = TransferPolicy.DEFAULT.withAccount("alice", TransferOptions.FULL_ONLY);
+        BankServiceImpl bank = new BankServiceImpl(accounts, sessionService, new NoopJournal(), new NoopEventSink(),
+                policy);
+        bank.createAccount("alice");
+        bank.createAccount("bob");
+        bank.deposit("alice", Amount.parse("10"));
+        bank.deposit("bob", Amount.parse("10"));
+
+        // Act
+        bank.transfer("alice", "carol", Amount.parse("15"));
+        bank.transfer("bob", "carol", Amount.parse("15"));
+
+        // Assert
+        assertEquals(0, BigDecimal.TEN.compareTo(accounts.getAccount("alice").getBalance()));
+        assertEquals(0, BigDecimal.TEN.compareTo(accounts.getAccount("carol").getBalance()));
+    }
+
+    private static BigDecimal totalBalance(AccountService accounts, String[] names) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (String name : names) {
+            total = total.add(accounts.getAccount(name).getBalance());
+        }
+        return total;
+    }
+
+    private interface Worker {
+        void run(int index);
+    }
+
+    private static void runConcurrently(int threads, Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> worker.run(index)));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @AfterEach
     void tearDown() {
         System.setOut(System.out);
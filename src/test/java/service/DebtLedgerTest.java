@@ -0,0 +1,213 @@
+package service;
+
+import enums.RepaymentOrder;
+import org.junit.jupiter.api.Test;
+import utils.Amount;
+import utils.NameCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DebtLedgerTest {
+
+    private final DebtLedger ledger = new DebtLedger();
+
+    @Test
+    void set_MaintainsBothIndexes() {
+        // Act
+        owe("alice", "bob", "30");
+
+        // Assert
+        assertEquals(Amount.parse("30"), amount("alice", "bob"));
+        assertEquals(Amount.parse("30"), ledger.creditsOf(high("bob"), low("bob")).get("alice"));
+    }
+
+    @Test
+    void set_Zero_RemovesDebtFromBothIndexes() {
+        // Arrange
+        owe("alice", "bob", "30");
+
+        // Act
+        owe("alice", "bob", "0");
+
+        // Assert
+        assertNull(amount("alice", "bob"));
+        assertNull(ledger.creditsOf(high("bob"), low("bob")));
+    }
+
+    @Test
+    void netCycles_ThreePartyCycle_CollapsesByMinimumDebt() {
+        // Arrange
+        owe("alice", "bob", "30");
+        owe("bob", "carol", "20");
+        owe("carol", "alice", "50");
+        List<Amount> changes = new ArrayList<>();
+
+        // Act
+        NettingResult result = ledger.netCycles((dh, dl, ch, cl, amount) -> changes.add(amount));
+
+        // Assert
+        assertEquals(1, result.getCyclesCollapsed());
+        assertEquals(1, result.getDebtsSettled());
+        assertEquals(Amount.parse("60"), result.getValueNetted());
+        assertEquals(3, changes.size());
+        assertEquals(Amount.parse("10"), amount("alice", "bob"));
+        assertNull(amount("bob", "carol"));
+        assertEquals(Amount.parse("30"), amount("carol", "alice"));
+    }
+
+    @Test
+    void netCycles_NoCycle_LeavesDebtsUntouched() {
+        // Arrange
+        owe("alice", "bob", "30");
+        owe("bob", "carol", "20");
+
+        // Act
+        NettingResult result = ledger.netCycles((dh, dl, ch, cl, amount) -> fail("No debt should change"));
+
+        // Assert
+        assertEquals(0, result.getCyclesCollapsed());
+        assertEquals(Amount.parse("30"), amount("alice", "bob"));
+        assertEquals(Amount.parse("20"), amount("bob", "carol"));
+    }
+
+    @Test
+    void netCycles_OnlySearchesDebtsGrownSinceLastNetting() {
+        // Arrange
+        owe("alice", "bob", "30");
+        owe("bob", "alice", "10");
+        ledger.netCycles((dh, dl, ch, cl, amount) -> { });
+
+        // Act
+        NettingResult second = ledger.netCycles((dh, dl, ch, cl, amount) -> fail("Nothing is pending"));
+        owe("bob", "alice", "5");
+        NettingResult third = ledger.netCycles((dh, dl, ch, cl, amount) -> { });
+
+        // Assert
+        assertEquals(0, second.getCyclesCollapsed());
+        assertEquals(1, third.getCyclesCollapsed());
+        assertEquals(Amount.parse("15"), amount("alice", "bob"));
+        assertNull(amount("bob", "alice"));
+    }
+
+    @Test
+    void set_SameDebtGrowsRepeatedly_ListedForNettingOnce() {
+        // Act
+        for (int n = 1; n <= 1000; n++) {
+            owe("alice", "bob", Integer.toString(n));
+        }
+
+        // Assert
+        assertEquals(1, ledger.pendingCount());
+    }
+
+    @Test
+    void set_DebtsSettledAndIncurredAgain_PendingStaysBounded() {
+        // Act
+        for (int n = 0; n < 1000; n++) {
+            owe("alice", "bob", "10");
+            owe("bob", "carol", "10");
+            owe("alice", "bob", "0");
+            owe("bob", "carol", "0");
+        }
+        owe("alice", "bob", "10");
+
+        // Assert
+        assertTrue(ledger.pendingCount() <= 16);
+        NettingResult result = ledger.netCycles((dh, dl, ch, cl, amount) -> { });
+        assertEquals(0, result.getCyclesCollapsed());
+        assertFalse(ledger.hasPending());
+    }
+
+    @Test
+    void repay_OldestFirst_PaysDebtsInOrderIncurred() {
+        // Arrange
+        owe("alice", "carol", "20");
+        owe("alice", "bob", "30");
+        owe("alice", "carol", "25");
+        List<String> paid = new ArrayList<>();
+
+        // Act
+        Amount left = ledger.repay(high("alice"), low("alice"), Amount.parse("40"),
+                (ch, cl, payment, owedAfter) -> paid.add(NameCodec.decode(ch, cl) + " " + payment));
+
+        // Assert
+        assertEquals(List.of("carol 25", "bob 15"), paid);
+        assertEquals(0, left.signum());
+        assertNull(amount("alice", "carol"));
+        assertEquals(Amount.parse("15"), amount("alice", "bob"));
+        assertEquals(Amount.parse("15"), ledger.creditsOf(high("bob"), low("bob")).get("alice"));
+        assertNull(ledger.creditsOf(high("carol"), low("carol")));
+    }
+
+    @Test
+    void repay_NewestFirst_PaysLatestDebtFirst() {
+        // Arrange
+        ledger.setRepaymentOrder(RepaymentOrder.NEWEST_FIRST);
+        owe("alice", "carol", "20");
+        owe("alice", "bob", "30");
+        List<String> paid = new ArrayList<>();
+
+        // Act
+        Amount left = ledger.repay(high("alice"), low("alice"), Amount.parse("100"),
+                (ch, cl, payment, owedAfter) -> paid.add(NameCodec.decode(ch, cl)));
+
+        // Assert
+        assertEquals(List.of("bob", "carol"), paid);
+        assertEquals(Amount.parse("50"), left);
+        ledger.forEachDebt(high("alice"), low("alice"), (ch, cl, amount) -> fail("All debts are repaid"));
+    }
+
+    @Test
+    void repay_PaymentFails_LeavesDebtUnchanged() {
+        // Arrange
+        owe("alice", "bob", "30");
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> ledger.repay(high("alice"), low("alice"),
+                Amount.parse("10"), (ch, cl, payment, owedAfter) -> {
+                    throw new IllegalStateException("Insufficient funds\n");
+                }));
+
+        // Assert
+        assertEquals(Amount.parse("30"), amount("alice", "bob"));
+    }
+
+    @Test
+    void movePendingTo_RestoredCopyNetsOnlyMovedDebts() {
+        // Arrange
+        owe("alice", "bob", "30");
+        owe("bob", "carol", "20");
+        owe("carol", "alice", "50");
+        DebtLedger copy = new DebtLedger();
+        ledger.forEach(copy::restore);
+
+        // Act
+        NettingResult before = copy.netCycles((dh, dl, ch, cl, amount) -> { });
+        ledger.movePendingTo(copy);
+        NettingResult after = copy.netCycles((dh, dl, ch, cl, amount) -> { });
+
+        // Assert
+        assertEquals(0, before.getCyclesCollapsed());
+        assertEquals(1, after.getCyclesCollapsed());
+        assertFalse(ledger.hasPending());
+    }
+
+    private void owe(String debtor, String creditor, String amount) {
+        ledger.set(high(debtor), low(debtor), high(creditor), low(creditor), Amount.parse(amount));
+    }
+
+    private Amount amount(String debtor, String creditor) {
+        return ledger.get(high(debtor), low(debtor), high(creditor), low(creditor));
+    }
+
+    private static long high(String name) {
+        return NameCodec.high(name);
+    }
+
+    private static long low(String name) {
+        return NameCodec.low(name);
+    }
+}
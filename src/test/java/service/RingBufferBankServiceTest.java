@@ -0,0 +1,193 @@
+package service;
+
+import account.AccountServiceImpl;
+import event.NoopEventSink;
+import event.PrintStreamEventSink;
+import event.ScopedEventSink;
+import journal.FileJournal;
+import journal.NoopJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import session.SessionServiceImpl;
+import utils.Amount;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferBankServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private RingBufferBankService bank;
+
+    @AfterEach
+    void tearDown() {
+        if (bank != null) {
+            bank.close();
+        }
+    }
+
+    @Test
+    void commands_PrintSameResultsAsLockingBank() {
+        // Arrange
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SessionServiceImpl session = new SessionServiceImpl();
+        bank = new RingBufferBankService(new AccountServiceImpl(), session, new NoopJournal(),
+                new PrintStreamEventSink(new PrintStream(output, true, StandardCharsets.UTF_8)));
+
+        // Act
+        bank.createAccount("alice");
+        session.login("alice");
+        bank.deposit(new BigDecimal("50"));
+        bank.transfer("bob", new BigDecimal("80"));
+
+        // Assert
+        String printed = output.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("Hello, alice!"));
+        assertTrue(printed.contains("Your balance is $50"));
+        assertTrue(printed.contains("Transferred $50 to bob"));
+        assertTrue(printed.contains("Owed $30 to bob"));
+    }
+
+    @Test
+    void transfer_ToSelf_ThrowsOnCallingThread() {
+        // Arrange
+        bank = new RingBufferBankService(new AccountServiceImpl(), new SessionServiceImpl(), new NoopJournal(),
+                new NoopEventSink());
+        bank.createAccount("alice");
+
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> bank.transfer("alice", "ALICE", Amount.parse("1")));
+        assertTrue(exception.getMessage().contains("Cannot transfer money to yourself"));
+    }
+
+    @Test
+    void transferBatch_ReturnsLegResults() {
+        // Arrange
+        bank = new RingBufferBankService(new AccountServiceImpl(), new SessionServiceImpl(), new NoopJournal(),
+                new NoopEventSink());
+        bank.createAccount("alice");
+        bank.deposit("alice", Amount.parse("10"));
+
+        // Act
+        List<TransferLegResult> results = bank.transferBatch("alice", List.of(
+                new TransferLeg("bob", Amount.parse("4")), new TransferLeg("carol", Amount.parse("7"))),
+                TransferOptions.FULL_ONLY);
+
+        // Assert
+        assertEquals(2, results.size());
+        assertEquals(0, results.get(0).getBalance().compareTo(Amount.parse("6")));
+        assertEquals(0, results.get(1).getTransferred().signum());
+    }
+
+    @Test
+    void submitAll_AppliesEveryClaimedCommand() {
+        // Arrange
+        AccountServiceImpl accounts = new AccountServiceImpl();
+        bank = new RingBufferBankService(accounts, new SessionServiceImpl(), new NoopJournal(), new NoopEventSink(),
+                64);
+        bank.createAccount("alice");
+        Amount cent = Amount.parse("0.01");
+
+        // Act
+        for (int round = 0; round < 10; round++) {
+            bank.submitAll(64, (index, command) -> command.deposit("alice", cent));
+        }
+
+        // Assert
+        assertEquals(0, new BigDecimal("6.40").compareTo(balanceOf(accounts, "alice")));
+    }
+
+    @Test
+    void concurrentCallers_EachSeeOwnEventsAndMoneyIsConserved() throws Exception {
+        // Arrange
+        AccountServiceImpl accounts = new AccountServiceImpl();
+        ScopedEventSink events = new ScopedEventSink();
+        bank = new RingBufferBankService(accounts, new SessionServiceImpl(), new NoopJournal(), events, 256);
+        String[] names = {"alice", "bob", "carol", "dave"};
+        for (String name : names) {
+            bank.createAccount(name);
+            bank.deposit(name, Amount.parse("100"));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(names.length);
+        List<Future<String>> outputs = new ArrayList<>();
+
+        // Act
+        try {
+            for (int i = 0; i < names.length; i++) {
+                String source = names[i];
+                String target = names[(i + 1) % names.length];
+                outputs.add(executor.submit(() -> {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    events.bind(new PrintStreamEventSink(new PrintStream(output, true, StandardCharsets.UTF_8)));
+                    for (int n = 0; n < 500; n++) {
+                        bank.transfer(source, target, Amount.parse("0.10"));
+                    }
+                    events.unbind();
+                    return output.toString(StandardCharsets.UTF_8);
+                }));
+            }
+            for (int i = 0; i < names.length; i++) {
+                String output = outputs.get(i).get(30, TimeUnit.SECONDS);
+
+                // Assert
+                assertTrue(output.contains("to " + names[(i + 1) % names.length]));
+                assertFalse(output.contains("to " + names[(i + 2) % names.length]));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (String name : names) {
+            total = total.add(balanceOf(accounts, name));
+        }
+        assertEquals(0, total.compareTo(new BigDecimal("400")));
+    }
+
+    @Test
+    void journal_WrittenByJournalThread_RecoversIntoLockingBank() {
+        // Arrange
+        Path journalPath = tempDir.resolve("journal");
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            bank = new RingBufferBankService(new AccountServiceImpl(), new SessionServiceImpl(), journal,
+                    new NoopEventSink());
+            bank.createAccount("alice");
+            bank.deposit("alice", Amount.parse("30"));
+            bank.transfer("alice", "bob", Amount.parse("50"));
+            bank.close();
+            bank = null;
+        }
+
+        // Act
+        AccountServiceImpl accounts = new AccountServiceImpl();
+        try (FileJournal journal = new FileJournal(journalPath)) {
+            BankServiceImpl recovered = new BankServiceImpl(accounts, new SessionServiceImpl(), journal,
+                    new NoopEventSink());
+            recovered.recover();
+            recovered.deposit("alice", Amount.parse("20"));
+        }
+
+        // Assert
+        assertEquals(0, BigDecimal.ZERO.compareTo(balanceOf(accounts, "alice")));
+        assertEquals(0, new BigDecimal("50").compareTo(balanceOf(accounts, "bob")));
+    }
+
+    // Safe once a call has returned: its answer is handed over only after the business thread is done with it
+    private BigDecimal balanceOf(AccountServiceImpl accounts, String name) {
+        return accounts.getAccount(name).getBalance();
+    }
+}
@@ -0,0 +1,120 @@
+package service;
+
+import account.AccountServiceImpl;
+import account.ConcurrentAccountServiceImpl;
+import event.NoopEventSink;
+import journal.FileJournal;
+import journal.Journal;
+import journal.NoopJournal;
+import session.SessionServiceImpl;
+import utils.Amount;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Compares the lock-based {@link BankServiceImpl} with the single-writer {@link RingBufferBankService}
+ * when every thread transfers between the same few hot accounts, and reports throughput and p99
+ * latency per call. The ring is measured once with one entry per call and once with each thread
+ * claiming {@code batch} entries at a time through {@link RingBufferBankService#submitAll}, where
+ * the latency is that of the whole batch. Pass a directory to journal to disk, where the ring's
+ * journal thread syncs once per run of commands. Not a unit test; run it with
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes service.RingBufferBenchmark [transfersPerThread] [threads] [batch] [journalDirectory]
+ * </pre>
+ */
+public class RingBufferBenchmark {
+
+    private static final String[] HOT_ACCOUNTS = {"alice", "bob", "carol", "dave"};
+    private static final Amount ONE = Amount.parse("1");
+
+    public static void main(String[] args) throws Exception {
+        int transfers = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int batch = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        Path journalDirectory = args.length > 3 ? Paths.get(args[3]) : null;
+
+        System.out.printf("%-22s %14s %14s%n", "engine", "transfers/s", "p99 (us)");
+        try (Journal journal = journal(journalDirectory, "locks")) {
+            BankServiceImpl locks = new BankServiceImpl(new ConcurrentAccountServiceImpl(), new SessionServiceImpl(),
+                    journal, new NoopEventSink());
+            report("locks", locks, threads, transfers, 1, null);
+        }
+        try (Journal journal = journal(journalDirectory, "ring");
+             RingBufferBankService ring = new RingBufferBankService(new AccountServiceImpl(),
+                     new SessionServiceImpl(), journal, new NoopEventSink())) {
+            report("ring", ring, threads, transfers, 1, null);
+        }
+        try (Journal journal = journal(journalDirectory, "ring-batched");
+             RingBufferBankService ring = new RingBufferBankService(new AccountServiceImpl(),
+                     new SessionServiceImpl(), journal, new NoopEventSink())) {
+            report("ring, batches of " + batch, ring, threads, transfers, batch, ring);
+        }
+    }
+
+    private static Journal journal(Path directory, String name) throws Exception {
+        if (directory == null) {
+            return new NoopJournal();
+        }
+        Path path = directory.resolve(name);
+        if (Files.exists(path)) {
+            throw new IllegalStateException("Journal directory " + path + " already exists\n");
+        }
+        return new FileJournal(path);
+    }
+
+    private static void report(String label, BankService bank, int threads, int transfers, int batch,
+                               RingBufferBankService ring) throws Exception {
+        for (String name : HOT_ACCOUNTS) {
+            bank.createAccount(name);
+            bank.deposit(name, Amount.parse("1000000"));
+        }
+        int calls = transfers / batch;
+        long[] latencies = new long[threads * calls];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threads; t++) {
+            int first = t * calls;
+            int offset = t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int call = 0; call < calls; call++) {
+                        int pair = (offset + call) % HOT_ACCOUNTS.length;
+                        String source = HOT_ACCOUNTS[pair];
+                        String target = HOT_ACCOUNTS[(pair + 1) % HOT_ACCOUNTS.length];
+                        long begin = System.nanoTime();
+                        if (ring != null) {
+                            ring.submitAll(batch, (index, command) -> command.transfer(source, target, ONE));
+                        } else {
+                            bank.transfer(source, target, ONE);
+                        }
+                        latencies[first + call] = System.nanoTime() - begin;
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }, "producer-" + t).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        if (failure.get() != null) {
+            throw new IllegalStateException("Benchmark producer failed\n", failure.get());
+        }
+        Arrays.sort(latencies);
+        double perSecond = (double) threads * calls * batch * 1_000_000_000L / elapsed;
+        double p99Micros = latencies[(int) (latencies.length * 0.99)] / 1_000.0;
+        System.out.printf("%-22s %,14.0f %,14.1f%n", label, perSecond, p99Micros);
+    }
+}
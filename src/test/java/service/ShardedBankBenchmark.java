@@ -0,0 +1,94 @@
+package service;
+
+import event.NoopEventSink;
+import session.SessionServiceImpl;
+import utils.Amount;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static utils.TestNames.letters;
+
+/**
+ * Measures {@link ShardedBankService} as the shard count grows. On the uniform workload every
+ * client picks accounts at random, so deposits always stay on one shard and a transfer crosses
+ * shards with probability 1 - 1/shards; throughput should grow with the shards until the cores run
+ * out. The skewed workload sends the given share of transfers to one hot account, whose shard runs
+ * all of those credits on its one thread: past a point more shards add nothing, and that shard's
+ * throughput is the limit. Not a unit test; run it with
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes service.ShardedBankBenchmark [opsPerClient] [clients] [maxShards] [hotShare]
+ * </pre>
+ */
+public class ShardedBankBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+    private static final Amount ONE = Amount.parse("1");
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int maxShards = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        double hotShare = args.length > 3 ? Double.parseDouble(args[3]) : 0.9;
+
+        System.out.printf("%8s %14s %14s %14s%n", "shards", "deposits/s", "transfers/s", "skewed/s");
+        for (int shards = 1; shards <= maxShards; shards *= 2) {
+            double deposits = run(shards, clients, operations, false, 0);
+            double transfers = run(shards, clients, operations, true, 0);
+            double skewed = run(shards, clients, operations, true, hotShare);
+            System.out.printf("%8d %,14.0f %,14.0f %,14.0f%n", shards, deposits, transfers, skewed);
+        }
+    }
+
+    // Returns commands per second
+    private static double run(int shards, int clients, int operations, boolean transfers, double hotShare)
+            throws Exception {
+        try (ShardedBankService bank = new ShardedBankService(shards, new SessionServiceImpl(), new NoopEventSink())) {
+            String[] names = new String[ACCOUNTS];
+            for (int i = 0; i < ACCOUNTS; i++) {
+                names[i] = "acct" + letters(i);
+                bank.createAccount(names[i]);
+                bank.deposit(names[i], Amount.parse("1000000"));
+            }
+
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(clients);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            for (int c = 0; c < clients; c++) {
+                Thread client = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                        for (int n = 0; n < operations; n++) {
+                            String source = names[random.nextInt(ACCOUNTS)];
+                            if (!transfers) {
+                                bank.deposit(source, ONE);
+                                continue;
+                            }
+                            String target = random.nextDouble() < hotShare ? names[0] : names[random.nextInt(ACCOUNTS)];
+                            if (!target.equals(source)) {
+                                bank.transfer(source, target, ONE);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }, "client-" + c);
+                client.start();
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            long elapsed = System.nanoTime() - begin;
+            if (failure.get() != null) {
+                throw new IllegalStateException("Benchmark client failed\n", failure.get());
+            }
+            return (double) clients * operations * 1_000_000_000L / elapsed;
+        }
+    }
+}
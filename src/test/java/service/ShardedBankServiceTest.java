@@ -0,0 +1,240 @@
+package service;
+
+import event.NoopEventSink;
+import event.PrintStreamEventSink;
+import event.ScopedEventSink;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import session.SessionServiceImpl;
+import utils.Amount;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBankServiceTest {
+
+    private static final String[] NAMES = {"alice", "bob", "carol", "dave", "erin", "frank", "grace", "heidi"};
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private ShardedBankService bank;
+
+    @AfterEach
+    void tearDown() {
+        if (bank != null) {
+            bank.close();
+        }
+    }
+
+    @Test
+    void commands_PrintSameResultsAsLockingBank() {
+        // Arrange
+        SessionServiceImpl session = new SessionServiceImpl();
+        bank = new ShardedBankService(4, session, printingSink());
+
+        // Act
+        bank.createAccount("alice");
+        session.login("alice");
+        bank.deposit(new BigDecimal("50"));
+        bank.transfer("bob", new BigDecimal("80"));
+        bank.createAccount("bob");
+
+        // Assert
+        String printed = printed();
+        assertTrue(printed.contains("Hello, alice!"));
+        assertTrue(printed.contains("Your balance is $50"));
+        assertTrue(printed.contains("Transferred $50 to bob"));
+        assertTrue(printed.contains("Owed $30 to bob"));
+        assertTrue(printed.contains("Owed $30 from alice"));
+    }
+
+    @Test
+    void transfer_AcrossShards_DebtRepaidByLaterDeposit() {
+        // Arrange
+        bank = new ShardedBankService(2, new SessionServiceImpl(), printingSink());
+        String source = "alice";
+        String target = nameOnOtherShard(source);
+        bank.createAccount(source);
+        bank.deposit(source, Amount.parse("10"));
+        bank.transfer(source, target, Amount.parse("25"));
+
+        // Act
+        bank.deposit(source, Amount.parse("20"));
+        output.reset();
+        bank.createAccount(target);
+
+        // Assert
+        assertEquals(0, Amount.parse("5").compareTo(bank.balanceOf(source)));
+        assertEquals(0, Amount.parse("25").compareTo(bank.balanceOf(target)));
+        assertFalse(printed().contains("Owed"));
+    }
+
+    @Test
+    void createAccount_InvalidName_ThrowsWithoutGreeting() {
+        // Arrange
+        bank = new ShardedBankService(2, new SessionServiceImpl(), printingSink());
+
+        // Act
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> bank.createAccount("Alice123"));
+
+        // Assert
+        assertTrue(exception.getMessage().contains("Account name must be 2-20 letters long"));
+        assertEquals("", printed());
+    }
+
+    @Test
+    void transfer_AcrossShardsToInvalidName_ReleasesReservation() {
+        // Arrange
+        bank = new ShardedBankService(2, new SessionServiceImpl(), new NoopEventSink());
+        String source = nameOnShard(1);
+        bank.createAccount(source);
+        bank.deposit(source, Amount.parse("10"));
+
+        // Act
+        assertThrows(IllegalArgumentException.class, () -> bank.transfer(source, "b1", Amount.parse("4")));
+
+        // Assert
+        assertEquals(0, Amount.parse("10").compareTo(bank.balanceOf(source)));
+    }
+
+    @Test
+    void transfer_FullModeNotCovered_ChangesNothing() {
+        // Arrange
+        bank = new ShardedBankService(2, new SessionServiceImpl(), printingSink(),
+                new TransferPolicy(TransferOptions.FULL_ONLY));
+        String target = nameOnOtherShard("alice");
+        bank.createAccount("alice");
+        bank.deposit("alice", Amount.parse("10"));
+
+        // Act
+        bank.transfer("alice", target, Amount.parse("15"));
+
+        // Assert
+        assertTrue(printed().contains("Insufficient funds for full transfer. Required: $15, Available: $10"));
+        assertEquals(0, Amount.parse("10").compareTo(bank.balanceOf("alice")));
+        assertThrows(IllegalStateException.class, () -> bank.balanceOf(target));
+    }
+
+    @Test
+    void netDebts_CycleAcrossShards_SettlesBothSides() {
+        // Arrange
+        bank = new ShardedBankService(3, new SessionServiceImpl(), printingSink());
+        String[] ring = {nameOnShard(0), nameOnShard(1), nameOnShard(2)};
+        for (String name : ring) {
+            bank.createAccount(name);
+        }
+        // Each pays on the 1 it was just paid and owes the next one 10
+        bank.deposit(ring[0], Amount.parse("1"));
+        for (int i = 0; i < ring.length; i++) {
+            bank.transfer(ring[i], ring[(i + 1) % ring.length], Amount.parse("11"));
+        }
+        output.reset();
+
+        // Act
+        bank.netDebts();
+        for (String name : ring) {
+            bank.createAccount(name);
+        }
+
+        // Assert
+        String printed = printed();
+        assertTrue(printed.contains("Netted 1 debt cycles, settling 3 debts worth $30"));
+        assertFalse(printed.contains("Owed"));
+    }
+
+    @Test
+    void transferBatch_LegsOnSeveralShards_ReturnsLegResults() {
+        // Arrange
+        bank = new ShardedBankService(4, new SessionServiceImpl(), new NoopEventSink());
+        bank.createAccount("alice");
+        bank.deposit("alice", Amount.parse("10"));
+
+        // Act
+        List<TransferLegResult> results = bank.transferBatch("alice", List.of(
+                new TransferLeg("bob", Amount.parse("4")), new TransferLeg("carol", Amount.parse("7")),
+                new TransferLeg("dave", Amount.parse("6"))), TransferOptions.FULL_ONLY);
+
+        // Assert
+        assertEquals(0, Amount.parse("6").compareTo(results.get(0).getBalance()));
+        assertEquals(0, results.get(1).getTransferred().signum());
+        assertEquals(0, Amount.ZERO.compareTo(bank.balanceOf("alice")));
+        assertEquals(0, Amount.parse("6").compareTo(bank.balanceOf("dave")));
+    }
+
+    @Test
+    void concurrentCallers_TransfersAcrossShards_ConserveMoney() throws Exception {
+        // Arrange
+        ScopedEventSink events = new ScopedEventSink();
+        bank = new ShardedBankService(4, new SessionServiceImpl(), events);
+        for (String name : NAMES) {
+            bank.createAccount(name);
+            bank.deposit(name, Amount.parse("100"));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(NAMES.length);
+        List<Future<?>> workers = new ArrayList<>();
+
+        // Act
+        try {
+            for (int i = 0; i < NAMES.length; i++) {
+                String source = NAMES[i];
+                String target = NAMES[(i + 3) % NAMES.length];
+                workers.add(executor.submit(() -> {
+                    events.bind(new NoopEventSink());
+                    for (int n = 0; n < 500; n++) {
+                        bank.transfer(source, target, Amount.parse("0.70"));
+                        bank.deposit(source, Amount.parse("0.50"));
+                    }
+                    events.unbind();
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        Amount total = Amount.ZERO;
+        for (String name : NAMES) {
+            total = total.add(bank.balanceOf(name));
+        }
+        assertEquals(0, Amount.parse("2800").compareTo(total));
+    }
+
+    private PrintStreamEventSink printingSink() {
+        return new PrintStreamEventSink(new PrintStream(output, true, StandardCharsets.UTF_8));
+    }
+
+    private String printed() {
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private String nameOnShard(int shard) {
+        for (String name : NAMES) {
+            if (bank.shardIndexOf(name) == shard) {
+                return name;
+            }
+        }
+        for (int n = 0; ; n++) {
+            String name = "acct" + (char) ('a' + n % 26) + (char) ('a' + n / 26 % 26) + (char) ('a' + n / 676);
+            if (bank.shardIndexOf(name) == shard) {
+                return name;
+            }
+        }
+    }
+
+    private String nameOnOtherShard(String name) {
+        return nameOnShard((bank.shardIndexOf(name) + 1) % bank.getShardCount());
+    }
+}
@@ -0,0 +1,92 @@
+package service;
+
+import account.ConcurrentAccountServiceImpl;
+import event.NoopEventSink;
+import journal.NoopJournal;
+import session.SessionServiceImpl;
+import utils.Amount;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static utils.TestNames.letters;
+
+/**
+ * Measures transfers under the per-account locks of {@link BankServiceImpl}. Each thread moves
+ * money back and forth within its own pair of accounts, so the pairs never contend and throughput
+ * should grow with the thread count; the hot-pair run sends every thread through one pair in both
+ * directions to show the cost of contention and that opposite transfers do not deadlock. Not a unit test; run it with
+ * <pre>
+ * mvn -q test-compile
+ * java -cp target/classes:target/test-classes service.TransferContentionBenchmark [transfersPerThread] [maxThreads]
+ * </pre>
+ */
+public class TransferContentionBenchmark {
+
+    private static final Amount ONE = Amount.parse("1");
+
+    public static void main(String[] args) throws Exception {
+        int transfers = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        System.out.printf("%-22s %8s %14s%n", "accounts", "threads", "transfers/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            report("disjoint pairs", threads, transfers, false);
+        }
+        report("one hot pair", maxThreads, transfers, true);
+    }
+
+    private static void report(String label, int threads, int transfers, boolean hotPair) throws Exception {
+        double rate = run(threads, transfers, hotPair);
+        System.out.printf("%-22s %8d %,14.0f%n", label, threads, rate);
+    }
+
+    // Returns transfers per second
+    private static double run(int threads, int transfers, boolean hotPair) throws Exception {
+        BankService bank = new BankServiceImpl(new ConcurrentAccountServiceImpl(), new SessionServiceImpl(),
+                new NoopJournal(), new NoopEventSink());
+        String[][] pairs = new String[threads][];
+        for (int i = 0; i < threads; i++) {
+            int pair = hotPair ? 0 : i;
+            String first = "pa" + letters(pair);
+            String second = "pb" + letters(pair);
+            // In the hot pair, every other thread runs the opposite direction
+            pairs[i] = hotPair && i % 2 == 1 ? new String[]{second, first} : new String[]{first, second};
+            if (i == pair) {
+                bank.createAccount(first);
+                bank.createAccount(second);
+                bank.deposit(first, Amount.parse("1000"));
+                bank.deposit(second, Amount.parse("1000"));
+            }
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < threads; i++) {
+            String[] pair = pairs[i];
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int n = 0; n < transfers; n++) {
+                        bank.transfer(pair[n & 1], pair[1 - (n & 1)], ONE);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }, "transfer-" + i);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        if (failure.get() != null) {
+            throw new IllegalStateException("Benchmark worker failed\n", failure.get());
+        }
+        return (double) threads * transfers * 1_000_000_000L / elapsed;
+    }
+}
@@ -0,0 +1,41 @@
+package service;
+
+import enums.TransferMode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferPolicyTest {
+
+    @Test
+    void optionsFor_AccountOverride_MatchesAnyCase() {
+        // Arrange
+        TransferPolicy policy = TransferPolicy.DEFAULT.withAccount("Alice", TransferOptions.FULL_ONLY);
+
+        // Act
+        TransferOptions options = policy.optionsFor("ALICE");
+
+        // Assert
+        assertEquals(TransferMode.FULL_ONLY, options.getMode());
+        assertSame(TransferOptions.PARTIAL_ALLOWED, policy.optionsFor("bob"));
+    }
+
+    @Test
+    void withAccount_LeavesOriginalPolicyUnchanged() {
+        // Arrange
+        TransferPolicy original = new TransferPolicy(TransferOptions.PARTIAL_ALLOWED);
+
+        // Act
+        original.withAccount("alice", TransferOptions.FULL_ONLY);
+
+        // Assert
+        assertSame(TransferOptions.PARTIAL_ALLOWED, original.optionsFor("alice"));
+    }
+
+    @Test
+    void withAccount_InvalidName_ThrowsException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> TransferPolicy.DEFAULT.withAccount("b1", TransferOptions.FULL_ONLY));
+    }
+}
@@ -0,0 +1,73 @@
+package session;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    private SessionRegistry<SessionService> registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SessionRegistry<>(SessionServiceImpl::new);
+    }
+
+    @Test
+    void open_SessionsAreIndependent() {
+        // Arrange
+        String alice = registry.open();
+        String bob = registry.open();
+
+        // Act
+        registry.get(alice).login("Alice");
+        registry.get(bob).login("Bob");
+
+        // Assert
+        assertNotEquals(alice, bob);
+        assertEquals(2, registry.size());
+        assertEquals("alice", registry.get(alice).getCurrentUser());
+        assertEquals("bob", registry.get(bob).getCurrentUser());
+    }
+
+    @Test
+    void open_NewSessionIsLoggedOut() {
+        // Act
+        String token = registry.open();
+
+        // Assert
+        assertFalse(registry.get(token).isLoggedIn());
+    }
+
+    @Test
+    void get_UnknownToken_ThrowsException() {
+        // Act & Assert
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> registry.get("nope"));
+        assertEquals("Unknown session token\n", exception.getMessage());
+    }
+
+    @Test
+    void openWithToken_FoundByThatToken() {
+        // Act
+        SessionService session = registry.open("left");
+
+        // Assert
+        assertSame(session, registry.get("left"));
+        assertNull(registry.find("right"));
+        assertThrows(IllegalStateException.class, () -> registry.open("left"));
+    }
+
+    @Test
+    void close_TokenStopsWorking() {
+        // Arrange
+        String token = registry.open();
+
+        // Act
+        registry.close(token);
+
+        // Assert
+        assertEquals(0, registry.size());
+        assertThrows(IllegalStateException.class, () -> registry.get(token));
+    }
+}
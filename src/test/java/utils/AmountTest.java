@@ -0,0 +1,94 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmountTest {
+
+    @Test
+    void parse_PlainDecimals_ToMinorUnits() {
+        assertEquals(10_000, Amount.parse("100").getMinorUnits());
+        assertEquals(1_250, Amount.parse("12.50").getMinorUnits());
+        assertEquals(1_250, Amount.parse("+12.5").getMinorUnits());
+        assertEquals(-500, Amount.parse("-5").getMinorUnits());
+        assertEquals(50, Amount.parse(".5").getMinorUnits());
+        assertEquals(100, Amount.parse("1.").getMinorUnits());
+    }
+
+    @Test
+    void parse_KeepsTypedScale() {
+        assertEquals(new BigDecimal("100"), Amount.parse("100").toBigDecimal());
+        assertEquals(new BigDecimal("12.50"), Amount.parse("12.50").toBigDecimal());
+        assertEquals(new BigDecimal("1.00"), Amount.parse("1.0000").toBigDecimal());
+    }
+
+    @Test
+    void parse_Region_ReadsOnlyThoseCharacters() {
+        assertEquals(Amount.parse("42.1"), Amount.parse("deposit 42.1 now", 8, 12));
+    }
+
+    @Test
+    void parse_Malformed_ThrowsNumberFormatException() {
+        for (String text : new String[]{"", "-", ".", "abc", "1e3", "1.2.3", "5$", " 5", "1,000"}) {
+            assertThrows(NumberFormatException.class, () -> Amount.parse(text), text);
+        }
+    }
+
+    @Test
+    void parse_TooPrecise_ThrowsIllegalArgumentException() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> Amount.parse("0.001"));
+        assertEquals("Amount cannot have more than 2 decimal places\n", exception.getMessage());
+    }
+
+    @Test
+    void parse_OutOfRange_ThrowsIllegalArgumentException() {
+        assertEquals(Long.MAX_VALUE, Amount.parse("92233720368547758.07").getMinorUnits());
+        for (String text : new String[]{"92233720368547758.08", "92233720368547759", "123456789012345678901234"}) {
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> Amount.parse(text));
+            assertEquals("Amount is out of range\n", exception.getMessage());
+        }
+    }
+
+    @Test
+    void ofMinorUnits_UsesFewestDecimalPlaces() {
+        assertEquals(new BigDecimal("12"), Amount.ofMinorUnits(1_200).toBigDecimal());
+        assertEquals(new BigDecimal("12.5"), Amount.ofMinorUnits(1_250).toBigDecimal());
+        assertEquals(new BigDecimal("12.55"), Amount.ofMinorUnits(1_255).toBigDecimal());
+    }
+
+    @Test
+    void of_MatchesParse() {
+        assertEquals(Amount.parse("12.50"), Amount.of(new BigDecimal("12.50")));
+    }
+
+    @Test
+    void addSubtract_KeepWiderScale() {
+        assertEquals(Amount.parse("15.50"), Amount.parse("10").add(Amount.parse("5.50")));
+        assertEquals(Amount.parse("4.5"), Amount.parse("5.5").subtract(Amount.parse("1")));
+        assertEquals(Amount.parse("-2"), Amount.parse("2").negate());
+    }
+
+    @Test
+    void min_EqualValues_ReturnsThis() {
+        Amount ten = Amount.parse("10.00");
+
+        assertSame(ten, ten.min(Amount.parse("10")));
+        assertEquals(Amount.parse("3"), ten.min(Amount.parse("3")));
+    }
+
+    @Test
+    void toString_MatchesBigDecimal() {
+        for (String text : new String[]{"0", "5", "5.5", "5.50", "0.05", "-0.05", "-12.30", "1000"}) {
+            assertEquals(new BigDecimal(text).toPlainString(), Amount.parse(text).toString(), text);
+        }
+    }
+
+    @Test
+    void ofUnscaled_WiderScale_FallsBackToBigDecimal() {
+        assertEquals(Amount.parse("5.50"), Amount.ofUnscaled(550, 2));
+        assertEquals(Amount.parse("1.00"), Amount.ofUnscaled(1_000, 3));
+    }
+}
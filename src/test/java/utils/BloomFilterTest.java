@@ -0,0 +1,44 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_AddedNames_NoFalseNegatives() {
+        // Arrange
+        BloomFilter filter = new BloomFilter(10_000);
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(i + 1, i * 31L);
+        }
+
+        // Assert
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(i + 1, i * 31L));
+        }
+    }
+
+    @Test
+    void mightContain_UnknownNames_FewFalsePositives() {
+        // Arrange
+        BloomFilter filter = new BloomFilter(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(i + 1, 0);
+        }
+
+        // Act
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(1_000_000 + i, 7)) {
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        assertTrue(falsePositives < 300, "Too many false positives: " + falsePositives);
+    }
+}
@@ -0,0 +1,40 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+
+    @Test
+    void increment_RaisesFrequencyUpToFifteen() {
+        // Arrange
+        FrequencySketch sketch = new FrequencySketch(64);
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(42L);
+        }
+
+        // Assert
+        assertEquals(15, sketch.frequency(42L));
+        assertEquals(0, sketch.frequency(43L));
+    }
+
+    @Test
+    void increment_AfterSamplePeriod_HalvesCounters() {
+        // Arrange
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 8; i++) {
+            sketch.increment(7L);
+        }
+
+        // Act
+        for (long key = 1_000; key < 1_200; key++) {
+            sketch.increment(key);
+        }
+
+        // Assert
+        assertTrue(sketch.frequency(7L) < 8);
+    }
+}
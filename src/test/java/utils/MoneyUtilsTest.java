@@ -0,0 +1,52 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyUtilsTest {
+
+    @Test
+    void toMinorUnits_ConvertsToCents() {
+        assertEquals(10000L, MoneyUtils.toMinorUnits(new BigDecimal("100")));
+        assertEquals(2550L, MoneyUtils.toMinorUnits(new BigDecimal("25.50")));
+        assertEquals(5L, MoneyUtils.toMinorUnits(new BigDecimal("0.05")));
+    }
+
+    @Test
+    void toMinorUnits_TrailingZerosBeyondScale_Accepted() {
+        assertEquals(150L, MoneyUtils.toMinorUnits(new BigDecimal("1.5000")));
+    }
+
+    @Test
+    void toMinorUnits_TooManyDecimals_ThrowsException() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> MoneyUtils.toMinorUnits(new BigDecimal("1.005"))
+        );
+        assertTrue(exception.getMessage().contains("decimal places"));
+    }
+
+    @Test
+    void toMinorUnits_OutOfRange_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> MoneyUtils.toMinorUnits(new BigDecimal("100000000000000000000")));
+        assertThrows(IllegalArgumentException.class, () -> MoneyUtils.toMinorUnits(null));
+    }
+
+    @Test
+    void toBigDecimal_RoundTrips() {
+        assertEquals(new BigDecimal("25.50"), MoneyUtils.toBigDecimal(2550L));
+        assertEquals(new BigDecimal("25.5"), MoneyUtils.toBigDecimal(2550L, 1));
+        assertEquals(new BigDecimal("100"), MoneyUtils.toBigDecimal(10000L, 0));
+    }
+
+    @Test
+    void add_Overflow_ThrowsException() {
+        assertEquals(3L, MoneyUtils.add(1L, 2L));
+        assertThrows(IllegalStateException.class, () -> MoneyUtils.add(Long.MAX_VALUE, 1L));
+        assertThrows(IllegalStateException.class, () -> MoneyUtils.subtract(Long.MIN_VALUE, 1L));
+    }
+}
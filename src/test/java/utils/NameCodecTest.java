@@ -0,0 +1,68 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameCodecTest {
+
+    @Test
+    void pack_CaseInsensitive() {
+        assertEquals(NameCodec.high("alice"), NameCodec.high("ALICE"));
+        assertEquals(NameCodec.low("alice"), NameCodec.low("AlIcE"));
+    }
+
+    @Test
+    void pack_DistinctNamesDistinctKeys() {
+        assertNotEquals(NameCodec.high("ab"), NameCodec.high("aab"));
+        assertNotEquals(NameCodec.high("ab"), NameCodec.high("ba"));
+        assertNotEquals(NameCodec.low("abcdefghijklmn"), NameCodec.low("abcdefghijklmno"));
+    }
+
+    @Test
+    void decode_RoundTripsLowercased() {
+        for (String name : new String[]{"Al", "Bob", "abcdefghijkl", "abcdefghijklm", "ZyxwvutsrqponmlkjihG"}) {
+            assertEquals(name.toLowerCase(), NameCodec.decode(NameCodec.high(name), NameCodec.low(name)));
+        }
+    }
+
+    @Test
+    void foldCase_LowercasesOnlyWhenNeeded() {
+        String lower = "alice";
+
+        assertSame(lower, NameCodec.foldCase(lower));
+        assertEquals("alice", NameCodec.foldCase("ALiCe"));
+    }
+
+    @Test
+    void pack_InvalidName_ThrowsException() {
+        for (String name : new String[]{null, "", "A", "A1", "User@Name", "ThisNameIsTooLongForTheSystem"}) {
+            assertThrows(IllegalArgumentException.class, () -> NameCodec.high(name), String.valueOf(name));
+            assertFalse(NameCodec.isValid(name));
+        }
+        assertThrows(IllegalArgumentException.class, () -> NameCodec.low("abcdefghijklm1"));
+    }
+
+    @Test
+    void isValid_ValidNames() {
+        assertTrue(NameCodec.isValid("Al"));
+        assertTrue(NameCodec.isValid("abcdefghijklmnopqrst"));
+    }
+
+    @Test
+    void isValidPacked_AcceptsPackedNames() {
+        for (String name : new String[]{"Al", "Bob", "abcdefghijkl", "abcdefghijklm", "abcdefghijklmnopqrst"}) {
+            assertTrue(NameCodec.isValid(NameCodec.high(name), NameCodec.low(name)), name);
+        }
+    }
+
+    @Test
+    void isValidPacked_RejectsOtherWords() {
+        assertFalse(NameCodec.isValid(0, 0));
+        assertFalse(NameCodec.isValid(1, 0));
+        assertFalse(NameCodec.isValid(-1, 0));
+        assertFalse(NameCodec.isValid(27 << 5 | 1, 0));
+        assertFalse(NameCodec.isValid(NameCodec.high("ab"), 1));
+        assertFalse(NameCodec.isValid(NameCodec.high("abcdefghijkl"), NameCodec.high("abcdefghi")));
+    }
+}
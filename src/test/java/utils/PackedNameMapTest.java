@@ -0,0 +1,94 @@
+package utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedNameMapTest {
+
+    private PackedNameMap<Integer> map;
+
+    @BeforeEach
+    void setUp() {
+        map = new PackedNameMap<>();
+    }
+
+    @Test
+    void putGet_CaseInsensitive() {
+        // Act
+        map.put("Alice", 1);
+
+        // Assert
+        assertEquals(1, map.get("ALICE"));
+        assertEquals(1, map.get(NameCodec.high("alice"), NameCodec.low("alice")));
+        assertNull(map.get("bob"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void put_ExistingKey_ReplacesValue() {
+        map.put("alice", 1);
+        assertEquals(1, map.put("Alice", 2));
+        assertEquals(2, map.get("alice"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void computeIfAbsent_CreatesOnce() {
+        assertEquals(7, map.computeIfAbsent("carol", () -> 7));
+        assertEquals(7, map.computeIfAbsent("carol", () -> 8));
+    }
+
+    @Test
+    void randomOperations_MatchHashMap() {
+        // Arrange
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // Act: enough keys to force several resizes and long probe runs through removal
+        for (int i = 0; i < 20_000; i++) {
+            String name = randomName(random);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(name), map.remove(name));
+            } else {
+                assertEquals(expected.put(name, i), map.put(name, i));
+            }
+        }
+
+        // Assert
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        Set<String> iterated = new HashSet<>();
+        map.forEach((high, low, value) -> iterated.add(NameCodec.decode(high, low)));
+        assertEquals(expected.keySet(), iterated);
+        assertEquals(expected.size(), map.values().size());
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+
+    @Test
+    void copy_IsIndependent() {
+        map.put("alice", 1);
+        PackedNameMap<Integer> copy = map.copy();
+        copy.remove("alice");
+        assertEquals(1, map.get("alice"));
+        assertTrue(copy.isEmpty());
+    }
+
+    private static String randomName(Random random) {
+        int length = 2 + random.nextInt(3);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            name.append((char) ('a' + random.nextInt(6)));
+        }
+        return name.toString();
+    }
+}
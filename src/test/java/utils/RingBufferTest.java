@@ -0,0 +1,87 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest {
+
+    @Test
+    void constructor_SizeNotPowerOfTwo_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(6, Object::new));
+    }
+
+    @Test
+    void next_ClaimsConsecutiveSequences() {
+        // Arrange
+        RingBuffer<long[]> ring = new RingBuffer<>(8, () -> new long[1]);
+
+        // Act
+        long first = ring.next(1);
+        long batch = ring.next(3);
+
+        // Assert
+        assertEquals(0, first);
+        assertEquals(3, batch);
+    }
+
+    @Test
+    void highestPublished_StopsAtFirstGap() {
+        // Arrange
+        RingBuffer<long[]> ring = new RingBuffer<>(8, () -> new long[1]);
+        ring.next(4);
+
+        // Act
+        ring.publish(0, 1);
+        ring.publish(3, 3);
+
+        // Assert
+        assertEquals(1, ring.highestPublished(0));
+        assertEquals(1, ring.highestPublished(2));
+        assertTrue(ring.isPublished(3));
+    }
+
+    @Test
+    void publish_NextLap_NotMistakenForEarlierOne() {
+        // Arrange
+        RingBuffer<long[]> ring = new RingBuffer<>(4, () -> new long[1]);
+        AtomicLong consumed = new AtomicLong(-1);
+        ring.setGatingSequences(consumed);
+        ring.publish(0, ring.next(4));
+        consumed.set(3);
+
+        // Act
+        long sequence = ring.next(1);
+
+        // Assert
+        assertEquals(4, sequence);
+        assertFalse(ring.isPublished(4));
+        ring.publish(4, 4);
+        assertTrue(ring.isPublished(4));
+        assertSame(ring.get(0), ring.get(4));
+    }
+
+    @Test
+    void next_RingFull_WaitsForGatingConsumer() throws Exception {
+        // Arrange
+        RingBuffer<long[]> ring = new RingBuffer<>(2, () -> new long[1]);
+        AtomicLong consumed = new AtomicLong(-1);
+        ring.setGatingSequences(consumed);
+        ring.publish(0, ring.next(2));
+        long[] claimed = {-1};
+        Thread producer = new Thread(() -> claimed[0] = ring.next(1));
+
+        // Act
+        producer.start();
+        producer.join(50);
+        boolean blocked = producer.isAlive();
+        consumed.set(0);
+        producer.join(5_000);
+
+        // Assert
+        assertTrue(blocked);
+        assertEquals(2, claimed[0]);
+    }
+}
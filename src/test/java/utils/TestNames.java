@@ -0,0 +1,29 @@
+package utils;
+
+/**
+ * Generates distinct, valid account names for tests that create many accounts.
+ */
+public final class TestNames {
+
+    private TestNames() {
+    }
+
+    /**
+     * Spells {@code n} in base 26 with the letters a-z, least significant letter first.
+     */
+    public static String letters(int n) {
+        StringBuilder name = new StringBuilder();
+        do {
+            name.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return name.toString();
+    }
+
+    /**
+     * Returns the {@code i}-th account name of a bulk fixture.
+     */
+    public static String name(int i) {
+        return "ac" + letters(i);
+    }
+}